@@ -3,19 +3,38 @@ package jobplanner;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Spec;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.io.FileOutputStream;
-
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import jobplanner.model.api.AdzunaException;
+import jobplanner.model.api.FanOutSearch;
 import jobplanner.model.api.JobPostUtil;
+import jobplanner.model.api.StubAdzunaServer;
 import jobplanner.model.formatters.DataFormatter;
 import jobplanner.model.formatters.Formats;
+import jobplanner.model.models.DateIndex;
+import jobplanner.model.models.IJobPostModel.JobRecord;
 import jobplanner.model.models.JobPostModel;
 import jobplanner.model.models.SavedJobModel;
 import jobplanner.model.models.ISavedJobModel;
+import jobplanner.model.store.PostingPartitions;
+import jobplanner.model.store.PostingStore;
+import jobplanner.model.store.RetentionPolicy;
+import jobplanner.model.store.SavedJobStore;
+import jobplanner.controller.InputValidator;
 import jobplanner.controller.JobPlannerController;
 import jobplanner.view.JobPlannerGUI;
 
@@ -25,7 +44,8 @@ import javax.swing.*;
  * The main class for the job planner application.
  */
 @Command(name = "jobplanner", subcommands = { JobPlannerSearch.class, JobPlannerList.class, JobPlannerGraphUI.class,
-        CommandLine.HelpCommand.class }, version = "jobplanner 1.0", 
+        JobPlannerCompact.class, JobPlannerStubServer.class, CommandLine.HelpCommand.class },
+        version = "jobplanner 1.0", 
         description = "Search and save jobs.", mixinStandardHelpOptions = true)
 public class JobPlannerApp implements Runnable {
 
@@ -58,9 +78,14 @@ public class JobPlannerApp implements Runnable {
 @Command(name = "search", description = "Search for job postings.")
 class JobPlannerSearch implements Runnable {
 
-    /** The country to search in. */
-    @Option(names = { "--country" }, description = "The country to search in.")
-    private String country = "us";
+    /** The command spec, for reporting invalid options. */
+    @Spec
+    private CommandSpec spec;
+
+    /** The countries to search in. */
+    @Option(names = { "--country" }, split = ",",
+            description = "The countries to search in, comma separated.")
+    private List<String> countries = List.of("us");
 
     /** The keyword to search for. */
     @Option(names = { "-k", "--keyword" }, description = "The keyword to search for.")
@@ -78,20 +103,55 @@ class JobPlannerSearch implements Runnable {
     @Option(names = { "-m", "--salary-max" }, description = "The maximum salary to search for.")
     private String salaryMax;
 
-    /** The category to search in. */
-    @Option(names = { "-c", "--category" }, description = "The category to search in.")
-    private String category;
+    /** The categories to search in. */
+    @Option(names = { "-c", "--category" }, split = ",",
+            description = "The categories to search in, comma separated.")
+    private List<String> categories = List.of();
 
     /** The format to display the job postings in. */
-    @Option(names = { "-f", "--format" }, description = "The format to display the job postings in.")
+    @Option(names = { "-f", "--format" },
+            description = "The format to display the job postings in: ${COMPLETION-CANDIDATES}.")
     private Formats format = Formats.PRETTY;
 
     /** The maximum days old for the job postings. */
     @Option(names = { "-d", "--days" }, description = "The maximum days old for the job postings.")
     private String days;
 
+    /** The number of result pages to fetch. */
+    private int pages = 1;
+
+    /**
+     * Sets the number of result pages to fetch.
+     *
+     * @param pages the number of result pages
+     * @throws ParameterException if the number is not between 1 and
+     *                            {@link JobPostUtil#MAX_PAGES}
+     */
+    @Option(names = { "-p", "--pages" }, defaultValue = "1",
+            description = "The number of result pages to fetch, from 1 to " + JobPostUtil.MAX_PAGES + ".")
+    void setPages(int pages) {
+        if (pages < 1 || pages > JobPostUtil.MAX_PAGES) {
+            throw new ParameterException(spec.commandLine(), String.format(
+                    "Invalid value '%d' for option '--pages': must be between 1 and %d.", pages,
+                    JobPostUtil.MAX_PAGES));
+        }
+        this.pages = pages;
+    }
+
+    /** The time each country/category branch may take, in seconds. */
+    @Option(names = { "-t", "--timeout" }, description = "The time each country/category branch may take, in seconds.")
+    private long timeout = FanOutSearch.DEFAULT_BRANCH_TIMEOUT.toSeconds();
+
+    /** Whether to search the postings fetched before instead of the API. */
+    @Option(names = { "--local" }, description = "Search the postings fetched before instead of the API.")
+    private boolean local;
+
     @Override
     public void run() {
+        if (local) {
+            searchLocal();
+            return;
+        }
         Map<String, String> searchParams = new HashMap<>();
 
         if (keyword != null) {
@@ -106,15 +166,75 @@ class JobPlannerSearch implements Runnable {
         if (salaryMax != null) {
             searchParams.put("salary_max", salaryMax);
         }
-        if (category != null) {
-            searchParams.put("category", category);
-        }
         if (days != null) {
             searchParams.put("max_days_old", days);
         }
 
-        JobPostUtil client = new JobPostUtil(System.getenv("ADZUNA_APP_ID"), System.getenv("ADZUNA_APP_KEY"));
-        DataFormatter.write(client.getJobPostingList(country, searchParams), format, System.out);
+        JobPostUtil client = JobPostUtil.getInstance();
+        if (countries.size() == 1 && categories.size() <= 1) {
+            if (!categories.isEmpty()) {
+                searchParams.put("category", categories.get(0));
+            }
+            try {
+                DataFormatter.write(withinDays(client.getJobPostingList(countries.get(0), searchParams, pages)),
+                        format, System.out);
+            } catch (AdzunaException e) {
+                System.err.println("Search failed: " + e.getMessage());
+            }
+            return;
+        }
+
+        FanOutSearch.Result result;
+        try {
+            result = new FanOutSearch(client, Duration.ofSeconds(timeout))
+                    .search(countries, categories, searchParams, pages);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Search failed: " + e.getMessage());
+            return;
+        }
+        result.failures().forEach((origin, error) ->
+                System.err.println("Search failed for " + origin + ": " + error));
+        DataFormatter.write(withinDays(result.getJobs()), format, System.out);
+    }
+
+    /**
+     * Keeps the postings posted within the --days window. The API is asked for
+     * the same window, but a cached response may be older than the window. The
+     * postings are filtered once, so they are checked in one pass rather than
+     * indexed.
+     *
+     * @param jobs the postings
+     * @return the postings posted within the window, in their order
+     */
+    private List<JobRecord> withinDays(List<JobRecord> jobs) {
+        if (days == null) {
+            return jobs;
+        }
+        try {
+            long since = Instant.now().minus(Duration.ofDays(Long.parseLong(days))).getEpochSecond();
+            return jobs.stream().filter(job -> DateIndex.epochSecondOf(job.created()) >= since).toList();
+        } catch (NumberFormatException e) {
+            return jobs;
+        }
+    }
+
+    /**
+     * Searches the posting store. Only the partitions of the countries and
+     * categories searched, and whose dates and salaries can match, are read.
+     */
+    private void searchLocal() {
+        try (PostingStore store = PostingStore.open(Paths.get(PostingStore.DIRECTORY))) {
+            PostingPartitions.Query query = new PostingPartitions.Query(
+                    countries.stream().map(c -> c.toLowerCase(Locale.ROOT)).collect(Collectors.toSet()),
+                    categories.stream().map(c -> c.toLowerCase(Locale.ROOT)).collect(Collectors.toSet()),
+                    days == null ? null : Instant.now().minus(Duration.ofDays(Long.parseLong(days))),
+                    salaryMin == null ? null : Double.valueOf(salaryMin),
+                    salaryMax == null ? null : Double.valueOf(salaryMax),
+                    keyword == null ? null : String.join(" ", keyword));
+            DataFormatter.write(store.partitions().query(query), format, System.out);
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Local search failed: " + e.getMessage());
+        }
     }
 }
 
@@ -124,15 +244,16 @@ class JobPlannerSearch implements Runnable {
 @Command(name = "list", description = "List saved job postings.")
 class JobPlannerList implements Runnable {
 
-    /** The format to display the job postings in. */
-    private Formats format = Formats.PRETTY;
+    /** The format to display the job postings in, or null to pick it from the output file. */
+    private Formats format;
 
     /**
      * The output file to write to.
      * 
      * @param format the format to display the job postings in.
      */
-    @Option(names = { "-f", "--format" }, description = "The format to display the job postings in.")
+    @Option(names = { "-f", "--format" }, description = "The format to display the job postings in: "
+            + "PRETTY, JSON, CSV, SMILE or CBOR. Defaults to the format of the output file's extension.")
     void setFormat(String format) {
         this.format = Formats.valueOf(format.toUpperCase()) == null ? Formats.PRETTY
                 : Formats.valueOf(format.toUpperCase());
@@ -149,6 +270,11 @@ class JobPlannerList implements Runnable {
     @Override
     public void run() {
         ISavedJobModel jobs = SavedJobModel.loadFromJson();
+        Formats format = this.format;
+        if (format == null) {
+            format = output != null && InputValidator.detectFormat(output) != null
+                    ? InputValidator.detectFormat(output) : Formats.PRETTY;
+        }
 
         if (count) {
             System.out.println(SavedJobModel.loadFromJson().count());
@@ -157,7 +283,7 @@ class JobPlannerList implements Runnable {
 
         if (output != null) {
             try {
-                DataFormatter.write(jobs.getSavedJobs(), format, new FileOutputStream(output));
+                DataFormatter.writeFile(jobs.getSavedJobs(), format, Paths.get(output));
             } catch (Exception e) {
                 System.err.println("Failed to write to file: " + output);
                 return;
@@ -168,6 +294,37 @@ class JobPlannerList implements Runnable {
     }
 }
 
+/**
+ * The compact command for the job planner application.
+ */
+@Command(name = "compact", description = "Drop stale postings from the posting store and reclaim their space.")
+class JobPlannerCompact implements Runnable {
+
+    /** The number of days postings are kept. */
+    @Option(names = { "-d", "--days" }, description = "The number of days postings are kept, "
+            + "0 to only merge the store. Defaults to JOBPLANNER_RETENTION_DAYS.")
+    private Long days;
+
+    /** The file of the saved jobs, which are kept whatever their age. */
+    @Option(names = { "-f", "--file" }, description = "The file of the saved jobs, kept whatever their age.")
+    private String file = "data/savedjobs.json";
+
+    @Override
+    public void run() {
+        List<JobRecord> saved = Files.exists(Paths.get(file)) ? SavedJobModel.loadFromJson(file).getSavedJobs()
+                : List.of();
+        RetentionPolicy policy = days == null ? RetentionPolicy.configured(saved)
+                : RetentionPolicy.ofDays(days, saved);
+        try (PostingStore store = PostingStore.open(Paths.get(PostingStore.DIRECTORY))) {
+            PostingStore.Compaction result = store.compact(policy);
+            System.out.printf("Dropped %d postings, %d of %d bytes left, %d postings kept%n", result.dropped(),
+                    result.bytesAfter(), result.bytesBefore(), store.size());
+        } catch (IOException e) {
+            System.err.println("Failed to compact the posting store: " + e.getMessage());
+        }
+    }
+}
+
 /**
  * The GUI command for the job planner application.
  */
@@ -180,22 +337,109 @@ class JobPlannerGraphUI implements Runnable {
 
     @Override
     public void run() {
-        // Load the model from JSON file
-        JobPostModel jobs = (JobPostModel) JobPostModel.getInstance("data/jobpostings.json");
+        // Load the model from the posting store
+        JobPostModel jobs = (JobPostModel) JobPostModel.getInstance();
 
         // Load saved jobs from JSON file
         SavedJobModel savedJobs = (SavedJobModel) SavedJobModel.loadFromJson(file);
 
+        // Drop stale postings in the background, keeping the saved ones
+        RetentionPolicy retention = RetentionPolicy.configured(savedJobs.getSavedJobs());
+        if (retention.dropsAny() && jobs.getStore().isWritable()) {
+            jobs.getStore().compactAsync(retention).exceptionally(e -> {
+                System.err.println("Failed to compact the posting store: " + e.getMessage());
+                return null;
+            });
+        }
+
         // Ensure GUI runs on the Event Dispatch Thread (EDT)
         SwingUtilities.invokeLater(() -> {
             // Initialize the GUI components with the loaded model
             JobPlannerGUI view = new JobPlannerGUI(jobs, savedJobs);
 
             // Initialize the controller with the model and view
-            JobPlannerController controller = new JobPlannerController(savedJobs, view);
+            JobPlannerController controller = new JobPlannerController(savedJobs, view,
+                    new SavedJobStore(Paths.get(file)), jobs);
 
             // Start the application
             controller.start();
         });
     }
 }
+
+/**
+ * The stub server command for the job planner application.
+ */
+@Command(name = "stub-server", description = "Run a local stand-in for the Adzuna API. "
+        + "Point the app at it with ADZUNA_BASE_URL.")
+class JobPlannerStubServer implements Runnable {
+
+    /** The port to listen on. */
+    @Option(names = { "--port" }, description = "The port to listen on.")
+    private int port = 8089;
+
+    /** The shortest latency, in milliseconds. */
+    @Option(names = { "--min-latency" }, description = "The shortest latency, in milliseconds.")
+    private long minLatency;
+
+    /** The longest latency, in milliseconds. */
+    @Option(names = { "--max-latency" }, description = "The longest latency, in milliseconds.")
+    private long maxLatency;
+
+    /** The share of very slow responses. */
+    @Option(names = { "--tail-rate" }, description = "The share of very slow responses, between 0 and 1.")
+    private double tailRate;
+
+    /** The latency of the very slow responses, in milliseconds. */
+    @Option(names = { "--tail-latency" }, description = "The latency of the very slow responses, in milliseconds.")
+    private long tailLatency;
+
+    /** The share of requests answered with an error. */
+    @Option(names = { "--error-rate" }, description = "The share of requests answered with an error, between 0 and 1.")
+    private double errorRate;
+
+    /** The number of postings per page. */
+    @Option(names = { "--results-per-page" }, description = "The number of postings per page.")
+    private int resultsPerPage = 10;
+
+    /** The number of postings a search finds in total. */
+    @Option(names = { "--total-results" }, description = "The number of postings a search finds in total.")
+    private int totalResults = 1000;
+
+    /** The length of the posting descriptions. */
+    @Option(names = { "--description-length" }, description = "The length of the posting descriptions.")
+    private int descriptionLength;
+
+    /** The directory of recorded responses. */
+    @Option(names = { "--recordings" }, description = "The directory of recorded responses to replay.")
+    private String recordings;
+
+    /** The base url of the real API to record from. */
+    @Option(names = { "--record-from" }, description = "The base url of the real API to record new responses from.")
+    private String upstream;
+
+    /** The seed of the injected latencies and errors. */
+    @Option(names = { "--seed" }, description = "The seed of the injected latencies and errors.")
+    private long seed;
+
+    @Override
+    public void run() {
+        try (StubAdzunaServer server = new StubAdzunaServer(port,
+                recordings == null ? null : Paths.get(recordings), upstream, seed)) {
+            server.setLatency(Duration.ofMillis(minLatency), Duration.ofMillis(maxLatency));
+            server.setTail(tailRate, Duration.ofMillis(tailLatency));
+            server.setErrorRate(errorRate);
+            server.setResultsPerPage(resultsPerPage);
+            server.setTotalResults(totalResults);
+            server.setDescriptionLength(descriptionLength);
+            server.start();
+
+            System.out.println("Serving the Adzuna API at " + server.getBaseUrl());
+            new CountDownLatch(1).await();
+        } catch (IOException e) {
+            System.err.println("Failed to start the stub server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
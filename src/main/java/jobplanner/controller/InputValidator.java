@@ -1,5 +1,7 @@
 package jobplanner.controller;
 
+import java.util.Locale;
+
 import jobplanner.model.formatters.Formats;
 
 /**
@@ -28,11 +30,24 @@ public final class InputValidator {
                 return "csv".equalsIgnoreCase(fileExtension);
             case PRETTY:
                 return "txt".equalsIgnoreCase(fileExtension);
+            case SMILE:
+            case CBOR:
+                return format.getExtensions().contains(fileExtension.toLowerCase(Locale.ROOT));
             default:
                 return false;
         }
     }
 
+    /**
+     * Detects the format of a file from its extension.
+     *
+     * @param filename the name of the file to check
+     * @return the format, or null if the extension is not one of a format
+     */
+    public static Formats detectFormat(String filename) {
+        return Formats.fromFilename(filename);
+    }
+
     /**
      * Extracts the file extension from the filename.
      *
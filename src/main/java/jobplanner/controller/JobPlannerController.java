@@ -1,29 +1,36 @@
 package jobplanner.controller;
 
+import jobplanner.model.api.AdzunaException;
+import jobplanner.model.api.FanOutSearch;
 import jobplanner.model.api.JobPostUtil;
 import jobplanner.model.formatters.DataFormatter;
 import jobplanner.model.formatters.Formats;
 import jobplanner.model.models.ISavedJobModel;
+import jobplanner.model.models.IJobPostModel;
 import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.JobPostModel;
+import jobplanner.model.models.JobTable;
+import jobplanner.model.store.PostingStore;
+import jobplanner.model.store.SavedJobStore;
 import jobplanner.model.types.JobCategory;
 import jobplanner.view.JobPlannerGUI;
 
 import javax.swing.JFileChooser;
 import javax.swing.SwingUtilities;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * The JobPlannerController class is responsible for handling the interactions
@@ -38,6 +45,28 @@ public class JobPlannerController implements ActionListener {
     /** The model containing saved jobs. */
     private ISavedJobModel savedJobsModel;
 
+    /** Persists the changes to the saved jobs in the background. */
+    private SavedJobStore savedJobStore;
+
+    /** Keeps the fetched job postings, or null to not keep them. */
+    private PostingStore postingStore;
+
+    /** The model the job list was opened on, or null. */
+    private JobPostModel jobPostModel;
+
+    /**
+     * The postings of the last search, which the date and salary filters
+     * narrow down, or null before the first search. Only used on the event
+     * dispatch thread.
+     */
+    private JobTable results;
+
+    /**
+     * The search whose postings are to be shown next, or null if none is
+     * running. Only used on the event dispatch thread.
+     */
+    private CompletableFuture<List<JobRecord>> pendingSearch;
+
     /**
      * Constructs a JobPlannerController with the specified model and view.
      * Sets up action listeners for the view components.
@@ -46,8 +75,44 @@ public class JobPlannerController implements ActionListener {
      * @param view      the view component of the MVC architecture
      */
     public JobPlannerController(ISavedJobModel savedJobs, JobPlannerGUI view) {
+        this(savedJobs, view, new SavedJobStore(Paths.get("data/savedjobs.json")));
+    }
+
+    /**
+     * Constructs a JobPlannerController that persists the saved jobs with the
+     * given store.
+     *
+     * @param savedJobs the data model containing saved job records
+     * @param view      the view component of the MVC architecture
+     * @param store     persists the changes to the saved jobs
+     */
+    public JobPlannerController(ISavedJobModel savedJobs, JobPlannerGUI view, SavedJobStore store) {
+        this(savedJobs, view, store, null);
+    }
+
+    /**
+     * Constructs a JobPlannerController that persists the saved jobs with the
+     * given store, filters the postings of a job post model until the first
+     * search, and appends the results of every search to the model's posting
+     * store.
+     *
+     * @param savedJobs    the data model containing saved job records
+     * @param view         the view component of the MVC architecture
+     * @param store        persists the changes to the saved jobs
+     * @param jobPostModel the model the job list was opened on, or null
+     */
+    public JobPlannerController(ISavedJobModel savedJobs, JobPlannerGUI view, SavedJobStore store,
+            JobPostModel jobPostModel) {
         this.view = view;
         this.savedJobsModel = savedJobs;
+        this.savedJobStore = store;
+        this.jobPostModel = jobPostModel;
+        this.postingStore = jobPostModel == null ? null : jobPostModel.getStore();
+        store.setErrorHandler(e -> SwingUtilities.invokeLater(
+                () -> view.showErrorDialog("Error saving jobs: " + e.getMessage())));
+        // the saved jobs may change on any thread, the table only on the event dispatch thread
+        savedJobs.addListener(change -> SwingUtilities.invokeLater(() -> view.getSavedJobsPanel()
+                .getSavedJobTableModel().applyChanges(change.added(), change.removed(), change.updated())));
         view.setListeners(this);
     }
 
@@ -56,6 +121,25 @@ public class JobPlannerController implements ActionListener {
      */
     public void start() {
         SwingUtilities.invokeLater(() -> view.setVisible(true));
+
+        // pick up jobs saved or removed by another window or the command line
+        try {
+            savedJobStore.watch(this::applySavedJobChanges);
+        } catch (IOException e) {
+            System.err.println("Failed to watch the saved jobs file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the changes another process made to the saved jobs. Runs on the
+     * watcher thread; the model tells the table which rows changed.
+     *
+     * @param changes the changes
+     */
+    private void applySavedJobChanges(SavedJobStore.Changes changes) {
+        savedJobsModel.removeAll(changes.removed());
+        savedJobsModel.addAll(changes.added());
+        changes.updated().forEach(savedJobsModel::replaceSavedJob);
     }
 
     /**
@@ -73,6 +157,9 @@ public class JobPlannerController implements ActionListener {
             case "Reset Filter":
                 resetFilters();
                 break;
+            case "Refine Filter":
+                applyLocalFilters();
+                break;
             case "Add to Saved Jobs":
                 addSelectedJobsToList();
                 break;
@@ -107,7 +194,7 @@ public class JobPlannerController implements ActionListener {
             // check if user inputs a valid extension for filename
             if (InputValidator.isValidExtension(filename, format)) {
                 try {
-                    DataFormatter.write(savedJobsModel.getSavedJobs(), format, new FileOutputStream(filename));
+                    DataFormatter.writeFile(savedJobsModel.getSavedJobs(), format, Paths.get(filename));
                 } catch (Exception e) {
                     view.showErrorDialog("Error exporting file: " + e.getMessage());
                 }
@@ -125,34 +212,36 @@ public class JobPlannerController implements ActionListener {
      * @return the job postings
      */
     public List<JobRecord> searchJobPostings(String country, Map<String, String> searchParams) {
-        JobPostUtil client = new JobPostUtil(
-                System.getenv("ADZUNA_APP_ID"),
-                System.getenv("ADZUNA_APP_KEY"));
-
-        InputStream is = client.getJobPostings(country, searchParams);
-
-        List<JobRecord> jobs = new ArrayList<>();
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode jsonMap = mapper.readTree(is);
-            JsonNode results = jsonMap.get("results");
+        return JobPostUtil.getInstance().getJobPostingList(country, searchParams);
+    }
 
-            for (JsonNode result : results) {
-                JobRecord job = mapper.treeToValue(result, JobRecord.class);
-                jobs.add(job);
-            }
-            return jobs;
+    /**
+     * Get a list of job postings from the Adzuna API without blocking the
+     * caller, such as the event dispatch thread.
+     * 
+     * @param country      the country to search in
+     * @param searchParams the search parameters
+     * @return a future completed with the job postings, or with an {@link AdzunaException}
+     */
+    public CompletableFuture<List<JobRecord>> searchJobPostingsAsync(String country,
+            Map<String, String> searchParams) {
+        return JobPostUtil.getInstance().getJobPostingListAsync(country, searchParams);
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                is.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-        return jobs;
+    /**
+     * Runs the same search over several countries and categories at once.
+     * Branches that fail or time out are listed in the result's failures and the
+     * postings of the other branches are still returned.
+     * 
+     * @param countries    the countries to search in
+     * @param categories   the category tags to search in, or empty for any
+     * @param searchParams the search parameters shared by every branch
+     * @return the merged postings, tagged with the branch they came from
+     * @throws IllegalArgumentException if there are more than {@value FanOutSearch#MAX_BRANCHES} branches
+     */
+    public FanOutSearch.Result fanOutSearch(List<String> countries, List<String> categories,
+            Map<String, String> searchParams) {
+        return new FanOutSearch().search(countries, categories, searchParams, 1);
     }
 
     /**
@@ -190,6 +279,7 @@ public class JobPlannerController implements ActionListener {
             searchParams.put("company", company);
         }
 
+        // the API narrows the page down to the salary range, the results are filtered again locally when it changes
         if (minSalary >= 0) {
             // make sure the min salary is a positive number
             searchParams.put("salary_min", String.valueOf(minSalary));
@@ -212,15 +302,110 @@ public class JobPlannerController implements ActionListener {
         // set the number of results per page, default to 50
         searchParams.put("results_per_page", "50");
 
-        List<JobRecord> jobs = searchJobPostings(country, searchParams);
-        updateJobList(jobs);
+        // a newer search supersedes the one still running, whose postings would be out of date
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+        }
+        // the request runs on the scheduler, the table is only touched back on the event dispatch thread
+        CompletableFuture<List<JobRecord>> search = searchJobPostingsAsync(country, searchParams);
+        pendingSearch = search;
+        search.whenComplete((jobs, ex) -> SwingUtilities.invokeLater(() -> {
+            if (pendingSearch != search) {
+                return;
+            }
+            pendingSearch = null;
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                view.showErrorDialog("Search failed: " + cause.getMessage());
+                return;
+            }
+            showSearchResults(jobs);
+        }));
+    }
 
-        // write the list of jobs to a file in JSON format using outputstream
-        try {
-            DataFormatter.write(jobs, Formats.JSON, new FileOutputStream("data/jobpostings.json"));
-        } catch (Exception e) {
-            view.showErrorDialog("Error exporting file: " + e.getMessage());
+    /**
+     * Shows the results of a search and keeps them in the posting store. Runs
+     * on the event dispatch thread.
+     * 
+     * @param jobs the postings found
+     */
+    private void showSearchResults(List<JobRecord> jobs) {
+        // indexed once here, so changing the date or salary filters afterwards only queries the indexes
+        results = JobTable.of(jobs);
+        applyLocalFilters();
+
+        // keep the postings as a new segment of the store, off the event dispatch thread
+        if (postingStore != null) {
+            postingStore.appendAsync(jobs).exceptionally(e -> {
+                SwingUtilities.invokeLater(() -> view.showErrorDialog("Error saving postings: " + e.getMessage()));
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Narrows the listed jobs down with the date and salary filters, without
+     * a new search: the results of the last search, or the latest postings of
+     * the model before the first search. Runs on the event dispatch thread.
+     */
+    private void applyLocalFilters() {
+        Instant since = sinceOf(view.getFilterPanel().getDateFilter());
+        int minSalary = parseInt(view.getFilterPanel().getMinSalary());
+        int maxSalary = parseInt(view.getFilterPanel().getMaxSalary());
+        boolean excludePredicted = view.getFilterPanel().isExcludePredicted();
+        if (results != null) {
+            updateJobList(filterLocally(results, since, minSalary, maxSalary, excludePredicted));
+        } else if (jobPostModel != null) {
+            // at most a few hundred postings, checked one by one
+            double min = minSalary < 0 ? Double.NEGATIVE_INFINITY : minSalary;
+            double max = maxSalary < 0 ? Double.POSITIVE_INFINITY : maxSalary;
+            updateJobList(jobPostModel.getRecentJobs(JobPostModel.RECENT_JOBS, since).stream()
+                    .filter(job -> job.salaryMax() >= min && job.salaryMin() <= max
+                            && !(excludePredicted && JobTable.isPredicted(job.salaryIsPredicted())))
+                    .toList());
+        }
+    }
+
+    /**
+     * Gets the start of the window picked in the date posted filter.
+     * 
+     * @param dateFilter the window: "Today", "Past week", "Past month", or anything else for no limit
+     * @return the earliest posting time, or null for no limit
+     */
+    private static Instant sinceOf(String dateFilter) {
+        if ("Today".equals(dateFilter)) {
+            return LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant();
+        } else if ("Past week".equals(dateFilter)) {
+            return Instant.now().minus(Duration.ofDays(7));
+        } else if ("Past month".equals(dateFilter)) {
+            return Instant.now().minus(Duration.ofDays(30));
         }
+        return null;
+    }
+
+    /**
+     * Keeps the postings that match the date and salary filters, using the
+     * date and salary indexes of their table.
+     * 
+     * @param table            the postings
+     * @param since            the earliest posting time, or null for no limit
+     * @param minSalary        the lowest salary wanted, or -1 for no limit
+     * @param maxSalary        the highest salary wanted, or -1 for no limit
+     * @param excludePredicted whether to leave out postings whose salary is predicted
+     * @return the matching postings, in their order
+     */
+    private static List<JobRecord> filterLocally(JobTable table, Instant since, int minSalary, int maxSalary,
+            boolean excludePredicted) {
+        boolean bySalary = minSalary >= 0 || maxSalary >= 0 || excludePredicted;
+        if (since == null && !bySalary) {
+            return table.asList();
+        }
+        int[] rows = since == null ? table.filter(row -> true) : table.postedBetween(since, null);
+        if (bySalary) {
+            rows = JobTable.intersect(rows, table.salaryBetween(minSalary < 0 ? Double.NEGATIVE_INFINITY : minSalary,
+                    maxSalary < 0 ? Double.POSITIVE_INFINITY : maxSalary, excludePredicted));
+        }
+        return table.asList(rows);
     }
 
     /**
@@ -240,25 +425,40 @@ public class JobPlannerController implements ActionListener {
     }
 
     /**
-     * Adds the selected jobs to the list of saved jobs.
+     * Adds the selected jobs to the list of saved jobs, once the descriptions
+     * kept on disk have been read back.
      */
     private void addSelectedJobsToList() {
-        // Get list of selected jobs from the view
-        List<JobRecord> selectedJobs = view.getJobListPanel().getJobTableModel().getSelectedJobs();
-
-        // Add selected jobs to the saved jobs list
-        for (JobRecord job : selectedJobs) {
-            savedJobsModel.addSavedJob(job);
+        // Get list of selected jobs from the view, skipping jobs already saved
+        List<CompletableFuture<JobRecord>> loading = view.getJobListPanel().getJobTableModel().getSelectedJobs()
+                .stream().filter(job -> !savedJobsModel.contains(job))
+                // the descriptions kept on disk are read back off the event dispatch thread
+                .map(IJobPostModel::withDescriptionAsync).toList();
+        if (loading.isEmpty()) {
+            return;
         }
+        CompletableFuture.allOf(loading.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            List<JobRecord> selectedJobs = loading.stream().map(CompletableFuture::join).toList();
+            SwingUtilities.invokeLater(() -> saveJobs(selectedJobs));
+        });
+    }
 
-        // update view with saved jobs
-        view.getSavedJobsPanel().getSavedJobTableModel().setJobs(savedJobsModel.getSavedJobs());
+    /**
+     * Adds jobs to the saved jobs list and journals the change.
+     *
+     * @param selectedJobs the jobs to save, with their descriptions
+     */
+    private void saveJobs(List<JobRecord> selectedJobs) {
+        // Add selected jobs to the saved jobs list, skipping jobs saved meanwhile
+        if (!savedJobsModel.addAll(selectedJobs)) {
+            return;
+        }
 
         // Update the last saved date
         savedJobsModel.setLastSaved(LocalDate.now());
 
-        // write updated list to persistant storage file
-        writeSavedJobListToFile(savedJobsModel.getSavedJobs());
+        // journal the change, the file is written in the background
+        savedJobStore.added(selectedJobs);
     }
 
     /**
@@ -269,18 +469,15 @@ public class JobPlannerController implements ActionListener {
         List<JobRecord> selectedJobs = view.getSavedJobsPanel().getSavedJobTableModel().getSelectedJobs();
 
         // Remove selected jobs from the saved jobs list
-        for (JobRecord job : selectedJobs) {
-            savedJobsModel.removeSavedJob(job);
+        if (!savedJobsModel.removeAll(selectedJobs)) {
+            return;
         }
 
-        // update view with saved jobs
-        view.getSavedJobsPanel().getSavedJobTableModel().setJobs(savedJobsModel.getSavedJobs());
-
         // Update the last saved date
         savedJobsModel.setLastSaved(LocalDate.now());
 
-        // write updated list to persistant storage file
-        writeSavedJobListToFile(savedJobsModel.getSavedJobs());
+        // journal the change, the file is written in the background
+        savedJobStore.removed(selectedJobs);
     }
 
     /**
@@ -305,18 +502,4 @@ public class JobPlannerController implements ActionListener {
     public void updateJobList(List<JobRecord> jobs) {
         view.getJobListPanel().getJobTableModel().setJobs(jobs);
     }
-
-    /**
-     * Updates the persistant storage of the saved job list.
-     * 
-     * @param jobs the list of saved jobs to
-     */
-    private void writeSavedJobListToFile(List<JobRecord> jobs) {
-        try {
-            DataFormatter.write(savedJobsModel.getSavedJobs(), Formats.JSON,
-                    new FileOutputStream("data/savedjobs.json"));
-        } catch (Exception e) {
-            view.showErrorDialog("Error exporting file: " + e.getMessage());
-        }
-    }
 }
@@ -0,0 +1,26 @@
+package jobplanner.model.api;
+
+/**
+ * Thrown when a request to the Adzuna API can not be completed.
+ */
+public class AdzunaException extends RuntimeException {
+
+    /**
+     * Creates an exception with a message.
+     *
+     * @param message the reason the request failed
+     */
+    public AdzunaException(String message) {
+        super(message);
+    }
+
+    /**
+     * Creates an exception with a message and a cause.
+     *
+     * @param message the reason the request failed
+     * @param cause   the underlying error
+     */
+    public AdzunaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,141 @@
+package jobplanner.model.api;
+
+import java.time.Duration;
+
+/**
+ * Stops sending requests to an upstream that keeps failing.
+ *
+ * The breaker starts closed and lets every request through. After a number of
+ * consecutive failures it opens, and requests fail fast for the open duration.
+ * It then lets a single trial request through: if the trial succeeds the
+ * breaker closes again, otherwise it stays open for another period.
+ */
+public final class CircuitBreaker {
+    /** Default number of consecutive failures that open the breaker. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /** Default time the breaker stays open before a trial request. */
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+    /** The state of a breaker. */
+    public enum State {
+        /** Requests are sent. */
+        CLOSED,
+        /** Requests fail fast. */
+        OPEN,
+        /** A single trial request is allowed. */
+        HALF_OPEN
+    }
+
+    /** Consecutive failures that open the breaker. */
+    private final int failureThreshold;
+    /** Time the breaker stays open, in nanoseconds. */
+    private final long openNanos;
+
+    /** The current state. */
+    private State state = State.CLOSED;
+    /** Consecutive failures seen while closed. */
+    private int failures;
+    /** When the breaker last opened, in nanoseconds. */
+    private long openedAt;
+    /** Whether the trial request of the half-open state is in flight. */
+    private boolean trialInFlight;
+
+    /**
+     * Creates a breaker.
+     *
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param openDuration     time the breaker stays open before a trial request
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Creates a breaker with the default threshold and open duration.
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * Asks whether a request may be sent. Every granted request must be
+     * followed by a call to {@link #onSuccess()}, {@link #onFailure()} or
+     * {@link #onAbandoned()}.
+     *
+     * @return true if the request may be sent
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Records a request that reached a healthy upstream.
+     */
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Records a request that failed because of the upstream.
+     */
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            failures = 0;
+        }
+    }
+
+    /**
+     * Records a request that ended without telling anything about the
+     * upstream, for example because it was cancelled.
+     */
+    public synchronized void onAbandoned() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Gets the current state.
+     *
+     * @return the state
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Gets the time left before the breaker lets a trial request through.
+     *
+     * @return the time left, zero unless the breaker is open
+     */
+    public synchronized Duration getRetryAfter() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openNanos - (System.nanoTime() - openedAt)));
+    }
+}
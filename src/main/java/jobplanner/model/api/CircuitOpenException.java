@@ -0,0 +1,17 @@
+package jobplanner.model.api;
+
+/**
+ * Thrown instead of sending a request while the Adzuna API is considered
+ * unhealthy and the circuit breaker is open.
+ */
+public class CircuitOpenException extends AdzunaException {
+
+    /**
+     * Creates an exception with a message.
+     *
+     * @param message the reason the request was not sent
+     */
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,289 @@
+package jobplanner.model.api;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * Runs the same search over several countries and/or categories at once.
+ *
+ * Every (country, category) pair is a branch with its own timeout. Branches run
+ * concurrently; a branch that fails or times out is reported in the result
+ * instead of failing the whole search, so callers still get the postings from
+ * the branches that did answer. Cancelling the future returned by
+ * {@link #searchAsync} cancels every branch that is still running.
+ *
+ * At most {@value #MAX_BRANCHES} branches are allowed per search, and at most
+ * {@value #MAX_CONCURRENT_BRANCHES} of them run at a time, so a wide search
+ * does not flood the request scheduler. A branch that times out is cancelled,
+ * which takes its request off the scheduler's queue or aborts it, so it stops
+ * using the call quota.
+ */
+public final class FanOutSearch {
+    /** Default time a single branch may take. */
+    public static final Duration DEFAULT_BRANCH_TIMEOUT = Duration.ofSeconds(10);
+    /** Most branches a single search may have. */
+    public static final int MAX_BRANCHES = 32;
+    /** Most branches running at the same time. */
+    public static final int MAX_CONCURRENT_BRANCHES = 4;
+
+    /** The client used for every branch. */
+    private final JobPostUtil client;
+    /** The time a single branch may take. */
+    private final Duration branchTimeout;
+
+    /**
+     * Creates a fan-out search on top of the given client.
+     *
+     * @param client        the client used for every branch
+     * @param branchTimeout the time a single branch may take
+     */
+    public FanOutSearch(JobPostUtil client, Duration branchTimeout) {
+        this.client = client;
+        this.branchTimeout = branchTimeout;
+    }
+
+    /**
+     * Creates a fan-out search on the shared client with the default branch
+     * timeout.
+     */
+    public FanOutSearch() {
+        this(JobPostUtil.getInstance(), DEFAULT_BRANCH_TIMEOUT);
+    }
+
+    /**
+     * Searches every combination of the given countries and categories and waits
+     * for all branches to finish or time out.
+     *
+     * @param countries  the countries to search, defaults to "us" if empty
+     * @param categories the category tags to search, or empty for any category
+     * @param params     the search parameters shared by every branch
+     * @param pages      the number of pages to fetch per branch
+     * @return the merged result
+     * @throws IllegalArgumentException if there are more than {@value #MAX_BRANCHES} branches
+     */
+    public Result search(List<String> countries, List<String> categories, Map<String, String> params, int pages) {
+        return searchAsync(countries, categories, params, pages).join();
+    }
+
+    /**
+     * Searches every combination of the given countries and categories
+     * concurrently.
+     *
+     * @param countries  the countries to search, defaults to "us" if empty
+     * @param categories the category tags to search, or empty for any category
+     * @param params     the search parameters shared by every branch
+     * @param pages      the number of pages to fetch per branch
+     * @return a future completed with the merged result once every branch has
+     *         finished, failed or timed out
+     * @throws IllegalArgumentException if there are more than {@value #MAX_BRANCHES} branches
+     */
+    public CompletableFuture<Result> searchAsync(List<String> countries, List<String> categories,
+            Map<String, String> params, int pages) {
+        List<Origin> origins = origins(countries, categories);
+        if (origins.size() > MAX_BRANCHES) {
+            throw new IllegalArgumentException("A search may have at most " + MAX_BRANCHES
+                    + " country/category branches, not " + origins.size());
+        }
+        Map<Origin, CompletableFuture<List<JobRecord>>> branches = new LinkedHashMap<>();
+        for (Origin origin : origins) {
+            branches.put(origin, new CompletableFuture<>());
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < Math.min(MAX_CONCURRENT_BRANCHES, origins.size()); i++) {
+            startNextBranch(origins, branches, next, params, pages);
+        }
+
+        CompletableFuture<Result> result = CompletableFuture
+                .allOf(branches.values().stream()
+                        .map(branch -> branch.handle((jobs, ex) -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> merge(branches));
+
+        // cancelling the search cancels the branches that are still running
+        result.whenComplete((value, ex) -> {
+            if (result.isCancelled()) {
+                branches.values().forEach(branch -> branch.cancel(true));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Claims the next branch that has not been started yet and starts it. Once
+     * the branch completes, the next free branch is started, which keeps the
+     * number of branches running bounded.
+     *
+     * @param origins  the branches, in order
+     * @param branches the futures to complete, one per branch
+     * @param next     the index of the next branch that has not been started
+     * @param params   the search parameters shared by every branch
+     * @param pages    the number of pages to fetch per branch
+     */
+    private void startNextBranch(List<Origin> origins, Map<Origin, CompletableFuture<List<JobRecord>>> branches,
+            AtomicInteger next, Map<String, String> params, int pages) {
+        int index = next.getAndIncrement();
+        if (index >= origins.size()) {
+            return;
+        }
+        Origin origin = origins.get(index);
+        CompletableFuture<List<JobRecord>> branch = branches.get(origin);
+        if (branch.isDone()) { // the search was cancelled before the branch started
+            startNextBranch(origins, branches, next, params, pages);
+            return;
+        }
+
+        Map<String, String> branchParams = params == null ? new HashMap<>() : new HashMap<>(params);
+        if (origin.category() != null) {
+            branchParams.put("category", origin.category());
+        }
+        CompletableFuture<List<JobRecord>> call = client.getJobPostingListAsync(origin.country(), branchParams, pages);
+        // the timeout fails a copy, the call itself is cancelled so it releases its place and connection
+        call.copy().orTimeout(branchTimeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((jobs, ex) -> {
+            if (ex != null) {
+                call.cancel(true);
+                branch.completeExceptionally(ex);
+            } else {
+                branch.complete(jobs);
+            }
+            startNextBranch(origins, branches, next, params, pages);
+        });
+        branch.whenComplete((jobs, ex) -> {
+            if (branch.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * Builds the list of branches for the given countries and categories.
+     *
+     * @param countries  the countries to search
+     * @param categories the category tags to search
+     * @return one origin per (country, category) pair
+     */
+    private static List<Origin> origins(List<String> countries, List<String> categories) {
+        List<String> countryList = countries == null || countries.isEmpty() ? List.of("us") : countries;
+        List<String> categoryList = new ArrayList<>();
+        if (categories == null || categories.isEmpty()) {
+            categoryList.add(null);
+        } else {
+            categoryList.addAll(categories);
+        }
+
+        List<Origin> origins = new ArrayList<>();
+        for (String country : countryList) {
+            for (String category : categoryList) {
+                Origin origin = new Origin(country.trim().toLowerCase(), category == null ? null : category.trim());
+                if (!origins.contains(origin)) {
+                    origins.add(origin);
+                }
+            }
+        }
+        return origins;
+    }
+
+    /**
+     * Merges the finished branches, in branch order. Postings already returned by
+     * an earlier branch are dropped.
+     *
+     * @param branches the finished branches
+     * @return the merged result
+     */
+    private static Result merge(Map<Origin, CompletableFuture<List<JobRecord>>> branches) {
+        List<TaggedJob> jobs = new ArrayList<>();
+        Map<Origin, Throwable> failures = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+
+        for (Map.Entry<Origin, CompletableFuture<List<JobRecord>>> branch : branches.entrySet()) {
+            try {
+                for (JobRecord job : branch.getValue().join()) {
+                    if (job.id() == null || seen.add(job.id())) {
+                        jobs.add(new TaggedJob(branch.getKey(), job));
+                    }
+                }
+            } catch (CompletionException | CancellationException e) {
+                failures.put(branch.getKey(), e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        return new Result(jobs, failures);
+    }
+
+    /**
+     * The branch a posting came from.
+     *
+     * @param country  the country searched
+     * @param category the category tag searched, or null for any category
+     */
+    public record Origin(String country, String category) {
+        @Override
+        public String toString() {
+            return category == null ? country : country + "/" + category;
+        }
+    }
+
+    /**
+     * A job posting tagged with the branch it came from.
+     *
+     * @param origin the branch the posting came from
+     * @param job    the job posting
+     */
+    public record TaggedJob(Origin origin, JobRecord job) {
+        // Empty
+    }
+
+    /**
+     * The merged result of a fan-out search.
+     *
+     * @param tagged   the postings of every successful branch, tagged with their origin
+     * @param failures the branches that failed or timed out, with their error
+     */
+    public record Result(List<TaggedJob> tagged, Map<Origin, Throwable> failures) {
+        /**
+         * Creates a result, copying the given collections.
+         *
+         * @param tagged   the postings of every successful branch
+         * @param failures the branches that failed or timed out
+         */
+        public Result {
+            tagged = Collections.unmodifiableList(new ArrayList<>(tagged));
+            failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        }
+
+        /**
+         * Gets the postings without their origin.
+         *
+         * @return the list of job postings
+         */
+        public List<JobRecord> getJobs() {
+            List<JobRecord> jobs = new ArrayList<>(tagged.size());
+            for (TaggedJob job : tagged) {
+                jobs.add(job.job());
+            }
+            return jobs;
+        }
+
+        /**
+         * Whether some branches failed, so the postings are only a partial result.
+         *
+         * @return true if at least one branch failed
+         */
+        public boolean isPartial() {
+            return !failures.isEmpty();
+        }
+    }
+}
@@ -1,20 +1,36 @@
 package jobplanner.model.api;
 
+import java.io.FilterInputStream;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 import java.io.IOException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
 
 import java.net.URLEncoder;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import jobplanner.model.api.RequestScheduler.Priority;
 import jobplanner.model.formatters.DataFormatter;
 import jobplanner.model.formatters.Formats;
 import jobplanner.model.models.IJobPostModel.JobRecord;
@@ -26,10 +42,20 @@ import io.github.cdimascio.dotenv.Dotenv;
  * https://api.adzuna.com/v1/api/jobs/.
  * 
  * You can read more about the API at https://developer.adzuna.com/docs/search.
+ * 
+ * All instances share a single {@link HttpClient}, so connections (and their TLS
+ * sessions) are kept alive and reused between searches. Use {@link #getInstance()}
+ * to get the shared, already configured client instead of building a new one per
+ * search.
+ * 
+ * Requests are guarded against a slow or failing API: their timeout adapts to
+ * the latencies observed so far, a request that is slower than usual is hedged
+ * with a second one, and a circuit breaker fails requests fast with a
+ * {@link CircuitOpenException} while the API keeps failing.
  */
 public final class JobPostUtil {
     /** API base url. */
-    private static final String URL = "https://api.adzuna.com/v1/api/jobs/%s/%s/%s";
+    public static final String DEFAULT_BASE_URL = "https://api.adzuna.com/v1/api/jobs/";
     /** API id. */
     private String appId;
     /** API key. */
@@ -39,18 +65,237 @@ public final class JobPostUtil {
     /** Search endpoint. */
     private static final String SEARCH = "search";
     /** Default page number. */
-    private static final String PAGES = "1";
+    private static final int PAGES = 1;
+    /** Maximum number of result pages a single search may fetch. */
+    public static final int MAX_PAGES = 50;
+    /** Maximum number of pages requested at the same time by a multi-page search. */
+    private static final int MAX_CONCURRENT_PAGES = 4;
+    /** Connect timeout for new connections. */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    /** Longest timeout for a single request, used until enough latencies have been observed. */
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+    /** Shortest timeout for a single request. */
+    private static final Duration MIN_REQUEST_TIMEOUT = Duration.ofSeconds(1);
+    /** User agent sent with every request. */
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.3";
+
+    /**
+     * Long-lived HTTP client shared by every JobPostUtil. Keeps a pool of
+     * keep-alive connections and negotiates HTTP/2 when the server supports it.
+     */
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    /** Search result cache shared by every JobPostUtil that does not bring its own. */
+    private static final SearchCache SHARED_CACHE = new SearchCache();
+
+    /** Request scheduler shared by every JobPostUtil that does not bring its own. */
+    private static final RequestScheduler SHARED_SCHEDULER = defaultScheduler();
+
+    /** Latencies of the requests sent to the API, shared by every JobPostUtil. */
+    private static final LatencyTracker LATENCY = new LatencyTracker();
+
+    /** Circuit breaker for the API, shared by every JobPostUtil. */
+    private static final CircuitBreaker BREAKER = new CircuitBreaker();
+
+    /** Whether slow requests are hedged, set with the ADZUNA_HEDGE_REQUESTS variable. */
+    private static final boolean HEDGING = Boolean.parseBoolean(
+            Dotenv.configure().ignoreIfMissing().load().get("ADZUNA_HEDGE_REQUESTS", "true"));
+
+    /** Searches in flight, shared by every JobPostUtil so identical searches are only sent once. */
+    private static final SingleFlight<String, List<JobRecord>> IN_FLIGHT = new SingleFlight<>();
+
+    /** The base url of the API, ending with a slash. */
+    private final String baseUrl;
+    /** The cache in front of the search requests. */
+    private final SearchCache cache;
+    /** Paces every request sent to the API. */
+    private final RequestScheduler scheduler;
+    /** The priority of the requests sent by this instance. */
+    private final Priority priority;
 
     /**
      * Constructor for the JobPostUtil.
      * 
+     * Credentials found in the .env file (or the environment) take precedence
+     * over the given values.
+     * 
      * @param appId  The API id.
      * @param appKey The API key.
      */
     public JobPostUtil(String appId, String appKey) {
-        Dotenv dotenv = Dotenv.load();
-        this.appId = dotenv.get("ADZUNA_APP_ID");
-        this.appKey = dotenv.get("ADZUNA_APP_KEY");
+        this(appId, appKey, SHARED_CACHE);
+    }
+
+    /**
+     * Constructor for the JobPostUtil with its own result cache.
+     * 
+     * @param appId  The API id.
+     * @param appKey The API key.
+     * @param cache  The cache in front of the search requests.
+     */
+    public JobPostUtil(String appId, String appKey, SearchCache cache) {
+        this(appId, appKey, cache, SHARED_SCHEDULER);
+    }
+
+    /**
+     * Constructor for the JobPostUtil with its own result cache and request
+     * scheduler.
+     * 
+     * The base url of the API can be changed with the ADZUNA_BASE_URL variable,
+     * for example to point at a {@link StubAdzunaServer}.
+     * 
+     * @param appId     The API id.
+     * @param appKey    The API key.
+     * @param cache     The cache in front of the search requests.
+     * @param scheduler Paces every request sent to the API.
+     */
+    public JobPostUtil(String appId, String appKey, SearchCache cache, RequestScheduler scheduler) {
+        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+        this.appId = dotenv.get("ADZUNA_APP_ID", appId);
+        this.appKey = dotenv.get("ADZUNA_APP_KEY", appKey);
+        this.baseUrl = withSlash(dotenv.get("ADZUNA_BASE_URL", DEFAULT_BASE_URL));
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.priority = Priority.INTERACTIVE;
+    }
+
+    /**
+     * Copy constructor that changes the request priority and base url.
+     * 
+     * @param other    The client to copy.
+     * @param priority The priority of the requests sent by the copy.
+     * @param baseUrl  The base url of the API used by the copy.
+     */
+    private JobPostUtil(JobPostUtil other, Priority priority, String baseUrl) {
+        this.appId = other.appId;
+        this.appKey = other.appKey;
+        this.baseUrl = baseUrl;
+        this.cache = other.cache;
+        this.scheduler = other.scheduler;
+        this.priority = priority;
+    }
+
+    /**
+     * Returns a client that shares this client's cache and scheduler, but sends
+     * its requests with the given priority. Background and bulk work should use
+     * {@link Priority#BACKGROUND} so it never delays a user's search.
+     * 
+     * @param newPriority The priority of the requests.
+     * @return the client
+     */
+    public JobPostUtil withPriority(Priority newPriority) {
+        return newPriority == priority ? this : new JobPostUtil(this, newPriority, baseUrl);
+    }
+
+    /**
+     * Returns a client that shares this client's cache and scheduler, but sends
+     * its requests to another base url, such as a {@link StubAdzunaServer}.
+     * Results from another base url are cached apart from the real API's.
+     * 
+     * @param newBaseUrl The base url of the API, such as
+     *                   https://api.adzuna.com/v1/api/jobs/.
+     * @return the client
+     */
+    public JobPostUtil withBaseUrl(String newBaseUrl) {
+        return new JobPostUtil(this, priority, withSlash(newBaseUrl));
+    }
+
+    /**
+     * Returns the base url of the API.
+     * 
+     * @return the base url, ending with a slash
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Adds a trailing slash to a url that does not end with one.
+     * 
+     * @param url The url.
+     * @return the url, ending with a slash
+     */
+    private static String withSlash(String url) {
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    /**
+     * Builds the shared scheduler. The quotas can be set with the
+     * ADZUNA_CALLS_PER_MINUTE and ADZUNA_CALLS_PER_DAY variables.
+     * 
+     * @return the scheduler
+     */
+    private static RequestScheduler defaultScheduler() {
+        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+        try {
+            return new RequestScheduler(
+                    Integer.parseInt(dotenv.get("ADZUNA_CALLS_PER_MINUTE",
+                            String.valueOf(RequestScheduler.DEFAULT_PER_MINUTE))),
+                    Integer.parseInt(dotenv.get("ADZUNA_CALLS_PER_DAY",
+                            String.valueOf(RequestScheduler.DEFAULT_PER_DAY))),
+                    RequestScheduler.DEFAULT_MAX_WAIT);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid API call quota, using the defaults");
+            return new RequestScheduler();
+        }
+    }
+
+    /**
+     * Returns the scheduler that paces the requests of this client.
+     * 
+     * @return the request scheduler
+     */
+    public RequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the cache in front of the search requests.
+     * 
+     * @return the search cache
+     */
+    public SearchCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the latencies observed for the requests sent to the API.
+     * 
+     * @return the latency tracker
+     */
+    public LatencyTracker getLatencyTracker() {
+        return LATENCY;
+    }
+
+    /**
+     * Returns the circuit breaker guarding the API.
+     * 
+     * @return the circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return BREAKER;
+    }
+
+    /**
+     * Returns the shared client, configured from the .env file or the
+     * environment. The credentials are only loaded once per process.
+     * 
+     * @return the shared JobPostUtil
+     */
+    public static JobPostUtil getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /** Lazily creates the shared instance on first use. */
+    private static final class Holder {
+        /** The shared instance. */
+        private static final JobPostUtil INSTANCE = new JobPostUtil(
+                System.getenv("ADZUNA_APP_ID"), System.getenv("ADZUNA_APP_KEY"));
     }
 
     /**
@@ -62,8 +307,9 @@ public final class JobPostUtil {
      * 
      * @return The base URL for the API request.
      */
-    private static String getBaseUrl(String country, String endpoint, String pages) {
-        return new StringBuilder(String.format(URL, country, endpoint, pages)).toString();
+    private String getBaseUrl(String country, String endpoint, int pages) {
+        return new StringBuilder(baseUrl).append(country).append('/').append(endpoint).append('/').append(pages)
+                .toString();
     }
 
     /**
@@ -72,24 +318,27 @@ public final class JobPostUtil {
      * @param endpoint The endpoint to search.
      * @param country  The country to search in.
      * @param params   The parameters to search for.
+     * @param page     The page of results to request, starting at 1.
      * 
      * @return The search query.
      */
-    private String buildQueryString(String endpoint, String country, Map<String, String> params) {
-        if (country.isEmpty()) {
+    private String buildQueryString(String endpoint, String country, Map<String, String> params, int page) {
+        if (country == null || country.isEmpty()) {
             country = COUNTRY;
         }
 
-        String baseUrl = getBaseUrl(country, SEARCH, PAGES);
+        String baseUrl = getBaseUrl(country, endpoint, page);
         StringBuilder query = new StringBuilder(baseUrl);
 
         query.append("?app_id=").append(appId);
         query.append("&app_key=").append(appKey);
 
         // Add the parameters to the query string
-        for (String key : params.keySet()) {
-            query.append("&").append(key).append("=")
-                    .append(URLEncoder.encode(params.get(key), StandardCharsets.UTF_8));
+        if (params != null) {
+            for (String key : params.keySet()) {
+                query.append("&").append(key).append("=")
+                        .append(URLEncoder.encode(params.get(key), StandardCharsets.UTF_8));
+            }
         }
 
         return query.toString();
@@ -132,7 +381,7 @@ public final class JobPostUtil {
      * @return The job postings as an InputStream.
      */
     public InputStream getJobPostings(String country, Map<String, String> params) {
-        String query = buildQueryString(SEARCH, country, params);
+        String query = buildQueryString(SEARCH, country, params, PAGES);
         return getUrlContents(query);
     }
 
@@ -142,66 +391,560 @@ public final class JobPostUtil {
      * @param country The country to search in.
      * @param params The parameters to search for.
      * @return The list of job postings.
+     * @throws AdzunaException if the search failed
      */
     public List<JobRecord> getJobPostingList(String country, Map<String, String> params) {
-        InputStream is = getJobPostings(country, params);
-        List<JobRecord> jobs = new ArrayList<>();
+        return join(getJobPostingListAsync(country, params));
+    }
+
+    /**
+     * Get a list of job postings spread over several result pages.
+     * 
+     * @param country The country to search in.
+     * @param params The parameters to search for.
+     * @param pages The number of pages to fetch, starting at page 1.
+     * @return The list of job postings, in page order and without duplicate ids.
+     * @throws AdzunaException if the search failed
+     */
+    public List<JobRecord> getJobPostingList(String country, Map<String, String> params, int pages) {
+        return join(getJobPostingListAsync(country, params, pages));
+    }
+
+    /**
+     * Waits for a future, rethrowing an {@link AdzunaException} as is rather
+     * than wrapped.
+     * 
+     * @param <T>    The type of the result.
+     * @param future The future to wait for.
+     * @return the result
+     */
+    private static <T> T join(CompletableFuture<T> future) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode jsonMap = mapper.readTree(is);
-            JsonNode results = jsonMap.get("results");
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AdzunaException) {
+                throw (AdzunaException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get a list of job postings from the API without blocking the caller.
+     * 
+     * The future completes with an {@link AdzunaException} if the request fails:
+     * a {@link QuotaExceededException} if the request waited too long for the API
+     * call quota, or a {@link CircuitOpenException} while the API keeps failing.
+     * 
+     * @param country The country to search in.
+     * @param params The parameters to search for.
+     * @return a future completed with the list of job postings.
+     */
+    public CompletableFuture<List<JobRecord>> getJobPostingListAsync(String country, Map<String, String> params) {
+        return getJobPostingListAsync(country, params, PAGES);
+    }
+
+    /**
+     * Get a list of job postings spread over several result pages without
+     * blocking the caller.
+     * 
+     * Pages are requested concurrently, at most {@value #MAX_CONCURRENT_PAGES} at
+     * a time, so a multi-page search takes roughly as long as its slowest pages
+     * rather than the sum of all of them. The results are merged in page order
+     * and postings that show up on more than one page are only kept once.
+     * 
+     * Results are served from the search cache when an identical search was
+     * made recently. If an identical search is already in flight, the caller
+     * waits for its result instead of sending another request.
+     * 
+     * @param country The country to search in.
+     * @param params The parameters to search for.
+     * @param pages The number of pages to fetch, starting at page 1.
+     * @return a future completed with the list of job postings.
+     */
+    public CompletableFuture<List<JobRecord>> getJobPostingListAsync(String country, Map<String, String> params,
+            int pages) {
+        String canonical = SearchCache.canonicalKey(country, params, pages);
+        // results from a stand-in server must never be served for the real API
+        String key = DEFAULT_BASE_URL.equals(baseUrl) ? canonical : baseUrl + "|" + canonical;
+        return cache.get(key,
+                () -> IN_FLIGHT.run(key, () -> fetchPagesAsync(country, params, pages, priority)),
+                () -> IN_FLIGHT.run(key, () -> fetchPagesAsync(country, params, pages, Priority.BACKGROUND)));
+    }
+
+    /**
+     * Requests the given number of pages, bypassing the cache.
+     * 
+     * @param country The country to search in.
+     * @param params The parameters to search for.
+     * @param pages The number of pages to fetch, starting at page 1.
+     * @param requestPriority The priority of the requests.
+     * @return a future completed with the list of job postings.
+     */
+    private CompletableFuture<List<JobRecord>> fetchPagesAsync(String country, Map<String, String> params,
+            int pages, Priority requestPriority) {
+        if (pages <= 1) {
+            return getPageAsync(country, params, PAGES, requestPriority);
+        }
+
+        List<CompletableFuture<List<JobRecord>>> results = new ArrayList<>(pages);
+        for (int i = 0; i < pages; i++) {
+            results.add(new CompletableFuture<>());
+        }
+
+        AtomicInteger nextPage = new AtomicInteger(1);
+        for (int i = 0; i < Math.min(MAX_CONCURRENT_PAGES, pages); i++) {
+            fetchNextPage(country, params, nextPage, results, requestPriority);
+        }
+
+        CompletableFuture<List<JobRecord>> merged = CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<List<JobRecord>> byPage = new ArrayList<>(pages);
+                    for (CompletableFuture<List<JobRecord>> page : results) {
+                        byPage.add(page.join());
+                    }
+                    return mergePages(byPage);
+                });
+        // cancelling the search cancels the pages in flight, and the pages not requested yet are skipped
+        merged.whenComplete((jobs, ex) -> {
+            if (merged.isCancelled()) {
+                results.forEach(page -> page.cancel(true));
+            }
+        });
+        return merged;
+    }
+
+    /**
+     * Claims the next page that has not been requested yet and requests it. Once
+     * the page completes, the next free page is requested, which keeps the number
+     * of pages in flight bounded.
+     * 
+     * @param country  The country to search in.
+     * @param params   The parameters to search for.
+     * @param nextPage The next page number that has not been requested.
+     * @param results  The futures to complete, one per page.
+     * @param requestPriority The priority of the requests.
+     */
+    private void fetchNextPage(String country, Map<String, String> params, AtomicInteger nextPage,
+            List<CompletableFuture<List<JobRecord>>> results, Priority requestPriority) {
+        int page = nextPage.getAndIncrement();
+        if (page > results.size()) {
+            return;
+        }
+        if (results.get(page - 1).isCancelled()) {
+            fetchNextPage(country, params, nextPage, results, requestPriority);
+            return;
+        }
+        CompletableFuture<List<JobRecord>> fetched = getPageAsync(country, params, page, requestPriority);
+        cancelling(results.get(page - 1), fetched);
+        fetched.whenComplete((jobs, ex) -> {
+            if (ex != null) {
+                results.get(page - 1).completeExceptionally(ex);
+            } else {
+                results.get(page - 1).complete(jobs);
+            }
+            fetchNextPage(country, params, nextPage, results, requestPriority);
+        });
+    }
+
+    /**
+     * Merges pages of results in order, keeping the first posting seen for each
+     * id.
+     * 
+     * @param pages the results of each page, in page order
+     * @return the merged list of job postings
+     */
+    public static List<JobRecord> mergePages(List<List<JobRecord>> pages) {
+        Set<String> seen = new HashSet<>();
+        List<JobRecord> merged = new ArrayList<>();
+        for (List<JobRecord> page : pages) {
+            for (JobRecord job : page) {
+                if (job.id() == null || seen.add(job.id())) {
+                    merged.add(job);
+                }
+            }
+        }
+        return merged;
+    }
 
-            for (JsonNode result : results) {
-                JobRecord job = mapper.treeToValue(result, JobRecord.class);
-                jobs.add(job);
+    /**
+     * Requests a single page of results.
+     * 
+     * @param country The country to search in.
+     * @param params The parameters to search for.
+     * @param page The page to request, starting at 1.
+     * @param requestPriority The priority of the request.
+     * @return a future completed with the postings on that page.
+     */
+    private CompletableFuture<List<JobRecord>> getPageAsync(String country, Map<String, String> params, int page,
+            Priority requestPriority) {
+        String query = buildQueryString(SEARCH, country, params, page);
+        CompletableFuture<HttpResponse<InputStream>> sent = sendAsync(query, requestPriority);
+        return cancelling(sent.thenApply(response -> {
+            if (response.statusCode() != 200) {
+                closeQuietly(response.body());
+                throw new AdzunaException("Search failed with HTTP status " + response.statusCode());
             }
+            return parseJobPostings(decode(response));
+        }), sent);
+    }
 
+    /**
+     * Cancels a future once a future depending on it is cancelled. Cancelling
+     * a future made with thenApply does not reach the future it was made from,
+     * so without this a cancelled search would still hold its place in the
+     * scheduler and its connection.
+     * 
+     * @param <T>       The type of the dependent result.
+     * @param dependent The future depending on the source.
+     * @param source    The future to cancel with it.
+     * @return the dependent future
+     */
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((value, ex) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Parses a search response into a list of job postings. The stream is
+     * closed once it has been read.
+     * 
+     * A response that breaks off or can not be parsed fails as a whole, so a
+     * partial page is never mistaken for (and cached as) the full result.
+     * 
+     * @param is the search response
+     * @return the list of job postings
+     * @throws AdzunaException if the response can not be read or parsed
+     */
+    public static List<JobRecord> parseJobPostings(InputStream is) {
+        List<JobRecord> jobs = new ArrayList<>();
+        try (JobPostingParser postings = new JobPostingParser(is)) {
+            postings.forEachRemaining(jobs::add);
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new AdzunaException("Failed to read the search response", e);
+        } catch (UncheckedIOException e) {
+            throw new AdzunaException("Failed to read the search response", e.getCause());
         } finally {
-            try {
-                is.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            closeQuietly(is);
         }
         return jobs;
     }
 
+    /**
+     * Streams the postings of a search as they are downloaded, bypassing the
+     * search cache. The future completes as soon as the response starts
+     * arriving; the publisher then emits each posting as soon as it is decoded.
+     * 
+     * @param country The country to search in.
+     * @param params The parameters to search for.
+     * @return a future completed with a single-subscriber publisher of the postings.
+     */
+    public CompletableFuture<Flow.Publisher<JobRecord>> streamJobPostingsAsync(String country,
+            Map<String, String> params) {
+        String query = buildQueryString(SEARCH, country, params, PAGES);
+        CompletableFuture<HttpResponse<InputStream>> sent = sendAsync(query, priority);
+        return cancelling(sent.thenApply(response -> {
+            if (response.statusCode() != 200) {
+                closeQuietly(response.body());
+                throw new AdzunaException("Search failed with HTTP status " + response.statusCode());
+            }
+            return JobPostingParser.publisher(decode(response), ForkJoinPool.commonPool());
+        }), sent);
+    }
+
     /**
      * Gets the contents of a URL as an InputStream.
      * 
      * @param urlStr the URL to get the contents of
-     * @return the contents of the URL as an InputStream, or the null InputStream if
-     *         the connection
-     *         fails
+     * @return the contents of the URL as an InputStream
+     * @throws AdzunaException if the connection fails or the API does not answer
+     *         with HTTP status 200
+     * @throws QuotaExceededException if the request waited too long for the API
+     *         call quota
+     * @throws CircuitOpenException while the API keeps failing
      * 
      *         Sourced from
      *         https://github.com/Su24-CS5004-Online-Lionelle/homework-07-Scarvy/blob/
      *          142c8726043fb851b0970b0955029db71d396662/src/main/java/student/model/net/NetUtils.java#L76
      */
     public InputStream getUrlContents(String urlStr) {
+        HttpResponse<InputStream> response = join(sendAsync(urlStr, priority));
+        if (response.statusCode() != 200) {
+            closeQuietly(response.body());
+            throw new AdzunaException("Request failed with HTTP status " + response.statusCode());
+        }
         try {
-            URL url = new URL(urlStr);
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod("GET");
-            con.setRequestProperty("Content-Type", "application/json");
-            con.setConnectTimeout(5000);
-            con.setReadTimeout(5000);
-            con.setRequestProperty("User-Agent",
-                    "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
-                            + "(KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.3");
-            int status = con.getResponseCode();
-            if (status == 200) {
-                return con.getInputStream();
+            return decode(response);
+        } catch (UncheckedIOException e) {
+            throw new AdzunaException("Failed to read the response", e.getCause());
+        }
+    }
+
+    /**
+     * Sends a request through the scheduler, guarded by the circuit breaker.
+     * 
+     * The timeout of the request adapts to the latencies observed so far. If
+     * hedging is on and the request is still running after the p95 latency, a
+     * second, identical request is sent when the quota allows it right away;
+     * the first response wins and the other one is discarded.
+     * 
+     * Server errors, rate limiting, timeouts and connection failures count as
+     * failures of the API. Once too many happen in a row, requests fail fast
+     * until a trial request succeeds again.
+     * 
+     * Cancelling the returned future cancels every attempt, whether it is
+     * still waiting in the scheduler or already talking to the API.
+     * 
+     * @param urlStr          the URL to request
+     * @param requestPriority the priority of the request
+     * @return a future completed with the response, or with an {@link AdzunaException}
+     */
+    private CompletableFuture<HttpResponse<InputStream>> sendAsync(String urlStr, Priority requestPriority) {
+        if (!BREAKER.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CircuitOpenException(
+                    "The Adzuna API keeps failing, retrying in " + BREAKER.getRetryAfter().toSeconds() + " s"));
+        }
+
+        HttpRequest request = buildRequest(urlStr, LATENCY.timeout(MIN_REQUEST_TIMEOUT, REQUEST_TIMEOUT));
+        CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        attempt(request, requestPriority, result, running);
+
+        Duration hedgeDelay = LATENCY.hedgeDelay();
+        if (HEDGING && hedgeDelay != null) {
+            CompletableFuture.delayedExecutor(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (!result.isDone() && scheduler.canSendNow()) {
+                    running.incrementAndGet();
+                    attempt(request, requestPriority, result, running);
+                }
+            });
+        }
+
+        result.whenComplete((response, ex) -> {
+            if (ex == null) {
+                BREAKER.onSuccess();
+            } else if (ex instanceof QuotaExceededException || ex instanceof CancellationException) {
+                BREAKER.onAbandoned(); // says nothing about the health of the API
             } else {
-                System.err.println("Failed to connect to " + urlStr);
+                BREAKER.onFailure();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Sends one attempt of a request. The first attempt to get a response
+     * completes the result; the result only fails once every attempt failed.
+     * Once the result is complete or cancelled, the attempt is cancelled too,
+     * and a response it still gets is closed.
+     * 
+     * @param request         the request to send
+     * @param requestPriority the priority of the request
+     * @param result          the result shared by every attempt
+     * @param running         the number of attempts that have not failed yet
+     */
+    private void attempt(HttpRequest request, Priority requestPriority,
+            CompletableFuture<HttpResponse<InputStream>> result, AtomicInteger running) {
+        AtomicLong start = new AtomicLong();
+        CompletableFuture<HttpResponse<InputStream>> sent = scheduler.submit(requestPriority, () -> {
+            start.set(System.nanoTime());
+            CompletableFuture<HttpResponse<InputStream>> exchange = HTTP_CLIENT.sendAsync(request, BODY_HANDLER);
+            exchange.thenAccept(response -> result.whenComplete((winner, ex) -> {
+                if (winner != response) {
+                    closeQuietly(response.body()); // lost to another attempt, or nobody wants it any more
+                }
+            }));
+            return exchange;
+        });
+        // frees the place in the scheduler, or aborts the exchange, of an attempt that is no longer needed
+        result.whenComplete((response, ex) -> sent.cancel(true));
+        sent.whenComplete((response, ex) -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (response != null || cause instanceof HttpTimeoutException) {
+                // timeouts are recorded too, so the timeout grows back when the API slows down
+                LATENCY.record(System.nanoTime() - start.get());
             }
 
-        } catch (Exception ex) {
-            System.err.println("Failed to connect to " + urlStr);
+            AdzunaException failure = null;
+            if (response == null) {
+                failure = cause instanceof AdzunaException ? (AdzunaException) cause
+                        : new AdzunaException("Failed to connect to the Adzuna API", cause);
+            } else if (response.statusCode() >= 500 || response.statusCode() == 429) {
+                closeQuietly(response.body());
+                failure = new AdzunaException("The Adzuna API answered with HTTP status " + response.statusCode());
+            } else if (!result.complete(response)) {
+                closeQuietly(response.body()); // another attempt already won
+            }
+
+            if (failure != null && running.decrementAndGet() == 0) {
+                result.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * Streams the body of a response, failing the read if the body stalls. The
+     * timeout of a request only covers the wait for the headers, so the body
+     * is given the same time again between any two reads that get data; a
+     * large body that keeps arriving is never cut off.
+     */
+    private static final HttpResponse.BodyHandler<InputStream> BODY_HANDLER = info -> HttpResponse.BodySubscribers
+            .mapping(HttpResponse.BodySubscribers.ofInputStream(), IdleTimeoutInputStream::new);
+
+    /**
+     * A response body that is closed once no data has arrived for its timeout,
+     * which unblocks a read waiting on a stalled connection. Every read that
+     * returns starts the timeout again. Reads after the timeout fail with an
+     * {@link HttpTimeoutException}.
+     */
+    private static final class IdleTimeoutInputStream extends FilterInputStream {
+        /** The time the body may go without data, in milliseconds. */
+        private final long timeoutMillis;
+        /** When a read last returned, in nanoseconds. */
+        private volatile long lastRead;
+        /** Whether the body has been read to its end or closed. */
+        private volatile boolean done;
+        /** Whether the timeout has passed. */
+        private volatile boolean expired;
+
+        /**
+         * Wraps a body and starts its timeout.
+         * 
+         * @param body the body as it arrives
+         */
+        IdleTimeoutInputStream(InputStream body) {
+            super(body);
+            this.timeoutMillis = LATENCY.timeout(MIN_REQUEST_TIMEOUT, REQUEST_TIMEOUT).toMillis();
+            this.lastRead = System.nanoTime();
+            watch(timeoutMillis);
+        }
+
+        /**
+         * Checks the body after a delay: closes it if it has gone without data
+         * for its timeout, otherwise checks again when it would next time out.
+         * 
+         * @param delayMillis the delay, in milliseconds
+         */
+        private void watch(long delayMillis) {
+            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+                if (done) {
+                    return;
+                }
+                long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastRead);
+                if (idleMillis < timeoutMillis) {
+                    watch(timeoutMillis - idleMillis);
+                    return;
+                }
+                expired = true;
+                closeQuietly(in);
+            });
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return checked(super.read());
+            } catch (IOException e) {
+                throw expired ? timedOut() : e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return checked(super.read(b, off, len));
+            } catch (IOException e) {
+                throw expired ? timedOut() : e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            done = true;
+            super.close();
+        }
+
+        /**
+         * Fails a read that ended because the timeout closed the body, and
+         * starts the timeout again after any other read.
+         * 
+         * @param read the result of the read
+         * @return the result of the read
+         * @throws HttpTimeoutException if the timeout has passed
+         */
+        private int checked(int read) throws HttpTimeoutException {
+            if (expired) {
+                throw timedOut();
+            }
+            if (read < 0) {
+                done = true;
+            }
+            lastRead = System.nanoTime();
+            return read;
+        }
+
+        /**
+         * Creates the error of a read after the timeout.
+         * 
+         * @return the error
+         */
+        private HttpTimeoutException timedOut() {
+            return new HttpTimeoutException("No response body data received for " + timeoutMillis + " ms");
+        }
+    }
+
+    /**
+     * Builds a GET request that asks for a gzip compressed response.
+     * 
+     * @param urlStr  the URL to request
+     * @param timeout the timeout of the request
+     * @return the request
+     */
+    private static HttpRequest buildRequest(String urlStr, Duration timeout) {
+        return HttpRequest.newBuilder(URI.create(urlStr))
+                .GET()
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .header("User-Agent", USER_AGENT)
+                .build();
+    }
+
+    /**
+     * Returns the body of the response, unwrapping gzip content encoding.
+     * 
+     * @param response the response to read
+     * @return the decoded body
+     * @throws java.io.UncheckedIOException if the gzip header can not be read
+     */
+    private static InputStream decode(HttpResponse<InputStream> response) {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        if (!encoding.equalsIgnoreCase("gzip")) {
+            return response.body();
+        }
+        try {
+            return new GZIPInputStream(response.body());
+        } catch (IOException e) {
+            closeQuietly(response.body());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes a stream, ignoring any errors.
+     * 
+     * @param is the stream to close
+     */
+    private static void closeQuietly(InputStream is) {
+        try {
+            is.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return InputStream.nullInputStream();
     }
 
     /**
@@ -220,33 +963,10 @@ public final class JobPostUtil {
         params.put("sort_by", "date");
         params.put("results_per_page", "50");
 
-        String appId = System.getenv("ADZUNA_APP_ID");
-        String appKey = System.getenv("ADZUNA_APP_KEY");
-
-        JobPostUtil client = new JobPostUtil(appId, appKey);
-        InputStream is = client.getJobPostings(params);
+        JobPostUtil client = JobPostUtil.getInstance();
 
         // deserialize the JSON response to a list of JobRecord objects
-        List<JobRecord> jobs = new ArrayList<>();
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode jsonMap = mapper.readTree(is);
-            JsonNode results = jsonMap.get("results");
-
-            for (JsonNode result : results) {
-                JobRecord job = mapper.treeToValue(result, JobRecord.class);
-                jobs.add(job);
-            }
-
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                is.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+        List<JobRecord> jobs = client.getJobPostingList(COUNTRY, params);
 
         // write the list of jobs to a file in JSON format using outputstream
         DataFormatter.write(jobs, Formats.JSON, System.out);
@@ -0,0 +1,239 @@
+package jobplanner.model.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * Reads the postings of a search response one at a time.
+ *
+ * The parser walks the tokens of the response up to the {@code results} array
+ * and then decodes one posting per call to {@link #next()}, so only the current
+ * posting is held in memory and callers can use the first posting before the
+ * rest of the response has been downloaded.
+ */
+public final class JobPostingParser implements Iterator<JobRecord>, Closeable {
+    /** The token stream of the response. */
+    private final JsonParser parser;
+    /** The next posting, or null if it has not been read yet. */
+    private JobRecord next;
+    /** Whether the end of the results array has been reached. */
+    private boolean done;
+
+    /**
+     * Creates a parser over a search response and moves it to the first posting.
+     *
+     * @param is the search response, closed when the parser is closed
+     * @throws IOException if the response can not be read
+     */
+    public JobPostingParser(InputStream is) throws IOException {
+        this.parser = JobCodec.getInstance().createParser(is);
+        this.done = !moveToResults();
+        if (done) {
+            parser.close();
+        }
+    }
+
+    /**
+     * Moves the parser to the start of the results array, skipping any other
+     * fields.
+     *
+     * @return true if a results array was found
+     * @throws IOException if the response can not be read
+     */
+    private boolean moveToResults() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("results".equals(field) && value == JsonToken.START_ARRAY) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                next = JobCodec.getInstance().readRecord(parser);
+                return true;
+            }
+            if (token == null || token == JsonToken.END_ARRAY) {
+                close();
+                return false;
+            }
+            // not a posting, skip it
+            parser.skipChildren();
+            return hasNext();
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public JobRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        JobRecord job = next;
+        next = null;
+        return job;
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        try {
+            parser.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Creates a publisher that emits the postings of a search response as they
+     * are decoded. Postings are only decoded when the subscriber asks for them.
+     * The publisher accepts a single subscriber.
+     *
+     * @param is       the search response
+     * @param executor runs the decoding
+     * @return the publisher
+     */
+    public static Flow.Publisher<JobRecord> publisher(InputStream is, Executor executor) {
+        AtomicBoolean subscribed = new AtomicBoolean();
+        return subscriber -> {
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                        // Empty
+                    }
+
+                    @Override
+                    public void cancel() {
+                        // Empty
+                    }
+                });
+                subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+                return;
+            }
+            new ParserSubscription(is, subscriber, executor).start();
+        };
+    }
+
+    /**
+     * Emits postings to a subscriber as long as it has outstanding demand.
+     */
+    private static final class ParserSubscription implements Flow.Subscription {
+        /** The search response. */
+        private final InputStream input;
+        /** The subscriber to emit to. */
+        private final Flow.Subscriber<? super JobRecord> subscriber;
+        /** Runs the decoding. */
+        private final Executor executor;
+        /** Postings requested but not emitted yet. */
+        private final AtomicLong demand = new AtomicLong();
+        /** Number of pending drain requests; only one drain runs at a time. */
+        private final AtomicInteger pending = new AtomicInteger();
+        /** Whether the subscription was cancelled or terminated. */
+        private volatile boolean finished;
+        /** The parser, created on the first drain. */
+        private JobPostingParser postings;
+
+        /**
+         * Creates a subscription.
+         *
+         * @param input      the search response
+         * @param subscriber the subscriber to emit to
+         * @param executor   runs the decoding
+         */
+        ParserSubscription(InputStream input, Flow.Subscriber<? super JobRecord> subscriber, Executor executor) {
+            this.input = input;
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+
+        /**
+         * Hands the subscription to the subscriber.
+         */
+        void start() {
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            finished = true;
+            try {
+                input.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Emits postings while there is demand, then waits for more demand.
+         */
+        private void drain() {
+            int missed = 1;
+            do {
+                try {
+                    if (postings == null && !finished) {
+                        postings = new JobPostingParser(input);
+                    }
+                    while (!finished && demand.get() > 0 && postings.hasNext()) {
+                        demand.decrementAndGet();
+                        subscriber.onNext(postings.next());
+                    }
+                    if (!finished && !postings.hasNext()) {
+                        finished = true;
+                        subscriber.onComplete();
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    finished = true;
+                    subscriber.onError(e);
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package jobplanner.model.api;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the most recent requests and derives timeouts and
+ * hedging delays from their percentiles.
+ *
+ * Until enough requests have been observed the tracker has no opinion: the
+ * timeout falls back to its ceiling and hedging is disabled.
+ */
+public final class LatencyTracker {
+    /** Default number of latencies kept. */
+    public static final int DEFAULT_WINDOW = 256;
+    /** Number of latencies needed before percentiles are used. */
+    public static final int MIN_SAMPLES = 20;
+    /** The timeout is this many times the p99 latency. */
+    private static final int TIMEOUT_FACTOR = 3;
+
+    /** The most recent latencies in nanoseconds, used as a ring buffer. */
+    private final long[] samples;
+    /** Number of latencies recorded so far. */
+    private long count;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param window the number of latencies kept
+     */
+    public LatencyTracker(int window) {
+        if (window < MIN_SAMPLES) {
+            throw new IllegalArgumentException("Window must hold at least " + MIN_SAMPLES + " samples");
+        }
+        this.samples = new long[window];
+    }
+
+    /**
+     * Creates a tracker with the default window.
+     */
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * Records the latency of a request.
+     *
+     * @param nanos the latency, in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        samples[(int) (count % samples.length)] = nanos;
+        count++;
+    }
+
+    /**
+     * Gets a percentile of the recorded latencies.
+     *
+     * @param percentile the percentile, between 0 and 1
+     * @return the latency, or null if too few requests were observed
+     */
+    public Duration percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count < MIN_SAMPLES) {
+                return null;
+            }
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    /**
+     * Gets the timeout for the next request: three times the p99 latency,
+     * kept between the given bounds.
+     *
+     * @param min the shortest timeout
+     * @param max the longest timeout, used until enough requests were observed
+     * @return the timeout
+     */
+    public Duration timeout(Duration min, Duration max) {
+        Duration p99 = percentile(0.99);
+        if (p99 == null) {
+            return max;
+        }
+        Duration timeout = p99.multipliedBy(TIMEOUT_FACTOR);
+        if (timeout.compareTo(min) < 0) {
+            return min;
+        }
+        return timeout.compareTo(max) > 0 ? max : timeout;
+    }
+
+    /**
+     * Gets the time after which a second, hedged request should be sent: the
+     * p95 latency.
+     *
+     * @return the delay, or null if too few requests were observed
+     */
+    public Duration hedgeDelay() {
+        return percentile(0.95);
+    }
+
+    /**
+     * Gets the number of latencies recorded so far.
+     *
+     * @return the number of requests observed
+     */
+    public synchronized long count() {
+        return count;
+    }
+}
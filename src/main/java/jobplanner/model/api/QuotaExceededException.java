@@ -0,0 +1,16 @@
+package jobplanner.model.api;
+
+/**
+ * Thrown when a request waited longer than allowed for the API call quota.
+ */
+public class QuotaExceededException extends AdzunaException {
+
+    /**
+     * Creates an exception with a message.
+     *
+     * @param message the reason the request was not sent
+     */
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,315 @@
+package jobplanner.model.api;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Paces the requests sent to the Adzuna API so they stay within the app's call
+ * quota.
+ *
+ * Every request is queued and released by a token bucket. The bucket holds a
+ * fifth of the per-minute quota as burst and refills with the rest over the
+ * minute, so even a full burst followed by a steady stream stays within the
+ * quota; the calls of the last minute and of the day are also counted and
+ * never exceed their quotas.
+ *
+ * Interactive requests (a user waiting on the GUI or the command line) are
+ * released before background and bulk requests. A request that can not be sent
+ * within the maximum wait fails with a {@link QuotaExceededException}.
+ *
+ * The accounting is per process; tools sharing one key from separate processes
+ * should be given a share of the quota each.
+ */
+public final class RequestScheduler {
+    /** Default number of calls allowed per minute. */
+    public static final int DEFAULT_PER_MINUTE = 25;
+    /** Default number of calls allowed per day. */
+    public static final int DEFAULT_PER_DAY = 250;
+    /** Default time a request may wait for the quota. */
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(30);
+
+    /** Length of the per-minute accounting window. */
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /** The priority of a request. */
+    public enum Priority {
+        /** A user is waiting on the result. */
+        INTERACTIVE,
+        /** Refreshes, prefetches and bulk work. */
+        BACKGROUND
+    }
+
+    /** Calls allowed per minute. */
+    private final int perMinute;
+    /** Calls allowed per day. */
+    private final int perDay;
+    /** Time a request may wait for the quota, in nanoseconds. */
+    private final long maxWaitNanos;
+    /** Tokens the bucket holds when full. */
+    private final int burst;
+    /** Tokens added to the bucket per nanosecond. */
+    private final double refillPerNano;
+
+    /** Requests waiting for a token, highest priority first, then oldest first. */
+    private final PriorityQueue<Task<?>> queue = new PriorityQueue<>(
+            Comparator.<Task<?>, Priority>comparing(Task::priority).thenComparingLong(Task::sequence));
+    /** Times of the calls sent in the last minute, oldest first. */
+    private final Deque<Long> lastMinute = new ArrayDeque<>();
+    /** Wakes the scheduler up when tokens become available and expires requests. */
+    private final ScheduledExecutorService timer;
+
+    /** Tokens currently in the bucket. */
+    private double tokens;
+    /** Time of the last refill, in nanoseconds. */
+    private long lastRefill;
+    /** The day the daily count belongs to. */
+    private LocalDate day = LocalDate.now();
+    /** Calls sent today. */
+    private int today;
+    /** Sequence number of the next request. */
+    private long sequence;
+    /** Whether a wake up is already scheduled. */
+    private boolean wakeUpScheduled;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param perMinute calls allowed per minute
+     * @param perDay    calls allowed per day
+     * @param maxWait   time a request may wait for the quota
+     */
+    public RequestScheduler(int perMinute, int perDay, Duration maxWait) {
+        if (perMinute <= 0 || perDay <= 0) {
+            throw new IllegalArgumentException("Quotas must be positive");
+        }
+        this.perMinute = perMinute;
+        this.perDay = perDay;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.burst = Math.max(1, perMinute / 5);
+        this.refillPerNano = (double) Math.max(1, perMinute - burst) / MINUTE_NANOS;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "adzuna-request-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a scheduler with the default quotas and wait.
+     */
+    public RequestScheduler() {
+        this(DEFAULT_PER_MINUTE, DEFAULT_PER_DAY, DEFAULT_MAX_WAIT);
+    }
+
+    /**
+     * Queues a request. The request is started once the quota allows it.
+     *
+     * @param <T>      the type of the response
+     * @param priority the priority of the request
+     * @param request  starts the request and returns its response
+     * @return a future completed with the response, or with a
+     *         {@link QuotaExceededException} if the request waited too long;
+     *         cancelling it takes a queued request off the queue and cancels a
+     *         started one
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<CompletableFuture<T>> request) {
+        Task<T> task;
+        synchronized (this) {
+            task = new Task<>(priority, sequence++, request, new CompletableFuture<>());
+            queue.add(task);
+        }
+        task.result().whenComplete((value, ex) -> {
+            if (task.result().isCancelled()) {
+                synchronized (this) {
+                    queue.remove(task); // a cancelled request no longer holds its place or counts as queued
+                }
+            }
+        });
+        timer.schedule(() -> expire(task), maxWaitNanos, TimeUnit.NANOSECONDS);
+        dispatch();
+        return task.result();
+    }
+
+    /**
+     * Starts as many queued requests as the quota allows, and schedules a wake up
+     * for when the next one can go.
+     */
+    private void dispatch() {
+        List<Task<?>> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            long waitNanos = 0;
+            while (!queue.isEmpty()) {
+                if (queue.peek().result().isDone()) {
+                    queue.poll(); // expired or cancelled while waiting
+                    continue;
+                }
+                waitNanos = nanosUntilAllowed(now);
+                if (waitNanos > 0) {
+                    break;
+                }
+                tokens -= 1;
+                today++;
+                lastMinute.addLast(now);
+                ready.add(queue.poll());
+            }
+            if (!queue.isEmpty() && !wakeUpScheduled) {
+                wakeUpScheduled = true;
+                timer.schedule(() -> {
+                    synchronized (this) {
+                        wakeUpScheduled = false;
+                    }
+                    dispatch();
+                }, waitNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        for (Task<?> task : ready) {
+            task.start();
+        }
+    }
+
+    /**
+     * Refills the bucket and drops calls older than a minute from the window.
+     *
+     * @param now the current time, in nanoseconds
+     */
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+        while (!lastMinute.isEmpty() && now - lastMinute.peekFirst() >= MINUTE_NANOS) {
+            lastMinute.pollFirst();
+        }
+        LocalDate date = LocalDate.now();
+        if (!date.equals(day)) {
+            day = date;
+            today = 0;
+        }
+    }
+
+    /**
+     * Gets the time until the next call is allowed.
+     *
+     * @param now the current time, in nanoseconds
+     * @return 0 if a call is allowed now, otherwise the time to wait in nanoseconds
+     */
+    private long nanosUntilAllowed(long now) {
+        if (today >= perDay) {
+            // the daily quota is spent; waiting requests expire unless the day ends first
+            return maxWaitNanos;
+        }
+        long wait = 0;
+        if (tokens < 1) {
+            wait = (long) Math.ceil((1 - tokens) / refillPerNano);
+        }
+        if (lastMinute.size() >= perMinute) {
+            wait = Math.max(wait, MINUTE_NANOS - (now - lastMinute.peekFirst()));
+        }
+        return wait;
+    }
+
+    /**
+     * Fails a request that is still queued once its wait is over.
+     *
+     * @param task the request
+     */
+    private void expire(Task<?> task) {
+        boolean removed;
+        synchronized (this) {
+            removed = queue.remove(task);
+        }
+        if (removed) {
+            task.result().completeExceptionally(new QuotaExceededException(
+                    "Request waited more than " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos)
+                            + " ms for the API call quota"));
+        }
+    }
+
+    /**
+     * Whether a request submitted now would be sent right away, without
+     * waiting behind other requests or for the quota.
+     *
+     * @return true if the scheduler is idle and has quota to spare
+     */
+    public synchronized boolean canSendNow() {
+        long now = System.nanoTime();
+        refill(now);
+        return queue.isEmpty() && nanosUntilAllowed(now) == 0;
+    }
+
+    /**
+     * Gets the current usage of the quota.
+     *
+     * @return a snapshot of the usage
+     */
+    public synchronized Usage getUsage() {
+        refill(System.nanoTime());
+        return new Usage(lastMinute.size(), perMinute, today, perDay, queue.size());
+    }
+
+    /**
+     * A snapshot of the quota usage.
+     *
+     * @param lastMinute calls sent in the last minute
+     * @param perMinute  calls allowed per minute
+     * @param today      calls sent today
+     * @param perDay     calls allowed per day
+     * @param queued     requests waiting for the quota
+     */
+    public record Usage(int lastMinute, int perMinute, int today, int perDay, int queued) {
+        // Empty
+    }
+
+    /**
+     * A queued request.
+     *
+     * @param <T>      the type of the response
+     * @param priority the priority of the request
+     * @param sequence the order the request was queued in
+     * @param request  starts the request
+     * @param result   completed with the response
+     */
+    private record Task<T>(Priority priority, long sequence, Supplier<CompletableFuture<T>> request,
+            CompletableFuture<T> result) {
+
+        /**
+         * Starts the request and forwards its outcome to the result. Cancelling
+         * the result cancels the request.
+         */
+        void start() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                CompletableFuture<T> started = request.get();
+                result.whenComplete((value, ex) -> {
+                    if (result.isCancelled()) {
+                        started.cancel(true);
+                    }
+                });
+                started.whenComplete((value, ex) -> {
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
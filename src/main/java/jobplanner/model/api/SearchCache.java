@@ -0,0 +1,370 @@
+package jobplanner.model.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * A two-tier cache of search results.
+ *
+ * The first tier is a bounded, in-memory LRU map of parsed results. The second
+ * tier is a directory of JSON files (by default under {@code data/cache}) so the
+ * GUI and the command line share results between runs and processes.
+ *
+ * Entries younger than the fresh TTL are returned as is. Entries older than the
+ * fresh TTL but younger than the stale TTL are still returned right away, while
+ * a refresh runs in the background. Older entries are treated as a miss.
+ */
+public final class SearchCache {
+    /** Default cache directory. */
+    public static final String DIRECTORY = "data/cache";
+    /** Default number of results kept in memory. */
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    /** Default time a result is served without a refresh. */
+    public static final Duration DEFAULT_FRESH_TTL = Duration.ofMinutes(15);
+    /** Default time a result may be served at all. */
+    public static final Duration DEFAULT_STALE_TTL = Duration.ofHours(24);
+
+    /** Mapper for the on-disk tier. */
+    private static final ObjectMapper MAPPER = JobCodec.getInstance().getMapper();
+
+    /** The on-disk tier, or null to only cache in memory. */
+    private final Path directory;
+    /** Time a result is served without a refresh, in milliseconds. */
+    private final long freshMillis;
+    /** Time a result may be served at all, in milliseconds. */
+    private final long staleMillis;
+    /** The in-memory tier, in access order. */
+    private final Map<String, Entry> memory;
+    /** Keys with a background refresh in flight. */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    /** Results served from memory. */
+    private final AtomicLong memoryHits = new AtomicLong();
+    /** Results served from disk. */
+    private final AtomicLong diskHits = new AtomicLong();
+    /** Stale results served while refreshing. */
+    private final AtomicLong staleHits = new AtomicLong();
+    /** Results that had to be fetched. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory  the directory of the on-disk tier, or null for memory only
+     * @param maxEntries the number of results kept in memory
+     * @param freshTtl   the time a result is served without a refresh
+     * @param staleTtl   the time a result may be served at all
+     */
+    public SearchCache(Path directory, int maxEntries, Duration freshTtl, Duration staleTtl) {
+        this.directory = directory;
+        this.freshMillis = freshTtl.toMillis();
+        this.staleMillis = Math.max(staleTtl.toMillis(), freshMillis);
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache in the default directory with the default sizes and TTLs.
+     */
+    public SearchCache() {
+        this(Paths.get(DIRECTORY), DEFAULT_MAX_ENTRIES, DEFAULT_FRESH_TTL, DEFAULT_STALE_TTL);
+    }
+
+    /**
+     * Builds the canonical key of a search: the lowercased country followed by
+     * the search parameters sorted by name, with names and values trimmed,
+     * lowercased and their inner whitespace collapsed.
+     *
+     * @param country the country to search in
+     * @param params  the search parameters, may be null
+     * @param pages   the number of pages requested
+     * @return the canonical key
+     */
+    public static String canonicalKey(String country, Map<String, String> params, int pages) {
+        StringBuilder key = new StringBuilder(normalize(country == null || country.isEmpty() ? "us" : country));
+        key.append("|pages=").append(Math.max(pages, 1));
+
+        Map<String, String> sorted = new TreeMap<>();
+        if (params != null) {
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                if (param.getValue() != null) {
+                    sorted.put(normalize(param.getKey()), normalize(param.getValue()));
+                }
+            }
+        }
+        for (Map.Entry<String, String> param : sorted.entrySet()) {
+            key.append('&').append(param.getKey()).append('=').append(param.getValue());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Trims, lowercases and collapses the whitespace of a key part.
+     *
+     * @param value the value to normalize
+     * @return the normalized value
+     */
+    private static String normalize(String value) {
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the result for a key, loading it on a miss. A stale result is
+     * returned right away and refreshed in the background.
+     *
+     * Empty results are not cached, so a search that found nothing is sent
+     * again on the next lookup.
+     *
+     * @param key    the canonical key of the search
+     * @param loader fetches the result when it is missing or stale
+     * @return a future completed with the result
+     */
+    public CompletableFuture<List<JobRecord>> get(String key, Supplier<CompletableFuture<List<JobRecord>>> loader) {
+        return get(key, loader, loader);
+    }
+
+    /**
+     * Gets the result for a key, loading it on a miss. A stale result is
+     * returned right away and refreshed in the background with the refresher.
+     *
+     * @param key       the canonical key of the search
+     * @param loader    fetches the result when it is missing
+     * @param refresher fetches the result when it is stale
+     * @return a future completed with the result
+     */
+    public CompletableFuture<List<JobRecord>> get(String key, Supplier<CompletableFuture<List<JobRecord>>> loader,
+            Supplier<CompletableFuture<List<JobRecord>>> refresher) {
+        long now = System.currentTimeMillis();
+        Entry entry = lookupMemory(key);
+        if (entry != null && entry.age(now) <= staleMillis) {
+            memoryHits.incrementAndGet();
+        } else {
+            entry = lookupDisk(key);
+            if (entry != null && entry.age(now) <= staleMillis) {
+                diskHits.incrementAndGet();
+                putMemory(key, entry);
+            } else {
+                misses.incrementAndGet();
+                return load(key, loader);
+            }
+        }
+
+        if (entry.age(now) >= freshMillis) {
+            staleHits.incrementAndGet();
+            if (refreshing.add(key)) {
+                load(key, refresher).whenComplete((jobs, ex) -> refreshing.remove(key));
+            }
+        }
+        return CompletableFuture.completedFuture(entry.jobs());
+    }
+
+    /**
+     * Loads a result and stores it in both tiers.
+     *
+     * @param key    the canonical key of the search
+     * @param loader fetches the result
+     * @return a future completed with the result; cancelling it cancels the load
+     */
+    private CompletableFuture<List<JobRecord>> load(String key, Supplier<CompletableFuture<List<JobRecord>>> loader) {
+        CompletableFuture<List<JobRecord>> loading = loader.get();
+        CompletableFuture<List<JobRecord>> loaded = loading.thenApply(jobs -> {
+            List<JobRecord> result = List.copyOf(jobs);
+            if (!result.isEmpty()) {
+                Entry entry = new Entry(result, System.currentTimeMillis());
+                putMemory(key, entry);
+                writeDisk(key, entry);
+            }
+            return result;
+        });
+        loaded.whenComplete((jobs, ex) -> {
+            if (loaded.isCancelled()) {
+                loading.cancel(true);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Looks up a key in memory.
+     *
+     * @param key the canonical key
+     * @return the entry, or null if missing
+     */
+    private synchronized Entry lookupMemory(String key) {
+        return memory.get(key);
+    }
+
+    /**
+     * Stores an entry in memory, evicting the least recently used entry if full.
+     *
+     * @param key   the canonical key
+     * @param entry the entry to store
+     */
+    private synchronized void putMemory(String key, Entry entry) {
+        memory.put(key, entry);
+    }
+
+    /**
+     * Looks up a key on disk.
+     *
+     * @param key the canonical key
+     * @return the entry, or null if missing or unreadable
+     */
+    private Entry lookupDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = fileFor(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream is = Files.newInputStream(file)) {
+            DiskEntry stored = MAPPER.readValue(is, DiskEntry.class);
+            if (!key.equals(stored.key()) || stored.jobs() == null) {
+                return null;
+            }
+            return new Entry(List.copyOf(stored.jobs()), stored.fetchedAt());
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable cache file " + file);
+            return null;
+        }
+    }
+
+    /**
+     * Writes an entry to disk. The file is written next to its final location
+     * and then moved into place, so other processes never read a partial file.
+     *
+     * @param key   the canonical key
+     * @param entry the entry to write
+     */
+    private void writeDisk(String key, Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, "search", ".tmp");
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                MAPPER.writeValue(os, new DiskEntry(key, entry.fetchedAt(), entry.jobs()));
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write cache file " + file);
+        }
+    }
+
+    /**
+     * Gets the cache file of a key.
+     *
+     * @param key the canonical key
+     * @return the path of the cache file
+     */
+    private Path fileFor(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Removes every entry from memory. Files on disk are kept.
+     */
+    public synchronized void clearMemory() {
+        memory.clear();
+    }
+
+    /**
+     * Gets the hit and miss counters.
+     *
+     * @return a snapshot of the counters
+     */
+    public Stats getStats() {
+        return new Stats(memoryHits.get(), diskHits.get(), staleHits.get(), misses.get());
+    }
+
+    /**
+     * A snapshot of the cache counters.
+     *
+     * @param memoryHits results served from memory
+     * @param diskHits   results served from disk
+     * @param staleHits  results served stale while a refresh ran, counted in the hits too
+     * @param misses     results that had to be fetched
+     */
+    public record Stats(long memoryHits, long diskHits, long staleHits, long misses) {
+        /**
+         * Gets the share of lookups served from either tier.
+         *
+         * @return the hit ratio, between 0 and 1
+         */
+        public double hitRatio() {
+            long total = memoryHits + diskHits + misses;
+            return total == 0 ? 0 : (double) (memoryHits + diskHits) / total;
+        }
+    }
+
+    /**
+     * A cached result.
+     *
+     * @param jobs      the postings
+     * @param fetchedAt when the postings were fetched, in epoch milliseconds
+     */
+    private record Entry(List<JobRecord> jobs, long fetchedAt) {
+        /**
+         * Gets the age of the entry.
+         *
+         * @param now the current time, in epoch milliseconds
+         * @return the age, in milliseconds
+         */
+        long age(long now) {
+            return now - fetchedAt;
+        }
+    }
+
+    /**
+     * The layout of a cache file.
+     *
+     * @param key       the canonical key, to detect hash collisions
+     * @param fetchedAt when the postings were fetched, in epoch milliseconds
+     * @param jobs      the postings
+     */
+    private record DiskEntry(
+        @JsonProperty("key") String key,
+        @JsonProperty("fetched_at") long fetchedAt,
+        @JsonProperty("jobs") List<JobRecord> jobs
+    ) {
+        // Empty
+    }
+}
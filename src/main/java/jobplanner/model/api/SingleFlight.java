@@ -0,0 +1,134 @@
+package jobplanner.model.api;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical calls that are in flight at the same time.
+ *
+ * The first caller for a key starts the call; every caller that arrives with the
+ * same key before it completes shares its result instead of starting another
+ * call. Once the call completes the key is released, so later callers start a
+ * new one.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the results
+ */
+public final class SingleFlight<K, V> {
+    /** The calls in flight, by key. */
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    /** Calls that joined a call already in flight. */
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Gets the result of the call for a key, joining the call in flight if there
+     * is one.
+     *
+     * Every caller gets its own copy of the shared future, so one caller
+     * cancelling its copy does not affect the others. Once every caller has
+     * cancelled, the call itself is cancelled.
+     *
+     * @param key  the key of the call
+     * @param call starts the call
+     * @return a future completed with the result of the call
+     */
+    public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> call) {
+        Flight<V> mine = new Flight<>();
+        // the waiters only change under the map's lock for the key, so a leaving waiter never races a joining one
+        Flight<V> flight = inFlight.compute(key, (k, existing) -> {
+            Flight<V> joined = existing != null ? existing : mine;
+            joined.waiters++;
+            return joined;
+        });
+        CompletableFuture<V> copy = flight.result.copy();
+        copy.whenComplete((value, ex) -> {
+            if (copy.isCancelled()) {
+                leave(key, flight);
+            }
+        });
+        if (flight != mine) {
+            shared.incrementAndGet();
+            return copy;
+        }
+
+        mine.result.whenComplete((value, ex) -> inFlight.remove(key, mine));
+        try {
+            CompletableFuture<V> started = call.get();
+            mine.call = started;
+            if (mine.result.isCancelled()) {
+                started.cancel(true); // every caller left while the call was being started
+            }
+            started.whenComplete((value, ex) -> {
+                if (ex != null) {
+                    mine.result.completeExceptionally(ex);
+                } else {
+                    mine.result.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+        }
+        return copy;
+    }
+
+    /**
+     * Removes a caller that cancelled, and cancels the call if it was the last
+     * one waiting for it.
+     *
+     * @param key    the key of the call
+     * @param flight the call
+     */
+    private void leave(K key, Flight<V> flight) {
+        boolean[] last = new boolean[1];
+        inFlight.computeIfPresent(key, (k, current) -> {
+            if (current != flight || --current.waiters > 0) {
+                return current;
+            }
+            last[0] = true;
+            return null;
+        });
+        if (last[0]) {
+            flight.result.cancel(true);
+            CompletableFuture<V> started = flight.call;
+            if (started != null) {
+                started.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of calls currently in flight.
+     *
+     * @return the number of distinct keys in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets the number of calls that joined a call already in flight instead of
+     * starting their own.
+     *
+     * @return the number of coalesced calls
+     */
+    public long sharedCount() {
+        return shared.get();
+    }
+
+    /**
+     * A call in flight.
+     *
+     * @param <V> the type of the result
+     */
+    private static final class Flight<V> {
+        /** Completed with the result of the call, copied for every caller. */
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        /** The callers still waiting for the result, changed under the map's lock. */
+        private int waiters;
+        /** The call once started, or null before. */
+        private volatile CompletableFuture<V> call;
+    }
+}
@@ -0,0 +1,441 @@
+package jobplanner.model.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * A local stand-in for the Adzuna search API, to test and benchmark the search
+ * path without network access or API quota.
+ *
+ * The server answers {@code /v1/api/jobs/{country}/search/{page}}. A request is
+ * answered, in order, from a recorded response if one exists, from the real API
+ * (recording the response) if an upstream is set, and otherwise with a
+ * synthetic page built from the postings of the example response in
+ * {@value #TEMPLATE}. Synthetic postings get an id unique to their country and
+ * position, so paging and fan-out behave like the real API.
+ *
+ * Latency, error rate and payload size can be changed while the server runs.
+ * Point a client at it with {@link JobPostUtil#withBaseUrl(String)} and
+ * {@link #getBaseUrl()}.
+ */
+public final class StubAdzunaServer implements Closeable {
+    /** The example response the synthetic postings are built from. */
+    public static final String TEMPLATE = "DesignDocuments/adzuna-job-search-json-example.json";
+    /** The path the search API is served under. */
+    public static final String PATH = "/v1/api/jobs/";
+    /** Largest page the real API serves. */
+    private static final int MAX_RESULTS_PER_PAGE = 50;
+    /** Parameters left out of the recording key, so recordings do not depend on credentials. */
+    private static final List<String> CREDENTIALS = List.of("app_id", "app_key");
+
+    /** The HTTP server. */
+    private final HttpServer server;
+    /** Handles the requests, so slow responses do not hold up the others. */
+    private final ExecutorService executor;
+    /** The postings synthetic pages are built from. */
+    private final List<JobRecord> templates;
+    /** The directory of recorded responses, or null to never replay or record. */
+    private final Path recordings;
+    /** The base URL of the real API to record from, or null to never forward. */
+    private final String upstream;
+    /** Client used to forward requests to the real API. */
+    private final HttpClient upstreamClient = HttpClient.newHttpClient();
+    /** Source of the injected latencies and errors, seeded for reproducible runs. */
+    private final Random random;
+    /** Requests served so far. */
+    private final AtomicLong requests = new AtomicLong();
+
+    /** Shortest injected latency. */
+    private volatile Duration minLatency = Duration.ZERO;
+    /** Longest injected latency, outside of the tail. */
+    private volatile Duration maxLatency = Duration.ZERO;
+    /** Share of requests that get the tail latency instead. */
+    private volatile double tailRate;
+    /** Latency of the requests in the tail. */
+    private volatile Duration tailLatency = Duration.ZERO;
+    /** Share of requests answered with a server error. */
+    private volatile double errorRate;
+    /** Postings per page when the request does not ask for a number. */
+    private volatile int resultsPerPage = 10;
+    /** Number of postings a synthetic search finds in total. */
+    private volatile int totalResults = 1000;
+    /** Length synthetic descriptions are padded to, or 0 to keep the template's. */
+    private volatile int descriptionLength;
+
+    /**
+     * Creates a server. The server does not answer until it is started.
+     *
+     * @param port       the port to listen on, or 0 for any free port
+     * @param recordings the directory of recorded responses, or null
+     * @param upstream   the base URL of the real API to record from, or null
+     * @param seed       the seed of the injected latencies and errors
+     * @throws IOException if the port can not be bound or the template can not be read
+     */
+    public StubAdzunaServer(int port, Path recordings, String upstream, long seed) throws IOException {
+        try (InputStream is = Files.newInputStream(Paths.get(TEMPLATE))) {
+            this.templates = JobPostUtil.parseJobPostings(is);
+        }
+        if (templates.isEmpty()) {
+            throw new IOException("No postings found in " + TEMPLATE);
+        }
+        this.recordings = recordings;
+        this.upstream = upstream == null || upstream.endsWith("/") ? upstream : upstream + "/";
+        this.random = new Random(seed);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "stub-adzuna-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+    }
+
+    /**
+     * Creates a server that only serves synthetic pages.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port can not be bound or the template can not be read
+     */
+    public StubAdzunaServer(int port) throws IOException {
+        this(port, null, null, 0);
+    }
+
+    /**
+     * Starts answering requests.
+     *
+     * @return this server
+     */
+    public StubAdzunaServer start() {
+        server.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the base URL to point a client at.
+     *
+     * @return the base URL, ending with a slash
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    /**
+     * Gets the number of requests served so far.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Sets the latency of every response, picked uniformly between the bounds.
+     *
+     * @param min the shortest latency
+     * @param max the longest latency
+     */
+    public void setLatency(Duration min, Duration max) {
+        this.minLatency = min;
+        this.maxLatency = max.compareTo(min) < 0 ? min : max;
+    }
+
+    /**
+     * Sets a latency tail: a share of the responses that are much slower than
+     * the others.
+     *
+     * @param rate    the share of slow responses, between 0 and 1
+     * @param latency the latency of the slow responses
+     */
+    public void setTail(double rate, Duration latency) {
+        this.tailRate = rate;
+        this.tailLatency = latency;
+    }
+
+    /**
+     * Sets the share of requests answered with a 503 error.
+     *
+     * @param rate the error rate, between 0 and 1
+     */
+    public void setErrorRate(double rate) {
+        this.errorRate = rate;
+    }
+
+    /**
+     * Sets the number of postings per page when the request does not ask for
+     * one with {@code results_per_page}.
+     *
+     * @param count the number of postings per page
+     */
+    public void setResultsPerPage(int count) {
+        this.resultsPerPage = count;
+    }
+
+    /**
+     * Sets the number of postings a synthetic search finds in total; pages past
+     * the last posting are empty.
+     *
+     * @param count the number of postings
+     */
+    public void setTotalResults(int count) {
+        this.totalResults = count;
+    }
+
+    /**
+     * Pads the description of synthetic postings to the given length, to
+     * simulate larger payloads.
+     *
+     * @param length the length of the descriptions, or 0 to keep the template's
+     */
+    public void setDescriptionLength(int length) {
+        this.descriptionLength = length;
+    }
+
+    /**
+     * Answers a request.
+     *
+     * @param exchange the request and response
+     * @throws IOException if the response can not be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            // {country}/search/{page}
+            String[] path = exchange.getRequestURI().getPath().substring(PATH.length()).split("/");
+            if (path.length != 3 || !"search".equals(path[1]) || !path[2].matches("\\d+")) {
+                send(exchange, 404, "{\"exception\":\"NOT_FOUND\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            String country = path[0];
+            int page = Integer.parseInt(path[2]);
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            delay();
+            if (random.nextDouble() < errorRate) {
+                send(exchange, 503, "{\"exception\":\"SERVICE_UNAVAILABLE\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            Path recording = recordingFor(country, page, params);
+            if (recording != null && Files.exists(recording)) {
+                send(exchange, 200, Files.readAllBytes(recording));
+            } else if (upstream != null) {
+                forward(exchange, country, page, recording);
+            } else {
+                send(exchange, 200, syntheticPage(country, page, params));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the injected latency.
+     *
+     * @throws InterruptedException if the server is stopped while waiting
+     */
+    private void delay() throws InterruptedException {
+        long millis;
+        if (tailRate > 0 && random.nextDouble() < tailRate) {
+            millis = tailLatency.toMillis();
+        } else {
+            long min = minLatency.toMillis();
+            long spread = maxLatency.toMillis() - min;
+            millis = min + (spread > 0 ? (long) (random.nextDouble() * spread) : 0);
+        }
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    /**
+     * Sends a JSON response.
+     *
+     * @param exchange the request and response
+     * @param status   the HTTP status
+     * @param body     the JSON body
+     * @throws IOException if the response can not be sent
+     */
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * Forwards a request to the real API and records a successful response.
+     *
+     * @param exchange  the request and response
+     * @param country   the country searched
+     * @param page      the page requested
+     * @param recording the file to record to, or null
+     * @throws IOException          if the response can not be sent
+     * @throws InterruptedException if the server is stopped while waiting
+     */
+    private void forward(HttpExchange exchange, String country, int page, Path recording)
+            throws IOException, InterruptedException {
+        String query = exchange.getRequestURI().getRawQuery();
+        URI uri = URI.create(upstream + country + "/search/" + page + (query == null ? "" : "?" + query));
+        HttpResponse<byte[]> response;
+        try {
+            response = upstreamClient.send(HttpRequest.newBuilder(uri).GET()
+                    .header("Accept", "application/json").build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            send(exchange, 502, "{\"exception\":\"BAD_GATEWAY\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (response.statusCode() == 200 && recording != null) {
+            Files.createDirectories(recording.getParent());
+            Path tmp = Files.createTempFile(recording.getParent(), "recording", ".tmp");
+            Files.write(tmp, response.body());
+            Files.move(tmp, recording, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        send(exchange, response.statusCode(), response.body());
+    }
+
+    /**
+     * Builds a synthetic page of postings.
+     *
+     * @param country the country searched
+     * @param page    the page requested, starting at 1
+     * @param params  the search parameters
+     * @return the JSON response
+     * @throws IOException if the response can not be written
+     */
+    private byte[] syntheticPage(String country, int page, Map<String, String> params) throws IOException {
+        int perPage = resultsPerPage;
+        if (params.containsKey("results_per_page")) {
+            try {
+                perPage = Integer.parseInt(params.get("results_per_page"));
+            } catch (NumberFormatException e) {
+                // keep the default, as the real API does
+            }
+        }
+        perPage = Math.max(1, Math.min(perPage, MAX_RESULTS_PER_PAGE));
+        int total = totalResults;
+        String category = params.get("category");
+
+        List<JobRecord> results = new ArrayList<>(perPage);
+        for (int i = (page - 1) * perPage; i < Math.min(page * perPage, total); i++) {
+            results.add(syntheticPosting(country, category, i));
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("count", total);
+        body.put("results", results);
+        return JobCodec.getInstance().getMapper().writeValueAsBytes(body);
+    }
+
+    /**
+     * Builds the synthetic posting at a position of the results.
+     *
+     * @param country  the country searched
+     * @param category the category tag searched, or null
+     * @param index    the position of the posting in the results
+     * @return the posting
+     */
+    private JobRecord syntheticPosting(String country, String category, int index) {
+        JobRecord template = templates.get(index % templates.size());
+        String description = template.description();
+        if (descriptionLength > 0) {
+            StringBuilder padded = new StringBuilder(descriptionLength);
+            while (padded.length() < descriptionLength) {
+                padded.append(description).append(' ');
+            }
+            description = padded.substring(0, descriptionLength);
+        }
+        Category jobCategory = category == null ? template.category() : Category.of(category, category);
+        return new JobRecord(template.title(), description, template.company(), template.location(),
+                template.salaryMin(), template.salaryMax(), template.contractTime(), template.created(),
+                template.redirectUrl(), template.adref(), jobCategory, template.latitude(), template.longitude(),
+                country + "-" + (category == null ? "" : category + "-") + index, template.salaryIsPredicted());
+    }
+
+    /**
+     * Gets the recording of a request.
+     *
+     * @param country the country searched
+     * @param page    the page requested
+     * @param params  the search parameters
+     * @return the recording file, or null if the server does not record
+     */
+    private Path recordingFor(String country, int page, Map<String, String> params) {
+        if (recordings == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(country).append('/').append(page);
+        new TreeMap<>(params).forEach((name, value) -> {
+            if (!CREDENTIALS.contains(name)) {
+                key.append('&').append(name).append('=').append(value);
+            }
+        });
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return recordings.resolve(country + "-" + page + "-" + HexFormat.of().formatHex(hash, 0, 8) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Parses a query string.
+     *
+     * @param query the raw query string, may be null
+     * @return the decoded parameters
+     */
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
@@ -1,17 +1,19 @@
 package jobplanner.model.formatters;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 import java.text.NumberFormat;
 import java.util.Collection;
 import javax.annotation.Nonnull;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 
+import jobplanner.model.models.IJobPostModel;
 import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.store.AtomicFiles;
 
 /**
  * A class to format the data in different ways.
@@ -51,7 +53,7 @@ public final class DataFormatter {
         String state = record.location().area().size() > 1 ? record.location().area().get(1) : "";
 
         out.println("Title: " + record.title());
-        out.println("   Description: " + record.description());
+        out.println("   Description: " + IJobPostModel.descriptionOf(record));
         out.println("   Company: " + record.company().displayName());
         out.println("   Location: " + city + ", " + state);
         out.println("   Salary Range: " + convertSalary(record.salaryMin()) + " - " + convertSalary(record.salaryMax()));
@@ -67,14 +69,27 @@ public final class DataFormatter {
      */
     private static void writeJsonData(Collection<JobRecord> records, OutputStream out) {
         try {
-            ObjectMapper jsonMapper = new ObjectMapper();
-            jsonMapper.enable(SerializationFeature.INDENT_OUTPUT);
-            jsonMapper.writeValue(out, records);
+            JobCodec.getInstance().writeList(records, out, true);
         } catch (Exception e) {
             throw new RuntimeException("Failed to write JSON data", e);
         }
     }
 
+    /**
+     * Write the data in a binary encoding of JSON.
+     * 
+     * @param records the records to write
+     * @param format  the binary format, Smile or CBOR
+     * @param out     the output stream to write to
+     */
+    private static void writeBinaryData(Collection<JobRecord> records, Formats format, OutputStream out) {
+        try {
+            JobCodec.getInstance(format).writeList(records, out, false);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to write " + format + " data", e);
+        }
+    }
+
     /**
      * Write the data as CSV using a custom CSV schema builder.
      * 
@@ -136,11 +151,30 @@ public final class DataFormatter {
             case CSV:
                 writeCSVData(records, out);
                 break;
+            case SMILE:
+            case CBOR:
+                writeBinaryData(records, format, out);
+                break;
             default:
                 throw new IllegalArgumentException("Unsupported format: " + format);
         }
     }
 
+    /**
+     * Write the data in the specified format to a file. The file is replaced
+     * only once all the data is written, so a failed or interrupted export
+     * leaves the previous file intact instead of a truncated one.
+     * 
+     * @param records the records to write
+     * @param format  the format to write the records in
+     * @param file    the file to write to
+     * @throws IOException if the file can not be written
+     */
+    public static void writeFile(@Nonnull Collection<JobRecord> records, @Nonnull Formats format,
+            @Nonnull Path file) throws IOException {
+        AtomicFiles.write(file, out -> write(records, format, out));
+    }
+
     /**
      * Converts a salary value to a formatted string.
      * If the salary is less than or equal to 0, returns "N/A".
@@ -1,8 +1,73 @@
 package jobplanner.model.formatters;
 
+import java.util.List;
+import java.util.Locale;
+
 /** A list of format types allowed for export and import. */
 public enum Formats {
     /** Different formatting options. */
-    JSON, CSV, PRETTY;
+    JSON("json"), CSV("csv"), PRETTY("txt"),
+    /** Binary JSON, Jackson's Smile format; much faster to parse than text JSON. */
+    SMILE("smile", "sml"),
+    /** Binary JSON, the CBOR format of RFC 8949. */
+    CBOR("cbor");
+
+    /** The file extensions of the format, the preferred one first. */
+    private final List<String> extensions;
+
+    /**
+     * Creates a format.
+     *
+     * @param extensions the file extensions of the format, the preferred one first
+     */
+    Formats(String... extensions) {
+        this.extensions = List.of(extensions);
+    }
+
+    /**
+     * Gets the file extensions of the format.
+     *
+     * @return the extensions, without the dot, the preferred one first
+     */
+    public List<String> getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Whether the format is a binary encoding of JSON.
+     *
+     * @return true for Smile and CBOR
+     */
+    public boolean isBinary() {
+        return this == SMILE || this == CBOR;
+    }
+
+    /**
+     * Gets the format of a file from its extension.
+     *
+     * @param filename the name of the file
+     * @return the format, or null if the extension is not one of a format
+     */
+    public static Formats fromFilename(String filename) {
+        int dotIndex = filename.lastIndexOf('.');
+        String extension = dotIndex == -1 ? "" : filename.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+        for (Formats format : values()) {
+            if (format.extensions.contains(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
 
+    /**
+     * Gets the format postings are stored in by a file: Smile or CBOR for their
+     * extensions, JSON otherwise.
+     *
+     * @param filename the name of the file
+     * @return the format
+     */
+    public static Formats storageFormatOf(String filename) {
+        Formats format = fromFilename(filename);
+        return format != null && format.isBinary() ? format : JSON;
+    }
 }
@@ -0,0 +1,260 @@
+package jobplanner.model.formatters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import jobplanner.model.models.IJobPostModel;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * Reads and writes job postings as JSON.
+ *
+ * Building an ObjectMapper and introspecting {@link JobRecord} is far more
+ * expensive than reading a few hundred postings, so the codec builds its mapper
+ * once and keeps thread-safe readers and writers bound to {@link JobRecord} and
+ * to lists of them. The shared codec is warmed up when it is created, so the
+ * first search or load does not pay for the introspection either.
+ *
+ * The engine can be picked with the JOBPLANNER_JSON_ENGINE variable.
+ *
+ * Codecs for the binary Smile and CBOR encodings of the same JSON are available
+ * through {@link #getInstance(Formats)}; they skip the text tokenizing and
+ * number parsing that dominate reading text JSON.
+ */
+public final class JobCodec {
+    /** The engine used to bind JSON to records. */
+    public enum Engine {
+        /** Plain Jackson databind, using reflection. */
+        DATABIND,
+        /** Jackson databind with the Blackbird module, which replaces reflection with generated lambdas. */
+        BLACKBIRD
+    }
+
+    /** The codec shared by the whole application. */
+    private static final JobCodec SHARED = new JobCodec(defaultEngine());
+
+    /** Holds the binary codecs, so they are only created when first used. */
+    private static final class Binary {
+        /** The Smile codec. */
+        static final JobCodec SMILE = new JobCodec(SHARED.engine, new SmileFactory());
+        /** The CBOR codec. */
+        static final JobCodec CBOR = new JobCodec(SHARED.engine, new CBORFactory());
+    }
+
+    /** The engine in use. */
+    private final Engine engine;
+    /** The configured mapper, for types the codec has no reader or writer for. */
+    private final ObjectMapper mapper;
+    /** Reads a single posting. */
+    private final ObjectReader recordReader;
+    /** Reads a list of postings. */
+    private final ObjectReader listReader;
+    /** Writes a single posting. */
+    private final ObjectWriter recordWriter;
+    /** Writes a collection of postings. */
+    private final ObjectWriter listWriter;
+    /** Writes an indented collection of postings. */
+    private final ObjectWriter prettyListWriter;
+
+    /**
+     * Creates and warms up a codec.
+     *
+     * @param engine the engine used to bind JSON to records
+     */
+    public JobCodec(Engine engine) {
+        this(engine, new JsonFactory());
+    }
+
+    /**
+     * Creates and warms up a codec for an encoding of JSON.
+     *
+     * @param engine  the engine used to bind JSON to records
+     * @param factory the factory of the encoding
+     */
+    private JobCodec(Engine engine, JsonFactory factory) {
+        this.engine = engine;
+        this.mapper = new ObjectMapper(factory);
+        if (engine == Engine.BLACKBIRD) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+        JavaType list = mapper.getTypeFactory().constructCollectionType(List.class, JobRecord.class);
+        JavaType collection = mapper.getTypeFactory().constructCollectionType(Collection.class, JobRecord.class);
+        this.recordReader = mapper.readerFor(JobRecord.class);
+        this.listReader = mapper.readerFor(list);
+        this.recordWriter = mapper.writerFor(JobRecord.class);
+        this.listWriter = mapper.writerFor(collection);
+        // binary encodings have no indentation
+        this.prettyListWriter = factory.canHandleBinaryNatively() ? listWriter
+                : listWriter.with(SerializationFeature.INDENT_OUTPUT);
+        warmUp();
+    }
+
+    /**
+     * Gets the codec shared by the whole application.
+     *
+     * @return the shared codec
+     */
+    public static JobCodec getInstance() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the shared codec of a storage format.
+     *
+     * @param format the format, Smile or CBOR for a binary codec
+     * @return the codec of the format, or the JSON codec for the text formats
+     */
+    public static JobCodec getInstance(Formats format) {
+        switch (format) {
+            case SMILE:
+                return Binary.SMILE;
+            case CBOR:
+                return Binary.CBOR;
+            default:
+                return SHARED;
+        }
+    }
+
+    /**
+     * Picks the engine from the JOBPLANNER_JSON_ENGINE variable, defaulting to
+     * plain databind.
+     *
+     * @return the engine
+     */
+    private static Engine defaultEngine() {
+        String name = Dotenv.configure().ignoreIfMissing().load()
+                .get("JOBPLANNER_JSON_ENGINE", Engine.DATABIND.name());
+        try {
+            return Engine.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown JSON engine " + name + ", using " + Engine.DATABIND);
+            return Engine.DATABIND;
+        }
+    }
+
+    /**
+     * Resolves the serializers and deserializers of the postings by writing and
+     * reading back a sample posting.
+     */
+    private void warmUp() {
+        JobRecord sample = new JobRecord("title", "description", new IJobPostModel.Company("company"),
+                new IJobPostModel.Location("location", List.of("US")), 1, 2, "full_time",
+                "2024-01-01T00:00:00Z", "https://www.adzuna.com", "adref",
+                new IJobPostModel.Category("it-jobs", "IT Jobs"), 3, 4, "1", "0");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeList(List.of(sample), out, true);
+            listReader.readValue(out.toByteArray());
+            recordReader.readValue(mapper.writeValueAsBytes(sample));
+        } catch (IOException | RuntimeException e) {
+            // warming up is only an optimization, the codec still works without it
+            System.err.println("Failed to warm up the JSON codec: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the engine in use.
+     *
+     * @return the engine
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the configured mapper, for reading and writing types other than
+     * postings.
+     *
+     * @return the mapper, which must not be reconfigured
+     */
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * Reads a JSON array of postings.
+     *
+     * @param in the JSON to read
+     * @return the postings
+     * @throws IOException if the JSON can not be read
+     */
+    public List<JobRecord> readList(InputStream in) throws IOException {
+        return listReader.readValue(in);
+    }
+
+    /**
+     * Reads the posting the parser is positioned on.
+     *
+     * @param parser a parser positioned on the start of a posting
+     * @return the posting
+     * @throws IOException if the JSON can not be read
+     */
+    public JobRecord readRecord(JsonParser parser) throws IOException {
+        return recordReader.readValue(parser);
+    }
+
+    /**
+     * Reads a single posting.
+     *
+     * @param data   the buffer holding the JSON
+     * @param offset the offset of the posting in the buffer
+     * @param length the length of the posting
+     * @return the posting
+     * @throws IOException if the JSON can not be read
+     */
+    public JobRecord readRecord(byte[] data, int offset, int length) throws IOException {
+        return recordReader.readValue(data, offset, length);
+    }
+
+    /**
+     * Writes a single posting; with the JSON codec, as compact JSON on one line.
+     *
+     * @param record the posting
+     * @return the JSON
+     * @throws IOException if the posting can not be written
+     */
+    public byte[] writeRecord(JobRecord record) throws IOException {
+        return recordWriter.writeValueAsBytes(record);
+    }
+
+    /**
+     * Creates a streaming parser over JSON input, sharing the codec's
+     * configuration.
+     *
+     * @param in the JSON to read
+     * @return the parser
+     * @throws IOException if the input can not be read
+     */
+    public JsonParser createParser(InputStream in) throws IOException {
+        return mapper.getFactory().createParser(in);
+    }
+
+    /**
+     * Writes postings as a JSON array.
+     *
+     * @param records the postings to write
+     * @param out     the output stream to write to
+     * @param pretty  whether to indent the output
+     * @throws IOException if the output can not be written
+     */
+    public void writeList(Collection<JobRecord> records, OutputStream out, boolean pretty) throws IOException {
+        (pretty ? prettyListWriter : listWriter).writeValue(out, records);
+    }
+}
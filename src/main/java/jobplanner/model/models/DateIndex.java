@@ -0,0 +1,166 @@
+package jobplanner.model.models;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * An index of postings by the day they were posted, over the creation time
+ * column of a {@link JobTable} or a posting store snapshot.
+ *
+ * The rows are kept grouped in one bucket per UTC day, the buckets in order,
+ * so the postings of a date window are a contiguous run of buckets found with
+ * two binary searches. Only the first and last buckets of the run are checked
+ * posting by posting. Postings without a readable posting time are not
+ * indexed.
+ */
+public final class DateIndex {
+    /** Creation time of a posting without a parsable one; such postings are not indexed. */
+    public static final long NO_CREATED = Long.MIN_VALUE;
+    /** Number of seconds in a bucket. */
+    public static final long SECONDS_PER_DAY = 86_400;
+
+    /** The days of the buckets, in epoch days, in order. */
+    private final long[] days;
+    /** Where the rows of each bucket start in {@link #rows}, plus the end of the last one. */
+    private final int[] starts;
+    /** The rows, by day and then by row. */
+    private final int[] rows;
+    /** The posting times of the rows, in epoch seconds, in the order of {@link #rows}. */
+    private final long[] created;
+
+    /**
+     * Creates an index. Use {@link #of(int, IntToLongFunction)}.
+     *
+     * @param days    the days of the buckets
+     * @param starts  where the rows of each bucket start
+     * @param rows    the rows, by day
+     * @param created the posting times of the rows
+     */
+    private DateIndex(long[] days, int[] starts, int[] rows, long[] created) {
+        this.days = days;
+        this.starts = starts;
+        this.rows = rows;
+        this.created = created;
+    }
+
+    /**
+     * Indexes the postings of a table by the day they were posted.
+     *
+     * @param table the table
+     * @return the index
+     */
+    public static DateIndex of(JobTable table) {
+        return of(table.size(), table::created);
+    }
+
+    /**
+     * Indexes postings by the day they were posted.
+     *
+     * @param size      the number of postings
+     * @param createdOf gives the creation time of a row, in epoch seconds, or {@link #NO_CREATED}
+     * @return the index
+     */
+    public static DateIndex of(int size, IntToLongFunction createdOf) {
+        // day and row packed in one long, so one primitive sort groups the rows by day
+        long[] keys = new long[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            long created = createdOf.applyAsLong(row);
+            if (created != NO_CREATED) {
+                keys[count++] = Math.floorDiv(created, SECONDS_PER_DAY) << 32 | row;
+            }
+        }
+        keys = Arrays.copyOf(keys, count);
+        Arrays.sort(keys);
+
+        long[] days = new long[count];
+        int[] starts = new int[count + 1];
+        int[] rows = new int[count];
+        long[] created = new long[count];
+        int buckets = 0;
+        for (int i = 0; i < count; i++) {
+            long day = keys[i] >> 32;
+            rows[i] = (int) keys[i];
+            created[i] = createdOf.applyAsLong(rows[i]);
+            if (buckets == 0 || days[buckets - 1] != day) {
+                days[buckets] = day;
+                starts[buckets++] = i;
+            }
+        }
+        starts[buckets] = count;
+        return new DateIndex(Arrays.copyOf(days, buckets), Arrays.copyOf(starts, buckets + 1), rows, created);
+    }
+
+    /**
+     * Parses the creation time of a posting.
+     *
+     * @param created the creation time, as written by the API, or null
+     * @return the epoch seconds, or {@link #NO_CREATED} if it can not be parsed
+     */
+    public static long epochSecondOf(String created) {
+        if (created == null) {
+            return NO_CREATED;
+        }
+        try {
+            return Instant.parse(created).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return NO_CREATED;
+        }
+    }
+
+    /**
+     * Gets the number of days with postings.
+     *
+     * @return the number of buckets
+     */
+    public int buckets() {
+        return days.length;
+    }
+
+    /**
+     * Gets the rows of the postings posted in a window, in order.
+     *
+     * @param from the earliest posting time, inclusive, or null for no limit
+     * @param to   the latest posting time, exclusive, or null for no limit
+     * @return the matching rows
+     */
+    public int[] between(Instant from, Instant to) {
+        long fromSecond = from == null ? Long.MIN_VALUE : from.getEpochSecond();
+        long toSecond = to == null ? Long.MAX_VALUE : to.getEpochSecond();
+        if (fromSecond >= toSecond || days.length == 0) {
+            return new int[0];
+        }
+        int first = firstBucketFrom(Math.floorDiv(fromSecond, SECONDS_PER_DAY));
+        int last = firstBucketFrom(Math.floorDiv(toSecond - 1, SECONDS_PER_DAY) + 1) - 1;
+        if (first > last) {
+            return new int[0];
+        }
+        int[] matches = new int[starts[last + 1] - starts[first]];
+        int kept = 0;
+        for (int bucket = first; bucket <= last; bucket++) {
+            boolean edge = bucket == first || bucket == last;
+            for (int i = starts[bucket]; i < starts[bucket + 1]; i++) {
+                // the buckets in between match whole, only the edges need checking
+                if (!edge || created[i] >= fromSecond && created[i] < toSecond) {
+                    matches[kept++] = rows[i];
+                }
+            }
+        }
+        matches = Arrays.copyOf(matches, kept);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Finds the first bucket on or after a day.
+     *
+     * @param day the day, in epoch days
+     * @return the index of the bucket, or the number of buckets if there is none
+     */
+    private int firstBucketFrom(long day) {
+        int found = Arrays.binarySearch(days, day);
+        return found >= 0 ? found : -found - 1;
+    }
+}
@@ -1,14 +1,21 @@
 package jobplanner.model.models;
 
+import java.io.IOException;
 import java.io.OutputStream;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import jobplanner.model.formatters.DataFormatter;
 import jobplanner.model.formatters.Formats;
+import jobplanner.model.store.DescriptionStore;
 
 /**
  * Interface to the model.
@@ -19,12 +26,37 @@ public interface IJobPostModel {
     String DATABASE = "data/jobpostings.json";
 
     /**
-     * Get the jobs as a list.
+     * Get the jobs as a list. The list is a read-only snapshot, safe to read
+     * from any thread while jobs are added.
      * 
      * @return the list of jobs
      */
     List<JobRecord> getJobs();
 
+    /**
+     * Add jobs, such as the results of a search or an import, after the jobs
+     * already in the model. Jobs added before are skipped.
+     * 
+     * @param jobs the jobs to add
+     * @return true if at least one job was added
+     */
+    boolean addJobs(Collection<JobRecord> jobs);
+
+    /**
+     * Add a listener told about every change to the jobs, on the thread that
+     * made it, after the change is visible to readers.
+     * 
+     * @param listener the listener
+     */
+    void addListener(Consumer<ModelChange> listener);
+
+    /**
+     * Remove a listener.
+     * 
+     * @param listener the listener
+     */
+    void removeListener(Consumer<ModelChange> listener);
+
     /**
      * Writes out the records to the outputstream.
      * 
@@ -67,6 +99,111 @@ public interface IJobPostModel {
         throw new UnsupportedOperationException("Not implemented yet");
     }
 
+    /**
+     * Gets the key a job is stored under: its id, or for the rare posting
+     * without one, its redirect url or ad reference. Only fields that never
+     * change are used, so a job keeps its key when its description is moved to
+     * a {@link DescriptionStore} or loaded back.
+     * 
+     * @param job the job
+     * @return the key
+     */
+    static String keyOf(JobRecord job) {
+        if (job.id() != null) {
+            return job.id();
+        } else if (job.redirectUrl() != null) {
+            return "url:" + job.redirectUrl();
+        } else if (job.adref() != null) {
+            return "adref:" + job.adref();
+        }
+        return "#" + Objects.hash(job.title(), job.company(), job.location(), job.created());
+    }
+
+    /**
+     * Gets the description of a job. Jobs loaded with their descriptions kept on
+     * disk have none; it is then read from the active {@link DescriptionStore}.
+     * That may read the disk, so the GUI uses {@link #cachedDescriptionOf} and
+     * {@link #descriptionOfAsync} instead.
+     * 
+     * @param job the job
+     * @return the description, or null if there is none
+     */
+    static String descriptionOf(JobRecord job) {
+        DescriptionStore store = DescriptionStore.getActive();
+        if (job.description() != null || job.id() == null || store == null) {
+            return job.description();
+        }
+        try {
+            return store.get(job.id());
+        } catch (IOException e) {
+            System.err.println("Failed to read the description of " + job.id() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the description of a job if it is at hand, without reading the disk.
+     * 
+     * @param job the job
+     * @return the description, or null if there is none or it is still on disk
+     */
+    static String cachedDescriptionOf(JobRecord job) {
+        DescriptionStore store = DescriptionStore.getActive();
+        if (job.description() != null || job.id() == null || store == null) {
+            return job.description();
+        }
+        return store.getCached(job.id());
+    }
+
+    /**
+     * Gets the description of a job, reading it from the active
+     * {@link DescriptionStore} on a background thread if it is on disk.
+     * 
+     * @param job the job
+     * @return a future completed with the description, or null if there is none
+     */
+    static CompletableFuture<String> descriptionOfAsync(JobRecord job) {
+        DescriptionStore store = DescriptionStore.getActive();
+        if (job.description() != null || job.id() == null || store == null) {
+            return CompletableFuture.completedFuture(job.description());
+        }
+        return store.getAsync(job.id()).exceptionally(e -> {
+            System.err.println("Failed to read the description of " + job.id() + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Gets a job with its description, for keeping it beyond the current
+     * session, such as in the saved jobs.
+     * 
+     * @param job the job
+     * @return the job itself if it has its description, otherwise a copy with it
+     */
+    static JobRecord withDescription(JobRecord job) {
+        if (job.description() != null) {
+            return job;
+        }
+        String description = descriptionOf(job);
+        return description == null ? job : DescriptionStore.withDescription(job, description);
+    }
+
+    /**
+     * Gets a job with its description, reading it from the active
+     * {@link DescriptionStore} on a background thread if it is on disk.
+     * 
+     * @param job the job
+     * @return a future completed with the job itself if it has its description
+     *         or none is stored, otherwise with a copy with it
+     */
+    static CompletableFuture<JobRecord> withDescriptionAsync(JobRecord job) {
+        if (job.description() != null) {
+            return CompletableFuture.completedFuture(job);
+        }
+        return descriptionOfAsync(job).thenApply(description ->
+                description == null ? job : DescriptionStore.withDescription(job, description));
+    }
+
     /**
      * Primary record to pass around between objects. Is immutable and uses Jackson
      * annotations for
@@ -122,7 +259,18 @@ public interface IJobPostModel {
         @JsonProperty("tag") String tag,
         @JsonProperty("label") String label
     ) {
-        // Empty
+        /**
+         * Gets the category with a tag and label, shared with every other
+         * posting in the same category.
+         *
+         * @param tag   the tag
+         * @param label the label
+         * @return the canonical category, see {@link ValueDictionary}
+         */
+        @JsonCreator
+        public static Category of(@JsonProperty("tag") String tag, @JsonProperty("label") String label) {
+            return ValueDictionary.sharedCategory(tag, label);
+        }
     }
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -130,7 +278,17 @@ public interface IJobPostModel {
     public record Company(
         @JsonProperty("display_name") String displayName
     ) {
-        // Empty
+        /**
+         * Gets the company with a name, shared with every other posting of the
+         * same company.
+         *
+         * @param displayName the name
+         * @return the canonical company, see {@link ValueDictionary}
+         */
+        @JsonCreator
+        public static Company of(@JsonProperty("display_name") String displayName) {
+            return ValueDictionary.sharedCompany(displayName);
+        }
     }
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -139,6 +297,18 @@ public interface IJobPostModel {
         @JsonProperty("display_name") String displayName,
         @JsonProperty("area") List<String> area
     ) {
-        // Empty
+        /**
+         * Gets the location with a name and area hierarchy, shared with every
+         * other posting in the same location.
+         *
+         * @param displayName the name
+         * @param area        the area hierarchy, broadest first
+         * @return the canonical location, see {@link ValueDictionary}, whose area list is read-only
+         */
+        @JsonCreator
+        public static Location of(@JsonProperty("display_name") String displayName,
+                @JsonProperty("area") List<String> area) {
+            return ValueDictionary.sharedLocation(displayName, area);
+        }
     }
 }
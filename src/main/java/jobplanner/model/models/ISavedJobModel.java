@@ -1,7 +1,9 @@
 package jobplanner.model.models;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import jobplanner.model.models.IJobPostModel.JobRecord;
 /**
@@ -49,7 +51,42 @@ public interface ISavedJobModel {
     void removeSavedJob(JobRecord job);
 
     /**
-     * Get the saved jobs as a list.
+     * Check if a job is saved. Jobs are matched on their id.
+     * 
+     * @param job the job to look for
+     * @return true if the job is saved
+     */
+    boolean contains(JobRecord job);
+
+    /**
+     * Add several jobs to the saved jobs in one operation. Jobs that are
+     * already saved are skipped.
+     * 
+     * @param jobs the jobs to add
+     * @return true if at least one job was added
+     */
+    boolean addAll(Collection<JobRecord> jobs);
+
+    /**
+     * Remove several jobs from the saved jobs in one operation.
+     * 
+     * @param jobs the jobs to remove
+     * @return true if at least one job was removed
+     */
+    boolean removeAll(Collection<JobRecord> jobs);
+
+    /**
+     * Replace a saved job with another version of it, such as one saved by
+     * another process, keeping its place in the list.
+     * 
+     * @param job the new version of the job
+     * @return true if the job was saved and replaced
+     */
+    boolean replaceSavedJob(JobRecord job);
+
+    /**
+     * Get the saved jobs as a list. The list is a read-only snapshot, safe to
+     * read from any thread while the jobs change.
      * 
      * @return the list of saved jobs
      */
@@ -67,6 +104,21 @@ public interface ISavedJobModel {
      */
     void clearSavedJobs();
 
+    /**
+     * Add a listener told about every change to the saved jobs, on the thread
+     * that made it, after the change is visible to readers.
+     * 
+     * @param listener the listener
+     */
+    void addListener(Consumer<ModelChange> listener);
+
+    /**
+     * Remove a listener.
+     * 
+     * @param listener the listener
+     */
+    void removeListener(Consumer<ModelChange> listener);
+
     /**
      * Load the saved jobs from a file.
      * 
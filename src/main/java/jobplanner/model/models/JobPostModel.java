@@ -1,56 +1,340 @@
 package jobplanner.model.models;
 
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jobplanner.model.formatters.Formats;
+import jobplanner.model.formatters.JobCodec;
+import io.github.cdimascio.dotenv.Dotenv;
+import jobplanner.model.store.DescriptionStore;
+import jobplanner.model.store.PostingSnapshot;
+import jobplanner.model.store.PostingStore;
 
 /**
  * A class to represent the model of the job postings.
+ * 
+ * The model is safe to use from several threads. The jobs are published as
+ * an immutable snapshot: the jobs loaded when the model was opened, which are
+ * never changed, followed by the jobs added since. Readers never lock, and
+ * writers build the next snapshot and swap it in one at a time.
  */
 public final class JobPostModel implements IJobPostModel {
-    /** Persistent database file path. */
-    private List<JobRecord> jobs;
+    /**
+     * Whether descriptions are kept on disk and loaded when shown. Postings
+     * opened from the posting store are always decoded on demand.
+     */
+    private static final boolean LAZY_DESCRIPTIONS = Boolean.parseBoolean(
+            Dotenv.configure().ignoreIfMissing().load().get("JOBPLANNER_LAZY_DESCRIPTIONS", "false"));
+
+    /** Default number of postings shown when the GUI opens. */
+    public static final int DEFAULT_RECENT_JOBS = 200;
+
+    /**
+     * Number of postings shown when the GUI opens, set with the
+     * JOBPLANNER_RECENT_JOBS variable.
+     */
+    public static final int RECENT_JOBS = recentJobs();
+
+    /** The current snapshot of the jobs. */
+    private final AtomicReference<Snapshot> snapshot;
+    /** The listeners told about changes. */
+    private final List<Consumer<ModelChange>> listeners = new CopyOnWriteArrayList<>();
+
+    /** The store the postings were loaded from, or null if loaded from a file. */
+    private final PostingStore store;
+
+    /** The index of the jobs loaded when the model was opened, by the day they were posted. */
+    private final DateIndex loadedByDate;
+
+    /**
+     * Whether the jobs loaded when the model was opened are listed newest
+     * first, as a posting store lists them, rather than in the order of the
+     * file they were read from.
+     */
+    private final boolean loadedNewestFirst;
 
     /**
      * Private constructor to prevent instantiation.
      * 
-     * @param jobs the list of jobs
+     * @param jobs              the list of jobs
+     * @param loadedByDate      the index of the jobs by the day they were posted
+     * @param loadedNewestFirst whether the jobs are listed newest first
+     * @param store             the store the jobs were loaded from, or null
      */
-    private JobPostModel(List<JobRecord> jobs) {
-        this.jobs = jobs;
+    private JobPostModel(List<JobRecord> jobs, DateIndex loadedByDate, boolean loadedNewestFirst,
+            PostingStore store) {
+        this.snapshot = new AtomicReference<>(new Snapshot(jobs, List.of(), Set.of()));
+        this.loadedByDate = loadedByDate;
+        this.loadedNewestFirst = loadedNewestFirst;
+        this.store = store;
     }
 
     @Override
     public List<JobRecord> getJobs() {
-        return jobs;
+        Snapshot current = snapshot.get();
+        return current.added().isEmpty() ? current.loaded() : new Joined(current.loaded(), current.added());
+    }
+
+    /**
+     * Gets the jobs fetched last, for views that should not show a whole
+     * posting store: the results of the latest searches.
+     * 
+     * @param limit the most jobs to return
+     * @return the latest jobs; read-only
+     */
+    public List<JobRecord> getRecentJobs(int limit) {
+        return getRecentJobs(limit, null);
     }
 
     /**
-     * Gets an instance of the model using the 'default' location.
+     * Gets the jobs fetched last among those posted since a time. The jobs
+     * loaded when the model was opened are looked up in their date index, so
+     * a whole posting store is not decoded to find them.
+     * 
+     * A posting store lists its newest postings first, so they are taken from
+     * the head of the loaded jobs and come after the jobs added since, which
+     * are newer still. A file lists them in the order they were fetched, so
+     * they are taken from its tail and come before the added jobs.
+     * 
+     * @param limit the most jobs to return
+     * @param since the earliest posting time, or null for no limit
+     * @return the latest matching jobs; read-only
+     */
+    public List<JobRecord> getRecentJobs(int limit, Instant since) {
+        Snapshot current = snapshot.get();
+        List<JobRecord> added = new ArrayList<>();
+        for (JobRecord job : current.added()) {
+            if (since == null || DateIndex.epochSecondOf(job.created()) >= since.getEpochSecond()) {
+                added.add(job);
+            }
+        }
+        added = added.subList(Math.max(0, added.size() - limit), added.size());
+
+        List<JobRecord> loaded = current.loaded();
+        int[] rows = since == null ? null : loadedByDate.between(since, null);
+        int matching = rows == null ? loaded.size() : rows.length;
+        int taken = Math.min(limit - added.size(), matching);
+        int first = loadedNewestFirst ? 0 : matching - taken;
+        List<JobRecord> recent = new ArrayList<>(taken + added.size());
+        if (loadedNewestFirst) {
+            recent.addAll(added);
+        }
+        for (int i = first; i < first + taken; i++) {
+            recent.add(loaded.get(rows == null ? i : rows[i]));
+        }
+        if (!loadedNewestFirst) {
+            recent.addAll(added);
+        }
+        return Collections.unmodifiableList(recent);
+    }
+
+    /**
+     * Reads the number of postings shown when the GUI opens.
+     * 
+     * @return the configured number, or the default if it is missing or invalid
+     */
+    private static int recentJobs() {
+        String value = Dotenv.configure().ignoreIfMissing().load().get("JOBPLANNER_RECENT_JOBS",
+                String.valueOf(DEFAULT_RECENT_JOBS));
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid JOBPLANNER_RECENT_JOBS, showing " + DEFAULT_RECENT_JOBS + " postings");
+            return DEFAULT_RECENT_JOBS;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Only the jobs added before are looked for, not the jobs loaded when the
+     * model was opened, which may be a whole posting store.
+     */
+    @Override
+    public synchronized boolean addJobs(Collection<JobRecord> jobs) {
+        Snapshot current = snapshot.get();
+        List<JobRecord> added = new ArrayList<>(current.added());
+        Set<String> keys = new HashSet<>(current.addedKeys());
+        List<JobRecord> fresh = new ArrayList<>();
+        for (JobRecord job : jobs) {
+            if (keys.add(IJobPostModel.keyOf(job))) {
+                added.add(job);
+                fresh.add(job);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return false;
+        }
+        snapshot.set(new Snapshot(current.loaded(), Collections.unmodifiableList(added),
+                Collections.unmodifiableSet(keys)));
+        ModelChange change = new ModelChange(fresh, List.of(), List.of());
+        for (Consumer<ModelChange> listener : listeners) {
+            listener.accept(change);
+        }
+        return true;
+    }
+
+    @Override
+    public void addListener(Consumer<ModelChange> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(Consumer<ModelChange> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the store the postings were loaded from, which new search results
+     * should be appended to.
+     * 
+     * @return the store, or null if the postings were loaded from a file
+     */
+    public PostingStore getStore() {
+        return store;
+    }
+
+    /**
+     * Gets an instance of the model using the 'default' location, the posting
+     * store in data/postings. The first time the store is opened, the postings of
+     * the old data/jobpostings.json database are imported into it.
      * 
      * @return the instance of the model
      */
     public static IJobPostModel getInstance() {
-        return getInstance(DATABASE);
+        return open(Paths.get(PostingStore.DIRECTORY), Paths.get(DATABASE));
     }
 
     /**
-     * Gets an instance of the model using the specified database file.
+     * Gets an instance of the model using the specified database, either a file,
+     * read as Smile or CBOR for their extensions and as JSON otherwise, or the
+     * directory of a posting store. Postings read from a file are kept in a
+     * {@link JobTable}.
      * 
-     * @param database the name of the file to use
+     * @param database the name of the file or directory to use
      * @return the instance of the model
      */
     public static IJobPostModel getInstance(String database) {
+        if (Files.isDirectory(Paths.get(database))) {
+            return open(Paths.get(database), null);
+        }
         try (InputStream inputStream = new FileInputStream(database)) {
-            ObjectMapper jsonMapper = new ObjectMapper();
-            List<JobRecord> records = jsonMapper.readValue(inputStream,
-                    jsonMapper.getTypeFactory().constructCollectionType(List.class, JobRecord.class));
-            return new JobPostModel(records);
+            List<JobRecord> records = JobCodec.getInstance(Formats.storageFormatOf(database)).readList(inputStream);
+            JobTable table = JobTable.of(keepDescriptionsOnDisk(records));
+            return new JobPostModel(table.asList(), table.dateIndex(), false, null);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to load model from " + database, e);
         }
     }
+
+    /**
+     * Moves the descriptions of postings to the description store when
+     * JOBPLANNER_LAZY_DESCRIPTIONS is set, so only the rest of the postings stay
+     * in memory.
+     * 
+     * @param records the postings
+     * @return the postings, without their descriptions if they were moved
+     * @throws IOException if the descriptions can not be written
+     */
+    private static List<JobRecord> keepDescriptionsOnDisk(List<JobRecord> records) throws IOException {
+        if (!LAZY_DESCRIPTIONS) {
+            return records;
+        }
+        DescriptionStore store;
+        synchronized (JobPostModel.class) {
+            store = DescriptionStore.getActive();
+            if (store == null) {
+                store = DescriptionStore.open(Paths.get(DescriptionStore.DEFAULT_PATH),
+                        DescriptionStore.DEFAULT_CACHE_SIZE);
+                DescriptionStore.setActive(store);
+            }
+        }
+        return store.strip(records);
+    }
+
+    /**
+     * Opens a posting store and maps the snapshot of its postings, so the
+     * postings are only decoded when they are used.
+     * 
+     * @param directory the directory of the store
+     * @param legacy    a JSON database to import if the store is empty, or null
+     * @return the instance of the model
+     */
+    private static IJobPostModel open(Path directory, Path legacy) {
+        try {
+            PostingStore store = PostingStore.open(directory);
+            if (store.isWritable() && store.segmentCount() == 0 && legacy != null && Files.exists(legacy)) {
+                try (InputStream inputStream = Files.newInputStream(legacy)) {
+                    store.append(JobCodec.getInstance().readList(inputStream));
+                }
+            }
+            // the date index is built here, off the event dispatch thread, from the created column alone
+            PostingSnapshot postings = store.snapshot();
+            return new JobPostModel(postings.asList(), postings.dateIndex(), true, store);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to load model from " + directory, e);
+        }
+    }
+
+    /**
+     * The jobs at one point in time. Never changed once published.
+     * 
+     * @param loaded    the jobs loaded when the model was opened
+     * @param added     the jobs added since, in order
+     * @param addedKeys the keys of the jobs added since
+     */
+    private record Snapshot(List<JobRecord> loaded, List<JobRecord> added, Set<String> addedKeys) {
+        // Empty
+    }
+
+    /**
+     * The jobs of a snapshot as one read-only list: the loaded jobs followed
+     * by the added ones.
+     */
+    private static final class Joined extends AbstractList<JobRecord> implements RandomAccess {
+        /** The loaded jobs. */
+        private final List<JobRecord> loaded;
+        /** The added jobs. */
+        private final List<JobRecord> added;
+
+        /**
+         * Joins two lists.
+         * 
+         * @param loaded the loaded jobs
+         * @param added  the added jobs
+         */
+        Joined(List<JobRecord> loaded, List<JobRecord> added) {
+            this.loaded = loaded;
+            this.added = added;
+        }
+
+        @Override
+        public JobRecord get(int index) {
+            int size = loaded.size();
+            return index < size ? loaded.get(index) : added.get(index - size);
+        }
+
+        @Override
+        public int size() {
+            return loaded.size() + added.size();
+        }
+    }
 }
@@ -0,0 +1,574 @@
+package jobplanner.model.models;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * A read-only, in-memory table of job postings stored as columns.
+ *
+ * A list of {@link JobRecord}s keeps every posting as a record pointing at its
+ * company, location and category, and filtering on the salary means following
+ * a pointer per posting. The table instead keeps the salaries, coordinates and
+ * creation times in primitive arrays, and the company, location, category and
+ * contract time as ids in a {@link ValueDictionary} of its own, so filtering
+ * and sorting are loops over arrays. The remaining text fields are kept as they
+ * are. Posting times are parsed once, when the table is built, and indexed by
+ * day in a {@link DateIndex} for date-window filters; salary ranges go
+ * through a {@link SalaryIndex}.
+ *
+ * {@link #asList()} gives the postings back as records, built when they are
+ * asked for, for the table models, the formatters and
+ * {@link IJobPostModel#getJobs()}.
+ */
+public final class JobTable {
+    /** Creation time of a posting without a parsable one. */
+    public static final long NO_CREATED = Long.MIN_VALUE;
+    /** Id of a missing company, location, category or contract time. */
+    private static final int NONE = -1;
+    /** Number of built postings kept for the list views. */
+    private static final int CACHE_SIZE = 256;
+
+    /** The dictionary the ids are from. */
+    private final ValueDictionary dictionary;
+    /** Number of postings. */
+    private final int rows;
+
+    /** The minimum salaries. */
+    private final double[] salaryMin;
+    /** The maximum salaries. */
+    private final double[] salaryMax;
+    /** The latitudes. */
+    private final double[] latitude;
+    /** The longitudes. */
+    private final double[] longitude;
+    /** The creation times, in epoch seconds. */
+    private final long[] created;
+
+    /** The company ids. */
+    private final int[] company;
+    /** The location ids. */
+    private final int[] location;
+    /** The category ids. */
+    private final int[] category;
+    /** The contract time ids. */
+    private final int[] contractTime;
+
+    /** The titles. */
+    private final String[] title;
+    /** The descriptions. */
+    private final String[] description;
+    /** The creation times that are not whole UTC seconds, null for the others. */
+    private final String[] createdText;
+    /** The redirect urls. */
+    private final String[] redirectUrl;
+    /** The adrefs. */
+    private final String[] adref;
+    /** The ids. */
+    private final String[] id;
+    /** Whether the salaries are predicted. */
+    private final String[] salaryIsPredicted;
+    /** The index of the postings by day, built when first needed. */
+    private volatile DateIndex dateIndex;
+    /** The index of the postings by salary, built when first needed. */
+    private volatile SalaryIndex salaryIndex;
+    /** The index of the postings by salary without predicted salaries, built when first needed. */
+    private volatile SalaryIndex salaryIndexStated;
+    /** Recently built postings, by row modulo the cache size. */
+    private final JobRecord[] cache = new JobRecord[CACHE_SIZE];
+    /** The rows of the cached postings, plus one so 0 marks an empty slot. */
+    private final int[] cachedRows = new int[CACHE_SIZE];
+
+    /**
+     * Creates an empty table with room for a number of postings. Use
+     * {@link #of(List)}.
+     *
+     * @param dictionary the dictionary of the ids
+     * @param rows       the number of postings
+     */
+    private JobTable(ValueDictionary dictionary, int rows) {
+        this.dictionary = dictionary;
+        this.rows = rows;
+        this.salaryMin = new double[rows];
+        this.salaryMax = new double[rows];
+        this.latitude = new double[rows];
+        this.longitude = new double[rows];
+        this.created = new long[rows];
+        this.company = new int[rows];
+        this.location = new int[rows];
+        this.category = new int[rows];
+        this.contractTime = new int[rows];
+        this.title = new String[rows];
+        this.description = new String[rows];
+        this.createdText = new String[rows];
+        this.redirectUrl = new String[rows];
+        this.adref = new String[rows];
+        this.id = new String[rows];
+        this.salaryIsPredicted = new String[rows];
+    }
+
+    /**
+     * Creates a table of postings, with ids from a new dictionary.
+     *
+     * @param jobs the postings
+     * @return the table
+     */
+    public static JobTable of(List<JobRecord> jobs) {
+        JobTable table = new JobTable(new ValueDictionary(), jobs.size());
+        for (int row = 0; row < table.rows; row++) {
+            table.set(row, jobs.get(row));
+        }
+        return table;
+    }
+
+    /**
+     * Stores a posting in a row.
+     *
+     * @param row the row
+     * @param job the posting
+     */
+    private void set(int row, JobRecord job) {
+        salaryMin[row] = job.salaryMin();
+        salaryMax[row] = job.salaryMax();
+        latitude[row] = job.latitude();
+        longitude[row] = job.longitude();
+        created[row] = DateIndex.epochSecondOf(job.created());
+        if (created[row] == NO_CREATED || !Instant.ofEpochSecond(created[row]).toString().equals(job.created())) {
+            createdText[row] = job.created();
+        }
+        company[row] = job.company() == null ? NONE : dictionary.idOf(job.company());
+        location[row] = job.location() == null ? NONE : dictionary.idOf(job.location());
+        category[row] = job.category() == null ? NONE : dictionary.idOf(job.category());
+        contractTime[row] = job.contractTime() == null ? NONE : dictionary.idOf(job.contractTime());
+        title[row] = job.title();
+        description[row] = job.description();
+        redirectUrl[row] = job.redirectUrl();
+        adref[row] = job.adref();
+        id[row] = job.id();
+        salaryIsPredicted[row] = job.salaryIsPredicted();
+    }
+
+    /**
+     * Gets the number of postings.
+     *
+     * @return the number of postings
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Gets the minimum salary of a posting.
+     *
+     * @param row the row
+     * @return the minimum salary
+     */
+    public double salaryMin(int row) {
+        return salaryMin[row];
+    }
+
+    /**
+     * Gets the maximum salary of a posting.
+     *
+     * @param row the row
+     * @return the maximum salary
+     */
+    public double salaryMax(int row) {
+        return salaryMax[row];
+    }
+
+    /**
+     * Whether the salary of a posting is predicted by the API rather than
+     * stated in the posting.
+     *
+     * @param row the row
+     * @return true if the salary is predicted
+     */
+    public boolean salaryIsPredicted(int row) {
+        return isPredicted(salaryIsPredicted[row]);
+    }
+
+    /**
+     * Whether a salary is predicted, as the API writes it.
+     *
+     * @param salaryIsPredicted the salary_is_predicted field, "1" or "true" if predicted
+     * @return true if the salary is predicted
+     */
+    public static boolean isPredicted(String salaryIsPredicted) {
+        return "1".equals(salaryIsPredicted) || "true".equalsIgnoreCase(salaryIsPredicted);
+    }
+
+    /**
+     * Gets the creation time of a posting.
+     *
+     * @param row the row
+     * @return the creation time in epoch seconds, or {@link #NO_CREATED}
+     */
+    public long created(int row) {
+        return created[row];
+    }
+
+    /**
+     * Gets the id of the company of a posting.
+     *
+     * @param row the row
+     * @return the id in the dictionary of the table, or -1 if the posting has no company
+     */
+    public int companyId(int row) {
+        return company[row];
+    }
+
+    /**
+     * Gets the id of the category of a posting.
+     *
+     * @param row the row
+     * @return the id in the dictionary of the table, or -1 if the posting has no category
+     */
+    public int categoryId(int row) {
+        return category[row];
+    }
+
+    /**
+     * Gets the id of the contract time of a posting.
+     *
+     * @param row the row
+     * @return the id in the dictionary of the table, or -1 if the posting has no contract time
+     */
+    public int contractTimeId(int row) {
+        return contractTime[row];
+    }
+
+    /**
+     * Gets the record of a posting. The records of the rows asked for last
+     * are kept, so repainting a table or sorting it does not build every
+     * record again.
+     *
+     * @param row the row
+     * @return the posting
+     */
+    public JobRecord get(int row) {
+        Objects.checkIndex(row, rows);
+        int slot = row & (CACHE_SIZE - 1);
+        synchronized (cache) {
+            if (cachedRows[slot] == row + 1) {
+                return cache[slot];
+            }
+        }
+        JobRecord job = build(row);
+        synchronized (cache) {
+            cache[slot] = job;
+            cachedRows[slot] = row + 1;
+        }
+        return job;
+    }
+
+    /**
+     * Builds the record of a posting.
+     *
+     * @param row the row
+     * @return the posting
+     */
+    private JobRecord build(int row) {
+        String createdAt = createdText[row];
+        if (createdAt == null && created[row] != NO_CREATED) {
+            createdAt = Instant.ofEpochSecond(created[row]).toString();
+        }
+        return new JobRecord(title[row], description[row],
+                company[row] == NONE ? null : dictionary.companyOf(company[row]),
+                location[row] == NONE ? null : dictionary.locationOf(location[row]),
+                salaryMin[row], salaryMax[row],
+                contractTime[row] == NONE ? null : dictionary.stringOf(contractTime[row]),
+                createdAt, redirectUrl[row], adref[row],
+                category[row] == NONE ? null : dictionary.categoryOf(category[row]),
+                latitude[row], longitude[row], id[row], salaryIsPredicted[row]);
+    }
+
+    /**
+     * Gets the rows of the postings that match a condition, in order.
+     *
+     * @param condition the condition, given a row
+     * @return the matching rows
+     */
+    public int[] filter(IntPredicate condition) {
+        int[] matches = new int[rows];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (condition.test(row)) {
+                matches[count++] = row;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Gets the rows of the postings whose salary range overlaps a range, in
+     * order, through the salary index.
+     *
+     * @param min the lowest salary wanted
+     * @param max the highest salary wanted
+     * @return the matching rows
+     */
+    public int[] salaryBetween(double min, double max) {
+        return salaryBetween(min, max, false);
+    }
+
+    /**
+     * Gets the rows of the postings whose salary range overlaps a range, in
+     * order, through the salary index.
+     *
+     * @param min              the lowest salary wanted
+     * @param max              the highest salary wanted
+     * @param excludePredicted whether to leave out postings whose salary is predicted
+     * @return the matching rows
+     */
+    public int[] salaryBetween(double min, double max, boolean excludePredicted) {
+        return salaryIndex(excludePredicted).overlapping(min, max);
+    }
+
+    /**
+     * Gets the index of the postings by salary, building it the first time.
+     *
+     * @param excludePredicted whether to leave out postings whose salary is predicted
+     * @return the index
+     */
+    public SalaryIndex salaryIndex(boolean excludePredicted) {
+        SalaryIndex index = excludePredicted ? salaryIndexStated : salaryIndex;
+        if (index == null) {
+            index = SalaryIndex.of(this, excludePredicted);
+            // a race only builds the same index twice
+            if (excludePredicted) {
+                salaryIndexStated = index;
+            } else {
+                salaryIndex = index;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Gets the rows of the postings in a category, in order.
+     *
+     * @param wanted the category
+     * @return the matching rows
+     */
+    public int[] inCategory(Category wanted) {
+        // looked up without adding it, so asking for unknown categories does not grow the dictionary
+        int wantedId = dictionary.findId(wanted);
+        if (wantedId == ValueDictionary.NONE) {
+            return new int[0];
+        }
+        int[] matches = new int[rows];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (category[row] == wantedId) {
+                matches[count++] = row;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Gets the rows of the postings posted in a window, in order, through the
+     * date index.
+     *
+     * @param from the earliest posting time, inclusive, or null for no limit
+     * @param to   the latest posting time, exclusive, or null for no limit
+     * @return the matching rows
+     */
+    public int[] postedBetween(Instant from, Instant to) {
+        return dateIndex().between(from, to);
+    }
+
+    /**
+     * Gets the index of the postings by the day they were posted, building it
+     * the first time.
+     *
+     * @return the index
+     */
+    public DateIndex dateIndex() {
+        DateIndex index = dateIndex;
+        if (index == null) {
+            index = DateIndex.of(this);
+            dateIndex = index; // a race only builds the same index twice
+        }
+        return index;
+    }
+
+    /**
+     * Gets the rows in both of two lists of rows.
+     *
+     * @param first  rows, in order
+     * @param second rows, in order
+     * @return the rows in both, in order
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] both = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                both[count++] = first[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, count);
+    }
+
+    /**
+     * Sorts rows by a column, keeping the order of equal postings. Postings
+     * without a creation time come last when sorting by it.
+     *
+     * @param selected   the rows to sort, as returned by a filter
+     * @param column     the column to sort by
+     * @param descending whether the largest values come first
+     * @return the sorted rows
+     */
+    public int[] sort(int[] selected, Column column, boolean descending) {
+        long[] keys = new long[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            long key = key(selected[i], column);
+            if (column == Column.CREATED && key == NO_CREATED) {
+                keys[i] = Long.MAX_VALUE; // last either way
+            } else {
+                keys[i] = descending ? ~key : key;
+            }
+        }
+        int[] sorted = selected.clone();
+        mergeSort(keys, sorted, new long[keys.length], new int[sorted.length], 0, sorted.length);
+        return sorted;
+    }
+
+    /**
+     * Gets the sort key of a posting, ordered like the value of the column.
+     *
+     * @param row    the row
+     * @param column the column
+     * @return the key
+     */
+    private long key(int row, Column column) {
+        switch (column) {
+            case SALARY_MIN: return sortable(salaryMin[row]);
+            case SALARY_MAX: return sortable(salaryMax[row]);
+            case CREATED: return created[row];
+            default: throw new IllegalArgumentException("Unknown column " + column);
+        }
+    }
+
+    /**
+     * Maps a double to a long with the same order.
+     *
+     * @param value the double
+     * @return the long
+     */
+    private static long sortable(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Sorts rows by their keys, keeping the order of rows with equal keys.
+     *
+     * @param keys      the keys, sorted along with the rows
+     * @param rows      the rows
+     * @param keyBuffer scratch space for the keys
+     * @param rowBuffer scratch space for the rows
+     * @param from      the first index to sort
+     * @param to        the index after the last one to sort
+     */
+    private static void mergeSort(long[] keys, int[] rows, long[] keyBuffer, int[] rowBuffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(keys, rows, keyBuffer, rowBuffer, from, middle);
+        mergeSort(keys, rows, keyBuffer, rowBuffer, middle, to);
+        if (keys[middle - 1] <= keys[middle]) {
+            return; // already in order
+        }
+        System.arraycopy(keys, from, keyBuffer, from, to - from);
+        System.arraycopy(rows, from, rowBuffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle && keyBuffer[left] <= keyBuffer[right]) {
+                keys[i] = keyBuffer[left];
+                rows[i] = rowBuffer[left++];
+            } else {
+                keys[i] = keyBuffer[right];
+                rows[i] = rowBuffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Gets a list view of all the postings, building each posting when it is
+     * asked for.
+     *
+     * @return the postings
+     */
+    public List<JobRecord> asList() {
+        return new Rows(null);
+    }
+
+    /**
+     * Gets a list view of some of the postings, building each posting when it
+     * is asked for.
+     *
+     * @param selected the rows of the postings, in the order of the list
+     * @return the postings
+     */
+    public List<JobRecord> asList(int[] selected) {
+        return new Rows(selected.clone());
+    }
+
+    /**
+     * The columns postings can be sorted by.
+     */
+    public enum Column {
+        /** The minimum salary. */
+        SALARY_MIN,
+        /** The maximum salary. */
+        SALARY_MAX,
+        /** The creation time. */
+        CREATED
+    }
+
+    /**
+     * The list view of the postings.
+     */
+    private final class Rows extends AbstractList<JobRecord> implements RandomAccess {
+        /** The rows in the view, or null for every row. */
+        private final int[] selected;
+
+        /**
+         * Creates a view of some rows.
+         *
+         * @param selected the rows, or null for every row
+         */
+        Rows(int[] selected) {
+            this.selected = selected;
+        }
+
+        @Override
+        public JobRecord get(int index) {
+            return JobTable.this.get(selected == null ? index : selected[Objects.checkIndex(index, selected.length)]);
+        }
+
+        @Override
+        public int size() {
+            return selected == null ? rows : selected.length;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package jobplanner.model.models;
+
+import java.util.List;
+
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * A change to the jobs of a model, as passed to its listeners.
+ *
+ * @param added   the jobs added
+ * @param removed the jobs removed
+ * @param updated the new versions of jobs replaced in place
+ */
+public record ModelChange(List<JobRecord> added, List<JobRecord> removed, List<JobRecord> updated) {
+
+    /**
+     * Creates a change, keeping read-only copies of the lists.
+     *
+     * @param added   the jobs added
+     * @param removed the jobs removed
+     * @param updated the new versions of jobs replaced in place
+     */
+    public ModelChange {
+        added = List.copyOf(added);
+        removed = List.copyOf(removed);
+        updated = List.copyOf(updated);
+    }
+
+    /**
+     * Gets the keys of the jobs added, as given by {@link IJobPostModel#keyOf}.
+     *
+     * @return the keys
+     */
+    public List<String> addedIds() {
+        return added.stream().map(IJobPostModel::keyOf).toList();
+    }
+
+    /**
+     * Gets the keys of the jobs removed, as given by {@link IJobPostModel#keyOf}.
+     *
+     * @return the keys
+     */
+    public List<String> removedIds() {
+        return removed.stream().map(IJobPostModel::keyOf).toList();
+    }
+
+    /**
+     * Whether nothing changed.
+     *
+     * @return true if no job was added, removed or updated
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && updated.isEmpty();
+    }
+}
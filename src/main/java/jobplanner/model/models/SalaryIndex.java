@@ -0,0 +1,180 @@
+package jobplanner.model.models;
+
+import java.util.Arrays;
+
+/**
+ * An index of the postings of a {@link JobTable} by salary.
+ *
+ * The rows are kept twice, sorted by minimum and by maximum salary. A posting
+ * overlaps a range [a, b] when its minimum is at most b and its maximum at
+ * least a; each condition holds for a prefix or suffix of one of the sorted
+ * orders, found with a binary search. Counting takes logarithmic time, and
+ * listing the postings only walks the shorter of the two runs.
+ */
+public final class SalaryIndex {
+    /** The table the rows are from. */
+    private final JobTable table;
+    /** The rows, by minimum salary. */
+    private final int[] byMin;
+    /** The minimum salaries, in the order of {@link #byMin}. */
+    private final double[] mins;
+    /** The rows, by maximum salary. */
+    private final int[] byMax;
+    /** The maximum salaries, in the order of {@link #byMax}. */
+    private final double[] maxes;
+
+    /**
+     * Creates an index. Use {@link #of(JobTable, boolean)}.
+     *
+     * @param table the table
+     * @param rows  the rows to index
+     */
+    private SalaryIndex(JobTable table, int[] rows) {
+        this.table = table;
+        this.byMin = table.sort(rows, JobTable.Column.SALARY_MIN, false);
+        this.byMax = table.sort(rows, JobTable.Column.SALARY_MAX, false);
+        this.mins = new double[rows.length];
+        this.maxes = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            mins[i] = table.salaryMin(byMin[i]);
+            maxes[i] = table.salaryMax(byMax[i]);
+        }
+    }
+
+    /**
+     * Indexes the postings of a table by salary.
+     *
+     * @param table            the table
+     * @param excludePredicted whether to leave out postings whose salary is predicted
+     * @return the index
+     */
+    public static SalaryIndex of(JobTable table, boolean excludePredicted) {
+        return new SalaryIndex(table,
+                table.filter(row -> !excludePredicted || !table.salaryIsPredicted(row)));
+    }
+
+    /**
+     * Gets the number of postings indexed.
+     *
+     * @return the number of postings
+     */
+    public int size() {
+        return byMin.length;
+    }
+
+    /**
+     * Gets the rows of the postings whose salary range overlaps a range, in
+     * order.
+     *
+     * @param min the lowest salary wanted
+     * @param max the highest salary wanted
+     * @return the matching rows
+     */
+    public int[] overlapping(double min, double max) {
+        int minEnd = firstAbove(mins, max); // byMin[0, minEnd) start at most at max
+        int maxStart = firstAtLeast(maxes, min); // byMax[maxStart, size) reach at least min
+        int[] matches;
+        int count = 0;
+        if (minEnd <= byMax.length - maxStart) {
+            matches = new int[minEnd];
+            for (int i = 0; i < minEnd; i++) {
+                if (table.salaryMax(byMin[i]) >= min) {
+                    matches[count++] = byMin[i];
+                }
+            }
+        } else {
+            matches = new int[byMax.length - maxStart];
+            for (int i = maxStart; i < byMax.length; i++) {
+                if (table.salaryMin(byMax[i]) <= max) {
+                    matches[count++] = byMax[i];
+                }
+            }
+        }
+        matches = Arrays.copyOf(matches, count);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Gets the rows of the postings paying at least a salary, in order.
+     *
+     * @param salary the salary
+     * @return the rows of the postings whose maximum salary is at least the salary
+     */
+    public int[] atLeast(double salary) {
+        int start = firstAtLeast(maxes, salary);
+        int[] matches = Arrays.copyOfRange(byMax, start, byMax.length);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Counts the postings whose salary range overlaps a range, in logarithmic
+     * time: the postings not ending below the range and not starting above it.
+     * A posting whose minimum is above its maximum may be counted wrongly.
+     *
+     * @param min the lowest salary wanted
+     * @param max the highest salary wanted
+     * @return the number of matching postings
+     */
+    public int countOverlapping(double min, double max) {
+        if (min > max) {
+            return 0;
+        }
+        int endingBelow = firstAtLeast(maxes, min);
+        int startingAbove = mins.length - firstAbove(mins, max);
+        return Math.max(0, byMin.length - endingBelow - startingAbove);
+    }
+
+    /**
+     * Counts the postings paying at least a salary, in logarithmic time.
+     *
+     * @param salary the salary
+     * @return the number of postings whose maximum salary is at least the salary
+     */
+    public int countAtLeast(double salary) {
+        return maxes.length - firstAtLeast(maxes, salary);
+    }
+
+    /**
+     * Finds the first value at least a bound.
+     *
+     * @param values the values, in order
+     * @param bound  the bound
+     * @return the index of the first value at least the bound, or the number of values
+     */
+    private static int firstAtLeast(double[] values, double bound) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < bound) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first value above a bound.
+     *
+     * @param values the values, in order
+     * @param bound  the bound
+     * @return the index of the first value above the bound, or the number of values
+     */
+    private static int firstAbove(double[] values, double bound) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= bound) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
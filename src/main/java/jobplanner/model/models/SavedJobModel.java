@@ -1,31 +1,49 @@
 package jobplanner.model.models;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.nio.file.Paths;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jobplanner.model.store.SavedJobStore;
 
 import jobplanner.model.models.IJobPostModel.JobRecord;
 
 /**
  * A class to represent the model of the saved job postings.
+ * 
+ * Jobs are kept in the order they were saved and indexed on their id, so
+ * looking up a job takes constant time and the same posting is never saved
+ * twice.
+ * 
+ * The model is safe to use from several threads. The jobs are published as
+ * an immutable snapshot, so readers never lock and a list returned by
+ * {@link #getSavedJobs()} does not change under them. Writers copy the
+ * snapshot, change the copy and swap it in, one writer at a time, and then
+ * tell the listeners what changed.
  */
 public final class SavedJobModel implements ISavedJobModel {
-   
-    /** A list of jobs. */
-    private List<JobRecord> savedJobs = new ArrayList<>();
+
+    /** The current snapshot of the saved jobs. */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+    /** The listeners told about changes. */
+    private final List<Consumer<ModelChange>> listeners = new CopyOnWriteArrayList<>();
     /** The last saved date. */
-    private LocalDate lastSaved = null;
+    private volatile LocalDate lastSaved = null;
 
     /** private contructor. 
      * 
      * @param savedJobs the list of saved jobs
     */
     private SavedJobModel(List<JobRecord> savedJobs) {
-        this.savedJobs = savedJobs;
+        addAll(savedJobs);
     }
 
     /**
@@ -46,34 +64,155 @@ public final class SavedJobModel implements ISavedJobModel {
         this.lastSaved = date;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * The list is a read-only snapshot; it does not change when jobs are added
+     * or removed later.
+     */
     @Override
     public List<JobRecord> getSavedJobs() {
-        return savedJobs;
+        return snapshot.get().list();
     }
 
     @Override
-    public void setSavedJobs(List<JobRecord> jobs) {
-        this.savedJobs = new ArrayList<>(jobs);
+    public synchronized void setSavedJobs(List<JobRecord> jobs) {
+        Map<String, JobRecord> current = snapshot.get().byKey();
+        Map<String, JobRecord> next = new LinkedHashMap<>();
+        for (JobRecord job : jobs) {
+            next.putIfAbsent(IJobPostModel.keyOf(job), job);
+        }
+        List<JobRecord> added = new ArrayList<>();
+        List<JobRecord> removed = new ArrayList<>();
+        List<JobRecord> updated = new ArrayList<>();
+        for (Map.Entry<String, JobRecord> entry : next.entrySet()) {
+            JobRecord before = current.get(entry.getKey());
+            if (before == null) {
+                added.add(entry.getValue());
+            } else if (!before.equals(entry.getValue())) {
+                updated.add(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, JobRecord> entry : current.entrySet()) {
+            if (!next.containsKey(entry.getKey())) {
+                removed.add(entry.getValue());
+            }
+        }
+        // published even without changes, as the order may have changed
+        publish(next, new ModelChange(added, removed, updated));
     }
 
     @Override
     public void addSavedJob(JobRecord job) {
-        savedJobs.add(job);
+        addAll(List.of(job));
     }
 
     @Override
     public void removeSavedJob(JobRecord job) {
-        savedJobs.remove(job);
+        removeAll(List.of(job));
     }
 
     @Override
-    public void clearSavedJobs() {
-        savedJobs.clear();
+    public boolean contains(JobRecord job) {
+        return snapshot.get().byKey().containsKey(IJobPostModel.keyOf(job));
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<JobRecord> jobs) {
+        Map<String, JobRecord> next = null;
+        List<JobRecord> added = new ArrayList<>();
+        for (JobRecord job : jobs) {
+            String key = IJobPostModel.keyOf(job);
+            if (next == null) {
+                if (snapshot.get().byKey().containsKey(key)) {
+                    continue;
+                }
+                next = new LinkedHashMap<>(snapshot.get().byKey());
+            }
+            if (next.putIfAbsent(key, job) == null) {
+                added.add(job);
+            }
+        }
+        return next != null && publish(next, new ModelChange(added, List.of(), List.of()));
+    }
+
+    @Override
+    public synchronized boolean removeAll(Collection<JobRecord> jobs) {
+        Map<String, JobRecord> next = null;
+        List<JobRecord> removed = new ArrayList<>();
+        for (JobRecord job : jobs) {
+            String key = IJobPostModel.keyOf(job);
+            if (next == null) {
+                if (!snapshot.get().byKey().containsKey(key)) {
+                    continue;
+                }
+                next = new LinkedHashMap<>(snapshot.get().byKey());
+            }
+            JobRecord before = next.remove(key);
+            if (before != null) {
+                removed.add(before);
+            }
+        }
+        return next != null && publish(next, new ModelChange(List.of(), removed, List.of()));
+    }
+
+    @Override
+    public synchronized boolean replaceSavedJob(JobRecord job) {
+        String key = IJobPostModel.keyOf(job);
+        JobRecord before = snapshot.get().byKey().get(key);
+        if (before == null || before.equals(job)) {
+            return false;
+        }
+        Map<String, JobRecord> next = new LinkedHashMap<>(snapshot.get().byKey());
+        next.replace(key, job);
+        return publish(next, new ModelChange(List.of(), List.of(), List.of(job)));
+    }
+
+    @Override
+    public synchronized void clearSavedJobs() {
+        List<JobRecord> removed = snapshot.get().list();
+        if (!removed.isEmpty()) {
+            publish(new LinkedHashMap<>(), new ModelChange(List.of(), removed, List.of()));
+        }
     }
 
     @Override
     public int count() {
-        return savedJobs.size();
+        return snapshot.get().byKey().size();
+    }
+
+    @Override
+    public void addListener(Consumer<ModelChange> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(Consumer<ModelChange> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publishes the next saved jobs and tells the listeners what changed.
+     * Writers call this while holding the lock of the model, so listeners see
+     * the changes in order; they are called on the writing thread.
+     * 
+     * Every writer works out what it changed itself, from the jobs it was
+     * given, so a change to a few jobs does not compare every saved job.
+     * 
+     * @param next   the next jobs by key, in order
+     * @param change what changed
+     * @return whether anything changed
+     */
+    private boolean publish(Map<String, JobRecord> next, ModelChange change) {
+        snapshot.set(new Snapshot(Collections.unmodifiableMap(next),
+                Collections.unmodifiableList(new ArrayList<>(next.values()))));
+        if (change.isEmpty()) {
+            return false;
+        }
+        for (Consumer<ModelChange> listener : listeners) {
+            listener.accept(change);
+        }
+        return true;
     }
 
     /**
@@ -88,18 +227,30 @@ public final class SavedJobModel implements ISavedJobModel {
     /**
      * Get an instance of the model using the 'default' location.
      * 
+     * Changes journaled by a {@link SavedJobStore} but not compacted yet are
+     * included. Files with a Smile or CBOR extension are read as such.
+     * 
      * @param filePath the file path to load from
      * @return the instance of the model
      */
     public static ISavedJobModel loadFromJson(String filePath) {
-        try (InputStream inputStream = new FileInputStream(filePath)) {
-            ObjectMapper jsonMapper = new ObjectMapper();
-            List<JobRecord> records = jsonMapper.readValue(inputStream,
-                    jsonMapper.getTypeFactory().constructCollectionType(List.class, JobRecord.class));
+        try {
+            List<JobRecord> records = SavedJobStore.readJobs(Paths.get(filePath));
             return new SavedJobModel(records);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to load model from " + filePath, e);
         }
     }
+
+    /**
+     * The saved jobs at one point in time. Never changed once published.
+     * 
+     * @param byKey the jobs by key, in the order they were saved
+     * @param list  the jobs as a list, in the same order
+     */
+    private record Snapshot(Map<String, JobRecord> byKey, List<JobRecord> list) {
+        /** The snapshot without jobs. */
+        static final Snapshot EMPTY = new Snapshot(Map.of(), List.of());
+    }
 }
@@ -0,0 +1,366 @@
+package jobplanner.model.models;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.Location;
+
+/**
+ * Canonical instances of the values postings share: companies, categories,
+ * locations and their area lists, and small ids for them.
+ *
+ * A few hundred companies, the category tag and label pairs and the area
+ * hierarchies repeat across thousands of postings, but every posting read
+ * from JSON carries its own copies. The {@code of} factories of
+ * {@link Company}, {@link Category} and {@link Location}, which Jackson reads
+ * through, return the instance from {@link #sharedCompany(String)} and its
+ * siblings instead, so repeats share one instance. Those instances are held
+ * weakly: a value is dropped once no posting refers to it any more, so a
+ * long-running application does not keep every value it ever read.
+ *
+ * A dictionary instance gives the values of one corpus, such as a
+ * {@link JobTable}, ids, so columns and indexes can store and compare ints
+ * instead of records. It grows with the corpus and goes with it.
+ */
+public final class ValueDictionary {
+    /** The id looked up for a value that is not in the dictionary. */
+    public static final int NONE = -1;
+
+    /** The canonical strings of the values. */
+    private static final Interner<String> SHARED_STRINGS = new Interner<>();
+    /** The canonical area lists. */
+    private static final Interner<List<String>> SHARED_AREAS = new Interner<>();
+    /** The canonical companies. */
+    private static final Interner<Company> SHARED_COMPANIES = new Interner<>();
+    /** The canonical categories. */
+    private static final Interner<Category> SHARED_CATEGORIES = new Interner<>();
+    /** The canonical locations. */
+    private static final Interner<Location> SHARED_LOCATIONS = new Interner<>();
+
+    /** The strings of the corpus, with their ids. */
+    private final Table<String> strings = new Table<>();
+    /** The companies of the corpus, with their ids. */
+    private final Table<Company> companies = new Table<>();
+    /** The categories of the corpus, with their ids. */
+    private final Table<Category> categories = new Table<>();
+    /** The locations of the corpus, with their ids. */
+    private final Table<Location> locations = new Table<>();
+
+    /**
+     * Gets the canonical instance of a string.
+     *
+     * @param value the string, or null
+     * @return the canonical string, or null
+     */
+    public static String sharedString(String value) {
+        return value == null ? null : SHARED_STRINGS.intern(value);
+    }
+
+    /**
+     * Gets the canonical company with a name.
+     *
+     * @param displayName the name
+     * @return the company
+     */
+    public static Company sharedCompany(String displayName) {
+        return SHARED_COMPANIES.intern(new Company(sharedString(displayName)));
+    }
+
+    /**
+     * Gets the canonical category with a tag and label.
+     *
+     * @param tag   the tag
+     * @param label the label
+     * @return the category
+     */
+    public static Category sharedCategory(String tag, String label) {
+        return SHARED_CATEGORIES.intern(new Category(sharedString(tag), sharedString(label)));
+    }
+
+    /**
+     * Gets the canonical location with a name and area hierarchy.
+     *
+     * @param displayName the name
+     * @param area        the area hierarchy, broadest first, or null
+     * @return the location, whose area list is read-only
+     */
+    public static Location sharedLocation(String displayName, List<String> area) {
+        return SHARED_LOCATIONS.intern(new Location(sharedString(displayName), sharedArea(area)));
+    }
+
+    /**
+     * Gets the canonical instance of an area hierarchy.
+     *
+     * @param area the area hierarchy, or null
+     * @return the read-only canonical list, or null
+     */
+    private static List<String> sharedArea(List<String> area) {
+        if (area == null) {
+            return null;
+        }
+        String[] parts = new String[area.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = sharedString(area.get(i));
+        }
+        return SHARED_AREAS.intern(Collections.unmodifiableList(Arrays.asList(parts)));
+    }
+
+    /**
+     * Gets the canonical company with a name, adding it to the dictionary.
+     *
+     * @param displayName the name
+     * @return the company
+     */
+    public Company company(String displayName) {
+        return companies.intern(sharedCompany(displayName));
+    }
+
+    /**
+     * Gets the canonical category with a tag and label, adding it to the
+     * dictionary.
+     *
+     * @param tag   the tag
+     * @param label the label
+     * @return the category
+     */
+    public Category category(String tag, String label) {
+        return categories.intern(sharedCategory(tag, label));
+    }
+
+    /**
+     * Gets the canonical location with a name and area hierarchy, adding it to
+     * the dictionary.
+     *
+     * @param displayName the name
+     * @param area        the area hierarchy, broadest first, or null
+     * @return the location, whose area list is read-only
+     */
+    public Location location(String displayName, List<String> area) {
+        return locations.intern(sharedLocation(displayName, area));
+    }
+
+    /**
+     * Gets the id of a string, adding it to the dictionary if needed.
+     *
+     * @param value the string
+     * @return the id, the same for equal strings
+     */
+    public int idOf(String value) {
+        return strings.idOf(value);
+    }
+
+    /**
+     * Gets the id of a company, adding it to the dictionary if needed.
+     *
+     * @param company the company
+     * @return the id, the same for equal companies
+     */
+    public int idOf(Company company) {
+        return companies.idOf(company);
+    }
+
+    /**
+     * Gets the id of a category, adding it to the dictionary if needed.
+     *
+     * @param category the category
+     * @return the id, the same for equal categories
+     */
+    public int idOf(Category category) {
+        return categories.idOf(category);
+    }
+
+    /**
+     * Gets the id of a category without adding it to the dictionary.
+     *
+     * @param category the category
+     * @return the id, or {@link #NONE} if no posting of the corpus has it
+     */
+    public int findId(Category category) {
+        return categories.find(category);
+    }
+
+    /**
+     * Gets the id of a location, adding it to the dictionary if needed.
+     *
+     * @param location the location
+     * @return the id, the same for equal locations
+     */
+    public int idOf(Location location) {
+        return locations.idOf(location);
+    }
+
+    /**
+     * Gets the string with an id.
+     *
+     * @param id the id
+     * @return the string
+     */
+    public String stringOf(int id) {
+        return strings.valueOf(id);
+    }
+
+    /**
+     * Gets the company with an id.
+     *
+     * @param id the id
+     * @return the company
+     */
+    public Company companyOf(int id) {
+        return companies.valueOf(id);
+    }
+
+    /**
+     * Gets the category with an id.
+     *
+     * @param id the id
+     * @return the category
+     */
+    public Category categoryOf(int id) {
+        return categories.valueOf(id);
+    }
+
+    /**
+     * Gets the location with an id.
+     *
+     * @param id the id
+     * @return the location
+     */
+    public Location locationOf(int id) {
+        return locations.valueOf(id);
+    }
+
+    /**
+     * Gets the number of distinct companies, categories and locations.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return companies.size() + categories.size() + locations.size();
+    }
+
+    /**
+     * Canonical instances of one kind of value, held weakly.
+     *
+     * @param <T> the kind of value
+     */
+    private static final class Interner<T> {
+        /** The canonical instance of every value still in use. */
+        private final Map<T, WeakReference<T>> instances = new WeakHashMap<>();
+
+        /**
+         * Gets the canonical instance of a value, making it canonical if no
+         * equal value is in use.
+         *
+         * @param value the value
+         * @return the canonical instance
+         */
+        synchronized T intern(T value) {
+            WeakReference<T> reference = instances.get(value);
+            T canonical = reference == null ? null : reference.get();
+            if (canonical == null) {
+                instances.put(value, new WeakReference<>(value));
+                canonical = value;
+            }
+            return canonical;
+        }
+    }
+
+    /**
+     * Instances of one kind of value in a corpus, with their ids.
+     *
+     * @param <T> the kind of value
+     */
+    private static final class Table<T> {
+        /** The canonical instance and id of every value. */
+        private final Map<T, Entry<T>> entries = new ConcurrentHashMap<>();
+        /** The values by id. */
+        private final List<T> values = new ArrayList<>();
+
+        /**
+         * Gets the canonical instance of a value, adding it if needed.
+         *
+         * @param value the value
+         * @return the canonical instance
+         */
+        T intern(T value) {
+            Entry<T> entry = entries.get(value);
+            return entry != null ? entry.value() : add(value).value();
+        }
+
+        /**
+         * Gets the id of a value, adding it if needed.
+         *
+         * @param value the value
+         * @return the id
+         */
+        int idOf(T value) {
+            Entry<T> entry = entries.get(value);
+            return entry != null ? entry.id() : add(value).id();
+        }
+
+        /**
+         * Gets the id of a value without adding it.
+         *
+         * @param value the value
+         * @return the id, or {@link #NONE} if the value is not in the table
+         */
+        int find(T value) {
+            Entry<T> entry = entries.get(value);
+            return entry != null ? entry.id() : NONE;
+        }
+
+        /**
+         * Adds a value unless another thread just did.
+         *
+         * @param value the value
+         * @return the entry of the value
+         */
+        private synchronized Entry<T> add(T value) {
+            Entry<T> entry = entries.get(value);
+            if (entry == null) {
+                entry = new Entry<>(value, values.size());
+                values.add(value);
+                entries.put(value, entry);
+            }
+            return entry;
+        }
+
+        /**
+         * Gets the value with an id.
+         *
+         * @param id the id
+         * @return the value
+         */
+        synchronized T valueOf(int id) {
+            return values.get(id);
+        }
+
+        /**
+         * Gets the number of values.
+         *
+         * @return the number of values
+         */
+        synchronized int size() {
+            return values.size();
+        }
+    }
+
+    /**
+     * The canonical instance of a value and its id.
+     *
+     * @param value the canonical instance
+     * @param id    the id
+     * @param <T>   the kind of value
+     */
+    private record Entry<T>(T value, int id) {
+        // Empty
+    }
+}
@@ -0,0 +1,62 @@
+package jobplanner.model.store;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files so that a crash leaves either the old or the new content,
+ * never a truncated file.
+ */
+public final class AtomicFiles {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private AtomicFiles() {
+        // empty
+    }
+
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        /**
+         * Writes the content.
+         *
+         * @param out the stream to write to, closed by the caller
+         * @throws IOException if the content can not be written
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Replaces a file: the content is written to a temporary file next to it,
+     * synced to disk, and then moved over the file.
+     *
+     * @param target the file to replace
+     * @param writer writes the new content
+     * @throws IOException if the file can not be written
+     */
+    public static void write(Path target, Writer writer) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                writer.write(os);
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package jobplanner.model.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches data files for changes made by other processes.
+ *
+ * The directory of the files is watched with a {@link WatchService} on a
+ * background thread. A burst of events, such as a write followed by a rename,
+ * is reported as one change once no event has come in for the quiet period.
+ * Changes made by this process are reported too; the callback is expected to
+ * tell them apart, for example by comparing the files with what it last wrote.
+ */
+public final class DataFileWatcher implements Closeable {
+    /** Default time without events before a change is reported. */
+    public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofMillis(200);
+
+    /** The watch service. */
+    private final WatchService service;
+    /** The watcher thread. */
+    private final Thread thread;
+
+    /**
+     * Starts watching files.
+     *
+     * @param directory   the directory of the files
+     * @param names       the names of the files to watch
+     * @param quietPeriod time without events before a change is reported
+     * @param onChange    called on the watcher thread after the files changed
+     * @throws IOException if the directory can not be watched
+     */
+    public DataFileWatcher(Path directory, Set<String> names, Duration quietPeriod, Runnable onChange)
+            throws IOException {
+        Files.createDirectories(directory);
+        this.service = FileSystems.getDefault().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(() -> watch(names, quietPeriod.toMillis(), onChange), "data-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for events on the watched files and reports them. Runs on the
+     * watcher thread until the watcher is closed.
+     *
+     * @param names       the names of the files to watch
+     * @param quietMillis time without events before a change is reported
+     * @param onChange    called after the files changed
+     */
+    private void watch(Set<String> names, long quietMillis, Runnable onChange) {
+        try {
+            boolean pending = false;
+            while (true) {
+                WatchKey key = pending ? service.poll(quietMillis, TimeUnit.MILLISECONDS) : service.take();
+                if (key == null) {
+                    pending = false;
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Failed to reload changed data files: " + e.getMessage());
+                    }
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // an overflow has no file name, and may hide a change to a watched file
+                    pending |= event.context() == null || names.contains(event.context().toString());
+                }
+                if (!key.reset()) {
+                    return; // the directory is gone
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Stops watching.
+     *
+     * @throws IOException if the watch service can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        service.close();
+        thread.interrupt();
+    }
+}
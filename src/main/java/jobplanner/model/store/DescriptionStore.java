@@ -0,0 +1,356 @@
+package jobplanner.model.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * Keeps the descriptions of job postings on disk and loads them on demand.
+ *
+ * The description is by far the largest field of a posting, but only the
+ * description column, the posting popup and the PRETTY format read it. The
+ * store appends every description to a blob file and its id, offset and length
+ * to an index file; the index is kept in memory and the descriptions read
+ * through a bounded cache, so postings can be kept without their description
+ * ({@link #strip(Collection)}) and the description fetched when it is shown.
+ *
+ * The descriptions of a posting id are assumed not to change; a posting
+ * already in the store is not written again.
+ */
+public final class DescriptionStore implements Closeable {
+    /** Default base path of the store, without the extensions. */
+    public static final String DEFAULT_PATH = "data/descriptions";
+    /** Default number of descriptions kept in memory. */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    /** The store descriptions are looked up in, if any. */
+    private static volatile DescriptionStore active;
+
+    /** Reads descriptions for the GUI, off the event dispatch thread. */
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "description-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The blob file. */
+    private final Path blobFile;
+    /** The index file. */
+    private final Path indexFile;
+    /** The location of every description, by posting id. */
+    private final Map<String, Entry> index = new HashMap<>();
+    /** Recently read descriptions, least recently used first. */
+    private final LinkedHashMap<String, String> cache;
+    /** The open blob file. */
+    private final FileChannel blob;
+
+    /** Descriptions found in the cache. */
+    private long hits;
+    /** Descriptions read from the blob file. */
+    private long misses;
+
+    /**
+     * Creates a store. Use {@link #open(Path, int)}.
+     *
+     * @param base      the base path of the store, without the extensions
+     * @param cacheSize the number of descriptions kept in memory
+     * @throws IOException if the store can not be opened
+     */
+    private DescriptionStore(Path base, int cacheSize) throws IOException {
+        this.blobFile = base.resolveSibling(base.getFileName() + ".blob");
+        this.indexFile = base.resolveSibling(base.getFileName() + ".idx");
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.blob = FileChannel.open(blobFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        readIndex();
+    }
+
+    /**
+     * Opens a store, creating its files if needed.
+     *
+     * @param base      the base path of the store, without the extensions
+     * @param cacheSize the number of descriptions kept in memory
+     * @return the store
+     * @throws IOException if the store can not be opened
+     */
+    public static DescriptionStore open(Path base, int cacheSize) throws IOException {
+        if (base.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(base.toAbsolutePath().getParent());
+        }
+        return new DescriptionStore(base, cacheSize);
+    }
+
+    /**
+     * Gets the store descriptions are looked up in.
+     *
+     * @return the store, or null if descriptions are kept with the postings
+     */
+    public static DescriptionStore getActive() {
+        return active;
+    }
+
+    /**
+     * Sets the store descriptions are looked up in.
+     *
+     * @param store the store, or null if descriptions are kept with the postings
+     */
+    public static void setActive(DescriptionStore store) {
+        active = store;
+    }
+
+    /**
+     * Reads the index file. Entries past the end of the blob, left by a crash
+     * between writing the two files, and a torn last entry are ignored.
+     *
+     * @throws IOException if the index can not be read
+     */
+    private void readIndex() throws IOException {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        long blobSize = blob.size();
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            while (true) {
+                byte[] id = new byte[in.readUnsignedShort()];
+                in.readFully(id);
+                Entry entry = new Entry(in.readLong(), in.readInt());
+                if (entry.offset() + entry.length() <= blobSize) {
+                    index.put(new String(id, StandardCharsets.UTF_8), entry);
+                }
+                valid += 2 + id.length + 12;
+            }
+        } catch (EOFException e) {
+            // end of the index
+        }
+        if (Files.size(indexFile) > valid) {
+            // drop the torn entry, so the next entries are appended after a complete one
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    /**
+     * Writes the descriptions of postings that are not in the store yet. The
+     * descriptions are synced to disk before their index entries are written.
+     *
+     * @param jobs the postings
+     * @throws IOException if the descriptions can not be written
+     */
+    public synchronized void putAll(Collection<JobRecord> jobs) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entries);
+        Map<String, Entry> added = new HashMap<>();
+        long offset = blob.size();
+        for (JobRecord job : jobs) {
+            if (job.id() == null || job.description() == null
+                    || index.containsKey(job.id()) || added.containsKey(job.id())) {
+                continue;
+            }
+            byte[] id = job.id().getBytes(StandardCharsets.UTF_8);
+            if (id.length > 0xFFFF) {
+                continue; // not an Adzuna id, keep the description with the posting
+            }
+            byte[] bytes = job.description().getBytes(StandardCharsets.UTF_8);
+            Entry entry = new Entry(offset + data.size(), bytes.length);
+            data.write(bytes);
+            entryOut.writeShort(id.length);
+            entryOut.write(id);
+            entryOut.writeLong(entry.offset());
+            entryOut.writeInt(entry.length());
+            added.put(job.id(), entry);
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data.toByteArray());
+        while (buffer.hasRemaining()) {
+            blob.write(buffer, offset + buffer.position());
+        }
+        blob.force(false);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(indexFile,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            entries.writeTo(out);
+        }
+        index.putAll(added);
+    }
+
+    /**
+     * Writes the descriptions of postings to the store and returns the postings
+     * without them.
+     *
+     * @param jobs the postings
+     * @return the postings, in order, without the descriptions the store holds
+     * @throws IOException if the descriptions can not be written
+     */
+    public List<JobRecord> strip(Collection<JobRecord> jobs) throws IOException {
+        putAll(jobs);
+        List<JobRecord> stripped = new ArrayList<>(jobs.size());
+        for (JobRecord job : jobs) {
+            stripped.add(job.id() != null && contains(job.id()) ? withDescription(job, null) : job);
+        }
+        return stripped;
+    }
+
+    /**
+     * Copies a posting with another description.
+     *
+     * @param job         the posting
+     * @param description the description
+     * @return the copy
+     */
+    public static JobRecord withDescription(JobRecord job, String description) {
+        return new JobRecord(job.title(), description, job.company(), job.location(), job.salaryMin(),
+                job.salaryMax(), job.contractTime(), job.created(), job.redirectUrl(), job.adref(), job.category(),
+                job.latitude(), job.longitude(), job.id(), job.salaryIsPredicted());
+    }
+
+    /**
+     * Whether the store holds the description of a posting.
+     *
+     * @param id the id of the posting
+     * @return true if the store holds it
+     */
+    public synchronized boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    /**
+     * Gets the description of a posting, from the cache or the blob file.
+     *
+     * @param id the id of the posting
+     * @return the description, or null if the store does not hold it
+     * @throws IOException if the blob file can not be read
+     */
+    public synchronized String get(String id) throws IOException {
+        String description = cache.get(id);
+        if (description != null) {
+            hits++;
+            return description;
+        }
+        Entry entry = index.get(id);
+        if (entry == null) {
+            return null;
+        }
+        misses++;
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+        while (buffer.hasRemaining()) {
+            if (blob.read(buffer, entry.offset() + buffer.position()) < 0) {
+                throw new IOException("Truncated description blob " + blobFile);
+            }
+        }
+        description = new String(buffer.array(), StandardCharsets.UTF_8);
+        cache.put(id, description);
+        return description;
+    }
+
+    /**
+     * Gets the description of a posting if it is in the cache, without reading
+     * the blob file.
+     *
+     * @param id the id of the posting
+     * @return the description, or null if it is not in the cache
+     */
+    public synchronized String getCached(String id) {
+        return cache.get(id);
+    }
+
+    /**
+     * Gets the description of a posting on a background thread, for callers
+     * that must not wait on the disk, such as the GUI.
+     *
+     * @param id the id of the posting
+     * @return a future completed with the description, or null if the store
+     *         does not hold it
+     */
+    public CompletableFuture<String> getAsync(String id) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return get(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, LOADER);
+    }
+
+    /**
+     * Gets the number of descriptions in the store.
+     *
+     * @return the number of descriptions
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups read from the blob file.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Closes the blob file, and stops looking descriptions up in this store.
+     *
+     * @throws IOException if the blob file can not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (active == this) {
+            active = null;
+        }
+        blob.close();
+    }
+
+    /**
+     * The location of a description in the blob file.
+     *
+     * @param offset the offset of the description
+     * @param length the length of the description, in bytes
+     */
+    private record Entry(long offset, int length) {
+        // Empty
+    }
+}
@@ -0,0 +1,537 @@
+package jobplanner.model.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * Keeps the postings partitioned by country, category and posting month, so
+ * queries on those only read the partitions that can match.
+ *
+ * Every partition is a file of postings, one compact JSON posting per line,
+ * at {@code <country>/<category>/<yyyy-MM>.jsonl}. A manifest next to the
+ * partitions holds the number of postings and the salary and posting date
+ * bounds of every partition. A query first checks the manifest and skips the
+ * partitions whose key or bounds rule them out, then reads the rest.
+ *
+ * The manifest is written before the postings it describes, so after a crash
+ * its bounds may be wider than the postings but never narrower: a partition is
+ * never skipped while it holds a matching posting.
+ *
+ * A posting fetched again unchanged is not appended again, so the partitions
+ * grow with the distinct postings rather than with the number of searches.
+ * The keys of a partition are read the first time it is appended to.
+ *
+ * {@link #retain(RetentionPolicy, Instant)} drops stale postings and the older
+ * versions of updated ones; the partitions that only hold the latest version
+ * of recent postings are left alone.
+ */
+public final class PostingPartitions {
+    /** File name of the manifest. */
+    public static final String MANIFEST = "manifest.json";
+    /** Partition key of a posting without a country, category or date. */
+    public static final String UNKNOWN = "unknown";
+
+    /** Adzuna country codes by the first area of a posting's location. */
+    private static final Map<String, String> COUNTRY_CODES = Map.ofEntries(
+            Map.entry("uk", "gb"), Map.entry("us", "us"), Map.entry("australia", "au"),
+            Map.entry("\u00f6sterreich", "at"), Map.entry("belgique", "be"), Map.entry("belgi\u00eb", "be"),
+            Map.entry("brasil", "br"), Map.entry("canada", "ca"), Map.entry("schweiz", "ch"),
+            Map.entry("deutschland", "de"), Map.entry("espa\u00f1a", "es"), Map.entry("france", "fr"),
+            Map.entry("india", "in"), Map.entry("italia", "it"), Map.entry("m\u00e9xico", "mx"),
+            Map.entry("nederland", "nl"), Map.entry("new zealand", "nz"), Map.entry("polska", "pl"),
+            Map.entry("singapore", "sg"), Map.entry("south africa", "za"));
+    /** Reads and writes the manifest. */
+    private static final ObjectMapper MAPPER = JobCodec.getInstance().getMapper();
+
+    /** The directory of the partitions. */
+    private final Path directory;
+    /** The manifest, by partition file relative to the directory. */
+    private final Map<String, Partition> manifest = new TreeMap<>();
+
+    /**
+     * The latest version of every posting of the partitions appended to, as
+     * the hash of the posting by its key, by partition file.
+     */
+    private final Map<String, Map<String, Integer>> contents = new HashMap<>();
+
+    /** Partition files read by queries. */
+    private long filesRead;
+
+    /**
+     * Creates the partitions of a directory. Use {@link #open(Path)}.
+     *
+     * @param directory the directory of the partitions
+     */
+    private PostingPartitions(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the partitions in a directory, creating it if needed.
+     *
+     * @param directory the directory of the partitions
+     * @return the partitions
+     * @throws IOException if the manifest can not be read
+     */
+    public static PostingPartitions open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        PostingPartitions partitions = new PostingPartitions(directory);
+        Path file = directory.resolve(MANIFEST);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                for (Partition partition : MAPPER.readValue(in, new TypeReference<List<Partition>>() { })) {
+                    partitions.manifest.put(partition.file(), partition);
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Gets the partition key of a posting's country: the Adzuna country code
+     * for the first area of its location.
+     *
+     * @param job the posting
+     * @return the country code, or {@value #UNKNOWN}
+     */
+    public static String countryOf(JobRecord job) {
+        if (job.location() == null || job.location().area() == null || job.location().area().isEmpty()
+                || job.location().area().get(0) == null) {
+            return UNKNOWN;
+        }
+        String area = job.location().area().get(0).trim().toLowerCase(Locale.ROOT);
+        return COUNTRY_CODES.getOrDefault(area, sanitize(area));
+    }
+
+    /**
+     * Gets the partition key of a posting's category: its tag.
+     *
+     * @param job the posting
+     * @return the category tag, or {@value #UNKNOWN}
+     */
+    public static String categoryOf(JobRecord job) {
+        if (job.category() == null || job.category().tag() == null) {
+            return UNKNOWN;
+        }
+        return sanitize(job.category().tag().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Gets the posting time of a posting.
+     *
+     * @param job the posting
+     * @return the time, or null if the posting has none or it can not be read
+     */
+    public static Instant createdOf(JobRecord job) {
+        if (job.created() == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(job.created());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Keeps a partition key to the characters safe in a file name.
+     *
+     * @param key the key
+     * @return the key, with other characters replaced by dashes
+     */
+    private static String sanitize(String key) {
+        String safe = key.replaceAll("[^a-z0-9-]", "-");
+        return safe.isEmpty() || safe.chars().allMatch(c -> c == '-') ? UNKNOWN : safe;
+    }
+
+    /**
+     * Gets the partition file of a posting, relative to the directory.
+     *
+     * @param job the posting
+     * @return the partition file
+     */
+    private static String partitionOf(JobRecord job) {
+        Instant created = createdOf(job);
+        String month = created == null ? UNKNOWN : created.toString().substring(0, 7);
+        return countryOf(job) + "/" + categoryOf(job) + "/" + month + ".jsonl";
+    }
+
+    /**
+     * Appends postings to their partitions, skipping the postings a partition
+     * already holds in the same version. The manifest is updated first.
+     *
+     * @param jobs the postings
+     * @throws IOException if the postings can not be written
+     */
+    public synchronized void append(Collection<JobRecord> jobs) throws IOException {
+        Map<String, List<JobRecord>> byPartition = new LinkedHashMap<>();
+        for (JobRecord job : jobs) {
+            String file = partitionOf(job);
+            Integer version = contentsOf(file).put(IJobPostModel.keyOf(job), job.hashCode());
+            if (version == null || version != job.hashCode()) {
+                byPartition.computeIfAbsent(file, k -> new ArrayList<>()).add(job);
+            }
+        }
+        if (byPartition.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, List<JobRecord>> entry : byPartition.entrySet()) {
+            Partition partition = manifest.get(entry.getKey());
+            for (JobRecord job : entry.getValue()) {
+                partition = Partition.including(partition, entry.getKey(), job);
+            }
+            manifest.put(entry.getKey(), partition.withDistinct(contentsOf(entry.getKey()).size()));
+        }
+        try {
+            writeManifest();
+
+            for (Map.Entry<String, List<JobRecord>> entry : byPartition.entrySet()) {
+                Path file = directory.resolve(entry.getKey());
+                Files.createDirectories(file.getParent());
+                try (OutputStream os = Files.newOutputStream(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND)) {
+                    for (JobRecord job : entry.getValue()) {
+                        os.write(JobCodec.getInstance().writeRecord(job));
+                        os.write('\n');
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // the postings may not have been written; their partitions are read again next time
+            contents.keySet().removeAll(byPartition.keySet());
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the postings of a partition by key, reading them from its file the
+     * first time.
+     *
+     * @param file the partition file, relative to the directory
+     * @return the hash of the latest version of every posting, by key
+     * @throws IOException if the partition can not be read
+     */
+    private Map<String, Integer> contentsOf(String file) throws IOException {
+        Map<String, Integer> versions = contents.get(file);
+        if (versions == null) {
+            versions = new HashMap<>();
+            Partition partition = manifest.get(file);
+            Path path = directory.resolve(file);
+            if (partition != null && Files.exists(path)) {
+                for (JobRecord job : read(path, partition)) {
+                    versions.put(IJobPostModel.keyOf(job), job.hashCode());
+                }
+            }
+            contents.put(file, versions);
+        }
+        return versions;
+    }
+
+    /**
+     * Drops the postings a retention policy does not keep, and the older
+     * versions of the postings kept. Only the partitions holding postings
+     * posted before the cutoff, or more lines than distinct postings, are
+     * read; each is rewritten with the latest version of its kept postings,
+     * or deleted if none is kept, and its manifest entry narrowed once it is
+     * written.
+     *
+     * @param policy the retention policy
+     * @param cutoff the posting time before which postings are dropped, or null
+     * @return the number of partitions rewritten or deleted
+     * @throws IOException if a partition can not be rewritten
+     */
+    public synchronized int retain(RetentionPolicy policy, Instant cutoff) throws IOException {
+        int rewritten = 0;
+        for (Partition partition : List.copyOf(manifest.values())) {
+            boolean stale = cutoff != null && partition.createdMin() != null
+                    && partition.createdMin() < cutoff.getEpochSecond();
+            if (!stale && partition.distinct() >= partition.count()) {
+                continue;
+            }
+            Path file = directory.resolve(partition.file());
+            Map<String, JobRecord> kept = new LinkedHashMap<>();
+            if (Files.exists(file)) {
+                for (JobRecord job : read(file, partition)) {
+                    String key = IJobPostModel.keyOf(job);
+                    kept.remove(key);
+                    if (policy.keeps(job, cutoff)) {
+                        kept.put(key, job);
+                    }
+                }
+            }
+            contents.remove(partition.file());
+            if (kept.isEmpty()) {
+                Files.deleteIfExists(file);
+                manifest.remove(partition.file());
+            } else {
+                AtomicFiles.write(file, os -> {
+                    for (JobRecord job : kept.values()) {
+                        os.write(JobCodec.getInstance().writeRecord(job));
+                        os.write('\n');
+                    }
+                });
+                Partition narrowed = null;
+                for (JobRecord job : kept.values()) {
+                    narrowed = Partition.including(narrowed, partition.file(), job);
+                }
+                manifest.put(partition.file(), narrowed.withDistinct(kept.size()));
+            }
+            rewritten++;
+        }
+        if (rewritten > 0) {
+            writeManifest();
+        }
+        return rewritten;
+    }
+
+    /**
+     * Reads the postings of a partition file, skipping unreadable lines.
+     *
+     * @param file      the partition file
+     * @param partition the partition
+     * @return the postings, in the order they were written
+     * @throws IOException if the file can not be read
+     */
+    private static List<JobRecord> read(Path file, Partition partition) throws IOException {
+        List<JobRecord> jobs = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            try {
+                jobs.add(JobCodec.getInstance().readRecord(bytes, 0, bytes.length));
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable posting in partition " + partition.file());
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Replaces the manifest with the in-memory one.
+     *
+     * @throws IOException if the manifest can not be written
+     */
+    private void writeManifest() throws IOException {
+        List<Partition> partitions = List.copyOf(manifest.values());
+        AtomicFiles.write(directory.resolve(MANIFEST), os -> MAPPER.writeValue(os, partitions));
+    }
+
+    /**
+     * Gets the postings matching a query, reading only the partitions that can
+     * hold one. Postings fetched more than once appear once, in their latest
+     * version.
+     *
+     * @param query the query
+     * @return the matching postings, the most recently posted first
+     * @throws IOException if a partition can not be read
+     */
+    public synchronized List<JobRecord> query(Query query) throws IOException {
+        Map<String, JobRecord> found = new LinkedHashMap<>();
+        for (Partition partition : manifest.values()) {
+            if (!query.mayMatch(partition)) {
+                continue;
+            }
+            Path file = directory.resolve(partition.file());
+            if (!Files.exists(file)) {
+                continue; // crashed between the manifest and the postings
+            }
+            filesRead++;
+            for (JobRecord job : read(file, partition)) {
+                String key = IJobPostModel.keyOf(job);
+                found.remove(key);
+                if (query.matches(job)) {
+                    found.put(key, job);
+                }
+            }
+        }
+        List<JobRecord> jobs = new ArrayList<>(found.values());
+        jobs.sort(Comparator.comparing(PostingPartitions::createdOf,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return jobs;
+    }
+
+    /**
+     * Gets the manifest.
+     *
+     * @return the partitions, ordered by their file
+     */
+    public synchronized List<Partition> getPartitions() {
+        return List.copyOf(manifest.values());
+    }
+
+    /**
+     * Gets the number of partition files read by queries, to check the pruning.
+     *
+     * @return the number of files read
+     */
+    public synchronized long getFilesRead() {
+        return filesRead;
+    }
+
+    /**
+     * A partition of the manifest.
+     *
+     * @param file       the partition file, relative to the directory
+     * @param country    the country code
+     * @param category   the category tag
+     * @param month      the posting month, yyyy-MM
+     * @param count      the number of postings written to the partition
+     * @param distinct   the number of distinct postings of the partition, by key; 0 in manifests
+     *                   written before it was kept, so those partitions are rewritten once
+     * @param salaryMin  the lowest minimum salary of the postings
+     * @param salaryMax  the highest maximum salary of the postings
+     * @param createdMin the earliest posting time in epoch seconds, or null if the postings have none
+     * @param createdMax the latest posting time in epoch seconds, or null if the postings have none
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Partition(
+        @JsonProperty("file") String file,
+        @JsonProperty("country") String country,
+        @JsonProperty("category") String category,
+        @JsonProperty("month") String month,
+        @JsonProperty("count") long count,
+        @JsonProperty("distinct") long distinct,
+        @JsonProperty("salary_min") double salaryMin,
+        @JsonProperty("salary_max") double salaryMax,
+        @JsonProperty("created_min") Long createdMin,
+        @JsonProperty("created_max") Long createdMax
+    ) {
+        /**
+         * Widens a partition to include a posting. The number of distinct
+         * postings is left as it is; see {@link #withDistinct(long)}.
+         *
+         * @param partition the partition, or null for a new one
+         * @param file      the partition file
+         * @param job       the posting
+         * @return the widened partition
+         */
+        static Partition including(Partition partition, String file, JobRecord job) {
+            Instant instant = createdOf(job);
+            Long created = instant == null ? null : instant.getEpochSecond();
+            if (partition == null) {
+                String[] key = file.substring(0, file.length() - ".jsonl".length()).split("/");
+                return new Partition(file, key[0], key[1], key[2], 1, 1, job.salaryMin(), job.salaryMax(),
+                        created, created);
+            }
+            return new Partition(file, partition.country(), partition.category(), partition.month(),
+                    partition.count() + 1, partition.distinct(), Math.min(partition.salaryMin(), job.salaryMin()),
+                    Math.max(partition.salaryMax(), job.salaryMax()),
+                    created == null || partition.createdMin() != null && partition.createdMin() < created
+                            ? partition.createdMin() : created,
+                    created == null || partition.createdMax() != null && partition.createdMax() > created
+                            ? partition.createdMax() : created);
+        }
+
+        /**
+         * Gets the partition with another number of distinct postings.
+         *
+         * @param distinct the number of distinct postings
+         * @return the partition
+         */
+        Partition withDistinct(long distinct) {
+            return new Partition(file, country, category, month, count, distinct, salaryMin, salaryMax,
+                    createdMin, createdMax);
+        }
+    }
+
+    /**
+     * A query on the partitioned postings. A null or empty criterion matches
+     * every posting.
+     *
+     * @param countries   the country codes to match
+     * @param categories  the category tags to match
+     * @param postedAfter the earliest posting time to match
+     * @param salaryMin   the salary a posting must pay at least up to
+     * @param salaryMax   the salary a posting must start at most at
+     * @param keyword     a word the title or description must contain, ignoring case
+     */
+    public record Query(Set<String> countries, Set<String> categories, Instant postedAfter, Double salaryMin,
+            Double salaryMax, String keyword) {
+
+        /**
+         * Whether a partition can hold a posting matching the query, from its
+         * manifest entry alone.
+         *
+         * @param partition the partition
+         * @return false if no posting of the partition can match
+         */
+        boolean mayMatch(Partition partition) {
+            if (countries != null && !countries.isEmpty() && !countries.contains(partition.country())) {
+                return false;
+            }
+            if (categories != null && !categories.isEmpty() && !categories.contains(partition.category())) {
+                return false;
+            }
+            if (postedAfter != null
+                    && (partition.createdMax() == null || partition.createdMax() < postedAfter.getEpochSecond())) {
+                return false;
+            }
+            if (salaryMin != null && partition.salaryMax() < salaryMin) {
+                return false;
+            }
+            return salaryMax == null || partition.salaryMin() <= salaryMax;
+        }
+
+        /**
+         * Whether a posting matches the query.
+         *
+         * @param job the posting
+         * @return true if it matches
+         */
+        boolean matches(JobRecord job) {
+            if (countries != null && !countries.isEmpty() && !countries.contains(countryOf(job))) {
+                return false;
+            }
+            if (categories != null && !categories.isEmpty() && !categories.contains(categoryOf(job))) {
+                return false;
+            }
+            if (postedAfter != null) {
+                Instant created = createdOf(job);
+                if (created == null || created.isBefore(postedAfter)) {
+                    return false;
+                }
+            }
+            if (salaryMin != null && job.salaryMax() < salaryMin) {
+                return false;
+            }
+            if (salaryMax != null && job.salaryMin() > salaryMax) {
+                return false;
+            }
+            if (keyword == null || keyword.isBlank()) {
+                return true;
+            }
+            String word = keyword.toLowerCase(Locale.ROOT);
+            String description = IJobPostModel.descriptionOf(job);
+            return job.title() != null && job.title().toLowerCase(Locale.ROOT).contains(word)
+                    || description != null && description.toLowerCase(Locale.ROOT).contains(word);
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package jobplanner.model.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import jobplanner.model.models.DateIndex;
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+
+/**
+ * A read-only, memory-mapped snapshot of job postings in a binary columnar
+ * format.
+ *
+ * The salaries, coordinates and creation times are fixed-width columns; the
+ * text fields are string columns, each with a table of offsets and lengths
+ * into a shared data area. Opening a snapshot only maps the file and checks its
+ * header, so it takes the same time whatever the number of postings. A posting
+ * is decoded when it is asked for, and the numeric columns can be read without
+ * decoding postings at all.
+ *
+ * <pre>
+ * header   magic, version, rows, stamp
+ * fixed    salary_min, salary_max, latitude, longitude (double), created (epoch seconds)
+ * flags    one byte per row: which of company, location, area and category are present
+ * strings  per string column and row: offset and length, -1 for null
+ * data     the UTF-8 bytes of the strings
+ * </pre>
+ */
+public final class PostingSnapshot {
+    /** Marks the start of a snapshot file. */
+    private static final long MAGIC = 0x4A50534E41505331L; // "JPSNAPS1"
+    /** Version of the format. */
+    private static final int VERSION = 1;
+    /** Size of the header. */
+    private static final int HEADER = 24;
+
+    /** Creation time of a posting without a parsable one. */
+    public static final long NO_CREATED = Long.MIN_VALUE;
+
+    /** Index of the salary_min column. */
+    private static final int SALARY_MIN = 0;
+    /** Index of the salary_max column. */
+    private static final int SALARY_MAX = 1;
+    /** Index of the latitude column. */
+    private static final int LATITUDE = 2;
+    /** Index of the longitude column. */
+    private static final int LONGITUDE = 3;
+    /** Index of the created column. */
+    private static final int CREATED = 4;
+    /** Number of fixed-width columns. */
+    private static final int FIXED_COLUMNS = 5;
+
+    /** Index of the title column. */
+    private static final int TITLE = 0;
+    /** Index of the description column. */
+    private static final int DESCRIPTION = 1;
+    /** Index of the company name column. */
+    private static final int COMPANY = 2;
+    /** Index of the location name column. */
+    private static final int LOCATION = 3;
+    /** Index of the location area column, the parts joined by {@link #AREA_SEPARATOR}. */
+    private static final int AREA = 4;
+    /** Index of the contract time column. */
+    private static final int CONTRACT_TIME = 5;
+    /** Index of the column of creation times that are not whole UTC seconds, null for the others. */
+    private static final int CREATED_TEXT = 6;
+    /** Index of the redirect url column. */
+    private static final int REDIRECT_URL = 7;
+    /** Index of the adref column. */
+    private static final int ADREF = 8;
+    /** Index of the category tag column. */
+    private static final int CATEGORY_TAG = 9;
+    /** Index of the category label column. */
+    private static final int CATEGORY_LABEL = 10;
+    /** Index of the id column. */
+    private static final int ID = 11;
+    /** Index of the salary is predicted column. */
+    private static final int SALARY_IS_PREDICTED = 12;
+    /** Number of string columns. */
+    private static final int STRING_COLUMNS = 13;
+
+    /** Flag of a posting with a company. */
+    private static final int HAS_COMPANY = 1;
+    /** Flag of a posting with a location. */
+    private static final int HAS_LOCATION = 2;
+    /** Flag of a posting with a location area. */
+    private static final int HAS_AREA = 4;
+    /** Flag of a posting with a category. */
+    private static final int HAS_CATEGORY = 8;
+
+    /** Separates the parts of a location area. */
+    private static final char AREA_SEPARATOR = '\u001F';
+
+    /** Number of decoded postings kept by the list view. */
+    private static final int CACHE_SIZE = 256;
+
+    /** The mapped file. */
+    private final ByteBuffer buffer;
+    /** Number of postings. */
+    private final int rows;
+    /** Stamp of the data the snapshot was written from. */
+    private final long stamp;
+    /** Offset of the flags. */
+    private final int flagsOffset;
+    /** Offset of the string tables. */
+    private final int stringsOffset;
+    /** Offset of the string data. */
+    private final int dataOffset;
+    /** The index of the postings by day, built when first needed. */
+    private volatile DateIndex dateIndex;
+
+    /**
+     * Creates a snapshot over a mapped file. Use {@link #open(Path)}.
+     *
+     * @param buffer the mapped file
+     * @param rows   number of postings
+     * @param stamp  stamp of the data the snapshot was written from
+     */
+    private PostingSnapshot(ByteBuffer buffer, int rows, long stamp) {
+        this.buffer = buffer;
+        this.rows = rows;
+        this.stamp = stamp;
+        this.flagsOffset = HEADER + FIXED_COLUMNS * 8 * rows;
+        this.stringsOffset = align(flagsOffset + rows);
+        this.dataOffset = stringsOffset + STRING_COLUMNS * 8 * rows;
+    }
+
+    /**
+     * Maps a snapshot file.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file can not be mapped or is not a snapshot
+     */
+    public static PostingSnapshot open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a posting snapshot: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+            throw new IOException("Not a posting snapshot: " + file);
+        }
+        int rows = buffer.getInt(12);
+        if (rows < 0 || align(HEADER + (long) FIXED_COLUMNS * 8 * rows + rows)
+                + (long) STRING_COLUMNS * 8 * rows > buffer.capacity()) {
+            throw new IOException("Truncated posting snapshot: " + file);
+        }
+        return new PostingSnapshot(buffer, rows, buffer.getLong(16));
+    }
+
+    /**
+     * Writes postings as a snapshot. The snapshot is written to a temporary file
+     * and then moved into place, so mappings of the previous snapshot stay valid.
+     *
+     * @param file  the snapshot file
+     * @param jobs  the postings, in order
+     * @param stamp identifies the data the snapshot was written from
+     * @throws IOException if the snapshot can not be written
+     */
+    public static void write(Path file, List<JobRecord> jobs, long stamp) throws IOException {
+        int rows = jobs.size();
+        long dataOffset = align(HEADER + (long) FIXED_COLUMNS * 8 * rows + rows) + (long) STRING_COLUMNS * 8 * rows;
+        if (dataOffset > Integer.MAX_VALUE) {
+            throw new IOException("Too many postings for a snapshot: " + rows);
+        }
+        int flagsOffset = HEADER + FIXED_COLUMNS * 8 * rows;
+        int stringsOffset = align(flagsOffset + rows);
+        ByteBuffer fixed = ByteBuffer.allocate((int) dataOffset);
+        fixed.putLong(0, MAGIC).putInt(8, VERSION).putInt(12, rows).putLong(16, stamp);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        for (int row = 0; row < rows; row++) {
+            JobRecord job = jobs.get(row);
+            long created = epochOf(job.created());
+            fixedAt(fixed, SALARY_MIN, row, rows, Double.doubleToRawLongBits(job.salaryMin()));
+            fixedAt(fixed, SALARY_MAX, row, rows, Double.doubleToRawLongBits(job.salaryMax()));
+            fixedAt(fixed, LATITUDE, row, rows, Double.doubleToRawLongBits(job.latitude()));
+            fixedAt(fixed, LONGITUDE, row, rows, Double.doubleToRawLongBits(job.longitude()));
+            fixedAt(fixed, CREATED, row, rows, created);
+
+            String[] strings = new String[STRING_COLUMNS];
+            int flags = 0;
+            strings[TITLE] = job.title();
+            strings[DESCRIPTION] = job.description();
+            if (job.company() != null) {
+                flags |= HAS_COMPANY;
+                strings[COMPANY] = job.company().displayName();
+            }
+            if (job.location() != null) {
+                flags |= HAS_LOCATION;
+                strings[LOCATION] = job.location().displayName();
+                if (job.location().area() != null) {
+                    flags |= HAS_AREA;
+                    strings[AREA] = String.join(String.valueOf(AREA_SEPARATOR), job.location().area());
+                }
+            }
+            strings[CONTRACT_TIME] = job.contractTime();
+            if (created == NO_CREATED || !Instant.ofEpochSecond(created).toString().equals(job.created())) {
+                strings[CREATED_TEXT] = job.created();
+            }
+            strings[REDIRECT_URL] = job.redirectUrl();
+            strings[ADREF] = job.adref();
+            if (job.category() != null) {
+                flags |= HAS_CATEGORY;
+                strings[CATEGORY_TAG] = job.category().tag();
+                strings[CATEGORY_LABEL] = job.category().label();
+            }
+            strings[ID] = job.id();
+            strings[SALARY_IS_PREDICTED] = job.salaryIsPredicted();
+            fixed.put(flagsOffset + row, (byte) flags);
+
+            for (int column = 0; column < STRING_COLUMNS; column++) {
+                int entry = stringsOffset + (column * rows + row) * 8;
+                if (strings[column] == null) {
+                    fixed.putInt(entry, 0).putInt(entry + 4, -1);
+                } else {
+                    byte[] bytes = strings[column].getBytes(StandardCharsets.UTF_8);
+                    if (dataOffset + data.size() + bytes.length > Integer.MAX_VALUE) {
+                        throw new IOException("Too much text for a snapshot");
+                    }
+                    fixed.putInt(entry, data.size()).putInt(entry + 4, bytes.length);
+                    data.write(bytes);
+                }
+            }
+        }
+
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "snapshot", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                fixed.rewind();
+                while (fixed.hasRemaining()) {
+                    channel.write(fixed);
+                }
+                ByteBuffer text = ByteBuffer.wrap(data.toByteArray());
+                while (text.hasRemaining()) {
+                    channel.write(text);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Rounds an offset up to a multiple of 8.
+     *
+     * @param offset the offset
+     * @return the aligned offset
+     */
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    /**
+     * Rounds an offset up to a multiple of 8.
+     *
+     * @param offset the offset
+     * @return the aligned offset
+     */
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Writes a value of a fixed-width column.
+     *
+     * @param buffer the snapshot being written
+     * @param column the column
+     * @param row    the row
+     * @param rows   number of rows
+     * @param value  the value
+     */
+    private static void fixedAt(ByteBuffer buffer, int column, int row, int rows, long value) {
+        buffer.putLong(HEADER + (column * rows + row) * 8, value);
+    }
+
+    /**
+     * Parses the creation time of a posting.
+     *
+     * @param created the creation time, as an ISO-8601 instant
+     * @return the time in epoch seconds, or {@link #NO_CREATED}
+     */
+    private static long epochOf(String created) {
+        if (created == null) {
+            return NO_CREATED;
+        }
+        try {
+            return Instant.parse(created).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return NO_CREATED;
+        }
+    }
+
+    /**
+     * Gets the number of postings.
+     *
+     * @return the number of postings
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Gets the stamp of the data the snapshot was written from.
+     *
+     * @return the stamp
+     */
+    public long stamp() {
+        return stamp;
+    }
+
+    /**
+     * Gets the minimum salary of a posting.
+     *
+     * @param row the row of the posting
+     * @return the minimum salary
+     */
+    public double salaryMin(int row) {
+        return Double.longBitsToDouble(fixed(SALARY_MIN, row));
+    }
+
+    /**
+     * Gets the maximum salary of a posting.
+     *
+     * @param row the row of the posting
+     * @return the maximum salary
+     */
+    public double salaryMax(int row) {
+        return Double.longBitsToDouble(fixed(SALARY_MAX, row));
+    }
+
+    /**
+     * Gets the latitude of a posting.
+     *
+     * @param row the row of the posting
+     * @return the latitude
+     */
+    public double latitude(int row) {
+        return Double.longBitsToDouble(fixed(LATITUDE, row));
+    }
+
+    /**
+     * Gets the longitude of a posting.
+     *
+     * @param row the row of the posting
+     * @return the longitude
+     */
+    public double longitude(int row) {
+        return Double.longBitsToDouble(fixed(LONGITUDE, row));
+    }
+
+    /**
+     * Gets the creation time of a posting.
+     *
+     * @param row the row of the posting
+     * @return the time in epoch seconds, or {@link #NO_CREATED}
+     */
+    public long created(int row) {
+        return fixed(CREATED, row);
+    }
+
+    /**
+     * Gets the rows of the postings posted in a window, in order, through the
+     * date index.
+     *
+     * @param from the earliest posting time, inclusive, or null for no limit
+     * @param to   the latest posting time, exclusive, or null for no limit
+     * @return the matching rows
+     */
+    public int[] postedBetween(Instant from, Instant to) {
+        return dateIndex().between(from, to);
+    }
+
+    /**
+     * Gets the index of the postings by the day they were posted, building it
+     * the first time from the created column, without decoding the postings.
+     *
+     * @return the index
+     */
+    public DateIndex dateIndex() {
+        DateIndex index = dateIndex;
+        if (index == null) {
+            index = DateIndex.of(rows, this::created);
+            dateIndex = index; // a race only builds the same index twice
+        }
+        return index;
+    }
+
+    /**
+     * Gets the id of a posting.
+     *
+     * @param row the row of the posting
+     * @return the id
+     */
+    public String id(int row) {
+        return string(ID, row);
+    }
+
+    /**
+     * Decodes a posting.
+     *
+     * @param row the row of the posting
+     * @return the posting
+     */
+    public JobRecord get(int row) {
+        Objects.checkIndex(row, rows);
+        int flags = buffer.get(flagsOffset + row);
+        Company company = (flags & HAS_COMPANY) != 0 ? Company.of(string(COMPANY, row)) : null;
+        Location location = null;
+        if ((flags & HAS_LOCATION) != 0) {
+            List<String> area = null;
+            if ((flags & HAS_AREA) != 0) {
+                String joined = string(AREA, row);
+                area = joined.isEmpty() ? List.of() : Arrays.asList(joined.split(String.valueOf(AREA_SEPARATOR), -1));
+            }
+            location = Location.of(string(LOCATION, row), area);
+        }
+        Category category = (flags & HAS_CATEGORY) != 0
+                ? Category.of(string(CATEGORY_TAG, row), string(CATEGORY_LABEL, row))
+                : null;
+        String created = string(CREATED_TEXT, row);
+        if (created == null && created(row) != NO_CREATED) {
+            created = Instant.ofEpochSecond(created(row)).toString();
+        }
+        return new JobRecord(string(TITLE, row), string(DESCRIPTION, row), company, location,
+                salaryMin(row), salaryMax(row), string(CONTRACT_TIME, row), created, string(REDIRECT_URL, row),
+                string(ADREF, row), category, latitude(row), longitude(row), string(ID, row),
+                string(SALARY_IS_PREDICTED, row));
+    }
+
+    /**
+     * Gets a list view of the postings, decoding each posting when it is asked
+     * for. The most recently decoded postings are kept, as a table asks for the
+     * same row once per column.
+     *
+     * @return the postings
+     */
+    public List<JobRecord> asList() {
+        return new Rows();
+    }
+
+    /**
+     * Reads a value of a fixed-width column.
+     *
+     * @param column the column
+     * @param row    the row
+     * @return the value
+     */
+    private long fixed(int column, int row) {
+        return buffer.getLong(HEADER + (column * rows + row) * 8);
+    }
+
+    /**
+     * Reads a value of a string column.
+     *
+     * @param column the column
+     * @param row    the row
+     * @return the value, or null
+     */
+    private String string(int column, int row) {
+        int entry = stringsOffset + (column * rows + row) * 8;
+        int length = buffer.getInt(entry + 4);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(dataOffset + buffer.getInt(entry), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The list view of the postings.
+     */
+    private final class Rows extends AbstractList<JobRecord> implements RandomAccess {
+        /** Recently decoded postings, by row modulo the cache size. */
+        private final JobRecord[] cache = new JobRecord[CACHE_SIZE];
+        /** The rows of the cached postings, plus one so 0 marks an empty slot. */
+        private final int[] cachedRows = new int[CACHE_SIZE];
+
+        @Override
+        public JobRecord get(int row) {
+            Objects.checkIndex(row, rows);
+            int slot = row & (CACHE_SIZE - 1);
+            synchronized (cache) {
+                if (cachedRows[slot] == row + 1) {
+                    return cache[slot];
+                }
+            }
+            JobRecord job = PostingSnapshot.this.get(row);
+            synchronized (cache) {
+                cache[slot] = job;
+                cachedRows[slot] = row + 1;
+            }
+            return job;
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+    }
+}
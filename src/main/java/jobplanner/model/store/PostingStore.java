@@ -0,0 +1,848 @@
+package jobplanner.model.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * A log-structured store of the job postings fetched over time.
+ *
+ * Every batch of postings, typically the results of one search, is written as
+ * a new immutable segment: a file of postings, one compact JSON posting per
+ * line. Segments are never rewritten, so saving a search costs the same no
+ * matter how many postings the store already holds.
+ *
+ * An in-memory index points every job id at the line of its most recent
+ * version. When the store holds too many segments, they are merged in the
+ * background into a single segment that keeps only the latest version of each
+ * posting. The index is rebuilt in the background by scanning the segments
+ * when the store is opened; the calls that need it wait for it.
+ *
+ * The store also keeps a {@link PostingSnapshot} of its postings, which can be
+ * mapped without reading the segments. It is stamped with the newest segment
+ * it covers and rewritten in the background after every append once it has
+ * been used.
+ *
+ * Every appended posting is also written to the {@link PostingPartitions} in
+ * the {@code partitions} directory of the store, so queries on country,
+ * category, posting date and salary only read the partitions that can match.
+ * A store without partitions has them built from its segments when it is
+ * opened.
+ *
+ * A {@link RetentionPolicy} drops stale postings when the store is compacted,
+ * so the disk space and the time to read the store follow the postings kept
+ * rather than every posting ever fetched.
+ *
+ * Only one process writes to a store at a time: the first to open it holds a
+ * lock on its {@code store.lock} file until it closes the store. Other
+ * processes open the store read-only; they skip their appends instead of
+ * writing segments the writer does not know about.
+ */
+public final class PostingStore implements Closeable {
+    /** Default directory of the store. */
+    public static final String DIRECTORY = "data/postings";
+    /** Number of segments that triggers a background merge. */
+    public static final int MERGE_THRESHOLD = 8;
+
+    /** File name of the writer lock. */
+    private static final String LOCK = "store.lock";
+    /** Directory name of the partitions. */
+    private static final String PARTITIONS = "partitions";
+    /** File name of the snapshot. */
+    private static final String SNAPSHOT = "postings.snapshot";
+    /** File name of a segment. */
+    private static final Pattern SEGMENT = Pattern.compile("segment-(\\d{10})\\.jsonl");
+    /** The JSON field holding the id of a posting, as written by the codec. */
+    private static final byte[] ID_FIELD = "\"id\":\"".getBytes(StandardCharsets.UTF_8);
+
+    /** The directory of the segments. */
+    private final Path directory;
+    /** The segments by sequence number. */
+    private final NavigableMap<Long, Path> segments = new TreeMap<>();
+    /** The location of the latest version of every posting, by key. */
+    private final Map<String, Pointer> index = new HashMap<>();
+    /** Runs the appends and merges, in order. */
+    private final ExecutorService worker;
+    /** Held while merging, so only one merge runs at a time. */
+    private final Object mergeLock = new Object();
+    /** The postings partitioned by country, category and month. */
+    private final PostingPartitions partitions;
+
+    /** The open lock file. */
+    private final FileChannel lockChannel;
+    /** The writer lock, or null if another process writes to the store. */
+    private final FileLock writerLock;
+
+    /** Completed once every segment is indexed. */
+    private final CompletableFuture<Void> indexed;
+    /** Completed once the partitions hold the postings of every segment. */
+    private final CompletableFuture<Void> partitioned;
+
+    /** Sequence number of the next segment. */
+    private long nextSegment = 1;
+    /** Whether the snapshot is in use and kept up to date. */
+    private boolean snapshotUsed;
+    /** Whether a skipped append has been reported. */
+    private boolean readOnlyReported;
+
+    /**
+     * Creates a store over a directory. Use {@link #open(Path)}.
+     *
+     * @param directory the directory of the segments
+     */
+    private PostingStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "posting-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        this.writerLock = tryLock(lockChannel);
+        listSegments();
+        this.partitions = PostingPartitions.open(directory.resolve(PARTITIONS));
+        this.indexed = CompletableFuture.runAsync(() -> {
+            try {
+                indexSegments();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, worker);
+        if (writerLock != null && partitions.getPartitions().isEmpty() && !segments.isEmpty()) {
+            this.partitioned = CompletableFuture.runAsync(() -> {
+                try {
+                    partitions.append(getAll());
+                } catch (IOException | UncheckedIOException e) {
+                    System.err.println("Failed to partition the posting store: " + e.getMessage());
+                }
+            }, worker);
+        } else {
+            this.partitioned = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Opens the store in a directory, creating it if needed, and starts
+     * indexing its segments in the background.
+     *
+     * @param directory the directory of the store
+     * @return the store
+     * @throws IOException if the directory can not be listed
+     */
+    public static PostingStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new PostingStore(directory);
+    }
+
+    /**
+     * Takes the writer lock of a store if no other process holds it.
+     *
+     * @param channel the open lock file
+     * @return the lock, or null if another process or store holds it
+     * @throws IOException if the lock file can not be locked
+     */
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null; // held by another store of this process
+        }
+    }
+
+    /**
+     * Whether this store writes to its directory. A store opened while another
+     * process writes to the directory is read-only.
+     *
+     * @return true if appends, merges and compactions are written
+     */
+    public boolean isWritable() {
+        return writerLock != null;
+    }
+
+    /**
+     * Fails if this store is read-only.
+     *
+     * @throws IOException if another process writes to the store
+     */
+    private void checkWritable() throws IOException {
+        if (writerLock == null) {
+            throw new IOException("The posting store " + directory + " is in use by another process");
+        }
+    }
+
+    /**
+     * Lists the segments. Leftovers from an interrupted write are deleted.
+     *
+     * @throws IOException if the directory can not be listed
+     */
+    private void listSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                } else if (writerLock != null && file.getFileName().toString().endsWith(".tmp")) {
+                    Files.delete(file);
+                }
+            }
+        }
+        if (!segments.isEmpty()) {
+            nextSegment = segments.lastKey() + 1;
+        }
+    }
+
+    /**
+     * Indexes every posting of the segments listed on open, later segments
+     * taking precedence.
+     *
+     * @throws IOException if the segments can not be read
+     */
+    private void indexSegments() throws IOException {
+        NavigableMap<Long, Path> listed;
+        synchronized (this) {
+            listed = new TreeMap<>(segments);
+        }
+        for (Map.Entry<Long, Path> segment : listed.entrySet()) {
+            byte[] data = Files.readAllBytes(segment.getValue());
+            Map<String, Pointer> pointers = new HashMap<>();
+            forEachLine(data, (offset, length) -> {
+                String key = keyAt(data, offset, length);
+                if (key != null) {
+                    pointers.put(key, new Pointer(segment.getKey(), offset, length));
+                }
+            });
+            synchronized (this) {
+                index.putAll(pointers);
+            }
+        }
+    }
+
+    /**
+     * Waits for the segments to be indexed.
+     *
+     * @throws IOException if the segments could not be read
+     */
+    private void awaitIndex() throws IOException {
+        try {
+            indexed.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the key of the posting on a line without decoding it. The codec
+     * writes compact JSON with the id as a top-level string field; quotes inside
+     * string values are escaped, so the first unescaped {@code "id":"} is the
+     * id. Postings without an id are decoded.
+     *
+     * @param data   the segment
+     * @param offset the offset of the line
+     * @param length the length of the line
+     * @return the key, or null if the line can not be read
+     */
+    private static String keyAt(byte[] data, int offset, int length) {
+        int end = offset + length;
+        outer:
+        for (int i = offset; i <= end - ID_FIELD.length; i++) {
+            for (int j = 0; j < ID_FIELD.length; j++) {
+                if (data[i + j] != ID_FIELD[j]) {
+                    continue outer;
+                }
+            }
+            int start = i + ID_FIELD.length;
+            for (int k = start; k < end; k++) {
+                if (data[k] == '"') {
+                    return new String(data, start, k - start, StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+        try {
+            return IJobPostModel.keyOf(JobCodec.getInstance().readRecord(data, offset, length));
+        } catch (IOException e) {
+            System.err.println("Skipping unreadable posting in the posting store");
+            return null;
+        }
+    }
+
+    /**
+     * Calls an action for every non-empty line of a segment.
+     *
+     * @param data   the segment
+     * @param action called with the offset and length of each line
+     */
+    private static void forEachLine(byte[] data, LineAction action) {
+        int start = 0;
+        for (int i = 0; i <= data.length; i++) {
+            if (i == data.length || data[i] == '\n') {
+                if (i > start) {
+                    action.accept(start, i - start);
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Writes postings as a new segment in the background.
+     *
+     * @param jobs the postings, typically the results of one search
+     * @return a future completed once the segment is written
+     */
+    public CompletableFuture<Void> appendAsync(Collection<JobRecord> jobs) {
+        if (writerLock == null) {
+            synchronized (this) {
+                if (!readOnlyReported) {
+                    readOnlyReported = true;
+                    System.err.println("Not keeping postings, " + directory + " is in use by another process");
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        List<JobRecord> copy = List.copyOf(jobs);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                append(copy);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, worker);
+    }
+
+    /**
+     * Writes postings as a new segment. Starts a background merge when the store holds too many segments.
+     *
+     * @param jobs the postings, typically the results of one search
+     * @throws IOException if the segment can not be written
+     */
+    public void append(Collection<JobRecord> jobs) throws IOException {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        checkWritable();
+        awaitIndex();
+        long sequence;
+        synchronized (this) {
+            sequence = nextSegment++;
+        }
+        List<Pointer> pointers = new ArrayList<>(jobs.size());
+        List<String> keys = new ArrayList<>(jobs.size());
+        Path tmp = writeSegment(jobs, sequence, pointers, keys);
+
+        boolean merge;
+        boolean refresh;
+        synchronized (this) {
+            segments.put(sequence, install(tmp, sequence));
+            for (int i = 0; i < keys.size(); i++) {
+                Pointer current = index.get(keys.get(i));
+                if (current == null || current.segment() <= sequence) {
+                    index.put(keys.get(i), pointers.get(i));
+                }
+            }
+            merge = segments.size() >= MERGE_THRESHOLD;
+            refresh = snapshotUsed;
+        }
+        partitions.append(jobs);
+        if (merge) {
+            worker.execute(() -> {
+                try {
+                    merge();
+                } catch (IOException e) {
+                    System.err.println("Failed to merge the posting store: " + e.getMessage());
+                }
+            });
+        }
+        if (refresh) {
+            worker.execute(() -> {
+                try {
+                    refreshSnapshot();
+                } catch (IOException e) {
+                    System.err.println("Failed to write the posting snapshot: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the postings of a segment to a temporary file and syncs it to disk.
+     *
+     * @param jobs     the postings to write, in order
+     * @param sequence the sequence number of the segment
+     * @param pointers receives the location of every posting written
+     * @param keys     receives the key of every posting written
+     * @return the temporary file
+     * @throws IOException if the segment can not be written
+     */
+    private Path writeSegment(Collection<JobRecord> jobs, long sequence, List<Pointer> pointers,
+            List<String> keys) throws IOException {
+        Path tmp = Files.createTempFile(directory, "segment", ".tmp");
+        try {
+            long offset = 0;
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                for (JobRecord job : jobs) {
+                    byte[] line = JobCodec.getInstance().writeRecord(job);
+                    os.write(line);
+                    os.write('\n');
+                    pointers.add(new Pointer(sequence, (int) offset, line.length));
+                    keys.add(IJobPostModel.keyOf(job));
+                    offset += line.length + 1;
+                }
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return tmp;
+    }
+
+    /**
+     * Moves a written segment into place, so a segment is either complete or
+     * missing.
+     *
+     * @param tmp      the temporary file the segment was written to
+     * @param sequence the sequence number of the segment
+     * @return the segment file
+     * @throws IOException if the segment can not be moved
+     */
+    private Path install(Path tmp, long sequence) throws IOException {
+        Path file = directory.resolve(String.format("segment-%010d.jsonl", sequence));
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return file;
+    }
+
+    /**
+     * Merges every segment into one that only keeps the latest version of each
+     * posting. The merged segment takes the place of the newest merged segment;
+     * segments appended while the merge runs are left alone.
+     *
+     * @throws IOException if the merged segment can not be written
+     */
+    public void merge() throws IOException {
+        checkWritable();
+        awaitIndex();
+        synchronized (mergeLock) {
+            NavigableMap<Long, Path> inputs;
+            synchronized (this) {
+                if (segments.size() < 2) {
+                    return;
+                }
+                inputs = new TreeMap<>(segments);
+            }
+            merge(inputs, inputs.lastKey(), job -> true);
+        }
+    }
+
+    /**
+     * Applies a retention policy: merges every segment into a new one that only
+     * keeps the latest version of the postings the policy keeps, then drops the
+     * other postings, and the older versions of updated ones, from the
+     * partitions. Only the partitions holding postings older than the policy's
+     * cutoff, or older versions, are rewritten.
+     *
+     * @param policy the retention policy
+     * @return what the compaction dropped and reclaimed
+     * @throws IOException if the store can not be rewritten
+     */
+    public Compaction compact(RetentionPolicy policy) throws IOException {
+        checkWritable();
+        awaitIndex();
+        partitioned.join();
+        long before = diskUsage();
+        int dropped;
+        boolean refresh;
+        synchronized (mergeLock) {
+            NavigableMap<Long, Path> inputs;
+            Instant cutoff = policy.cutoff(Instant.now());
+            synchronized (this) {
+                inputs = segments.isEmpty() || !policy.dropsAny() && segments.size() < 2 ? null
+                        : new TreeMap<>(segments);
+            }
+            if (inputs == null) {
+                partitions.retain(policy, cutoff);
+                return new Compaction(0, before, diskUsage());
+            }
+            dropped = merge(inputs, inputs.lastKey(), job -> policy.keeps(job, cutoff));
+            partitions.retain(policy, cutoff);
+            synchronized (this) {
+                refresh = snapshotUsed;
+            }
+            Path snapshotFile = directory.resolve(SNAPSHOT);
+            if (dropped > 0 && (refresh || Files.exists(snapshotFile))) {
+                // the stamp of the snapshot still matches, but it holds the dropped postings; it is replaced
+                // by a rename rather than deleted, as it may be mapped, which Windows does not let be deleted
+                PostingSnapshot.write(snapshotFile, getAll(), stamp());
+            } else if (refresh) {
+                refreshSnapshot();
+            }
+        }
+        return new Compaction(dropped, before, diskUsage());
+    }
+
+    /**
+     * Applies a retention policy in the background.
+     *
+     * @param policy the retention policy
+     * @return a future completed with what the compaction dropped and reclaimed
+     */
+    public CompletableFuture<Compaction> compactAsync(RetentionPolicy policy) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return compact(policy);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, worker);
+    }
+
+    /**
+     * Gets the disk space used by the store.
+     *
+     * @return the size of every file of the store, in bytes
+     * @throws IOException if the store can not be listed
+     */
+    private long diskUsage() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            long total = 0;
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                total += Files.size(file);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Merges segments into one.
+     *
+     * @param inputs the segments to merge, by sequence number
+     * @param target the sequence number of the merged segment, the newest input
+     * @param keep   which of the latest versions of the postings to keep
+     * @return the number of postings dropped
+     * @throws IOException if the merged segment can not be written
+     */
+    private int merge(NavigableMap<Long, Path> inputs, long target, Predicate<JobRecord> keep)
+            throws IOException {
+        // newest segment first, so the merged segment keeps the newest-first order
+        List<JobRecord> live = new ArrayList<>();
+        List<String> droppedKeys = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : inputs.descendingMap().entrySet()) {
+            for (JobRecord job : readLive(segment.getKey(), segment.getValue())) {
+                if (keep.test(job)) {
+                    live.add(job);
+                } else {
+                    droppedKeys.add(IJobPostModel.keyOf(job));
+                }
+            }
+        }
+
+        List<Pointer> pointers = new ArrayList<>(live.size());
+        List<String> keys = new ArrayList<>(live.size());
+        Path tmp = writeSegment(live, target, pointers, keys);
+
+        // readers hold the lock too, so none of them reads the new file through an old pointer
+        synchronized (this) {
+            install(tmp, target);
+            for (int i = 0; i < keys.size(); i++) {
+                Pointer current = index.get(keys.get(i));
+                // postings appended since the merge started keep pointing at their new segment
+                if (current != null && inputs.containsKey(current.segment())) {
+                    index.put(keys.get(i), pointers.get(i));
+                }
+            }
+            for (String key : droppedKeys) {
+                Pointer current = index.get(key);
+                if (current != null && inputs.containsKey(current.segment())) {
+                    index.remove(key);
+                }
+            }
+            for (Long sequence : inputs.keySet()) {
+                if (sequence != target) {
+                    segments.remove(sequence);
+                }
+            }
+        }
+        for (Map.Entry<Long, Path> input : inputs.entrySet()) {
+            if (input.getKey() != target) {
+                Files.deleteIfExists(input.getValue());
+            }
+        }
+        return droppedKeys.size();
+    }
+
+    /**
+     * Reads the postings of a segment that are the latest version of their id.
+     *
+     * @param sequence the sequence number of the segment
+     * @param file     the segment file
+     * @return the live postings, in segment order
+     * @throws IOException if the segment can not be read
+     */
+    private List<JobRecord> readLive(long sequence, Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        List<JobRecord> live = new ArrayList<>();
+        List<IOException> errors = new ArrayList<>();
+        forEachLine(data, (offset, length) -> {
+            String key = keyAt(data, offset, length);
+            Pointer pointer;
+            synchronized (this) {
+                pointer = index.get(key);
+            }
+            if (pointer != null && pointer.segment() == sequence && pointer.offset() == offset) {
+                try {
+                    live.add(JobCodec.getInstance().readRecord(data, offset, length));
+                } catch (IOException e) {
+                    errors.add(e);
+                }
+            }
+        });
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+        return live;
+    }
+
+    /**
+     * Gets the latest version of a posting.
+     *
+     * @param id the id of the posting
+     * @return the posting, or null if the store does not hold it
+     * @throws IOException if the segment can not be read
+     */
+    public JobRecord get(String id) throws IOException {
+        awaitIndex();
+        Pointer pointer;
+        ByteBuffer buffer;
+        synchronized (this) {
+            pointer = index.get(id);
+            if (pointer == null) {
+                return null;
+            }
+            Path file = segments.get(pointer.segment());
+            buffer = ByteBuffer.allocate(pointer.length());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, pointer.offset() + buffer.position()) < 0) {
+                        throw new IOException("Truncated segment " + file);
+                    }
+                }
+            }
+        }
+        return JobCodec.getInstance().readRecord(buffer.array(), 0, pointer.length());
+    }
+
+    /**
+     * Gets the latest version of every posting, the most recently fetched
+     * first.
+     *
+     * @return the postings
+     * @throws IOException if a segment can not be read
+     */
+    public List<JobRecord> getAll() throws IOException {
+        awaitIndex();
+        // a merge in progress would otherwise swap a segment between reading it and checking the index
+        synchronized (mergeLock) {
+            NavigableMap<Long, Path> current;
+            synchronized (this) {
+                current = new TreeMap<>(segments);
+            }
+            List<JobRecord> all = new ArrayList<>();
+            for (Map.Entry<Long, Path> segment : current.descendingMap().entrySet()) {
+                all.addAll(readLive(segment.getKey(), segment.getValue()));
+            }
+            return all;
+        }
+    }
+
+    /**
+     * Gets a snapshot of the postings, the most recently fetched first. The
+     * snapshot on disk is mapped if it covers the newest segment; otherwise it
+     * is rewritten from the segments first.
+     *
+     * @return the snapshot
+     * @throws IOException if the snapshot can not be read or written
+     */
+    public PostingSnapshot snapshot() throws IOException {
+        synchronized (this) {
+            snapshotUsed = true;
+        }
+        Path file = directory.resolve(SNAPSHOT);
+        if (Files.exists(file)) {
+            try {
+                PostingSnapshot snapshot = PostingSnapshot.open(file);
+                // a read-only store maps the snapshot the writer keeps up to date
+                if (snapshot.stamp() == stamp() || writerLock == null) {
+                    return snapshot;
+                }
+            } catch (IOException e) {
+                System.err.println("Rewriting the posting snapshot: " + e.getMessage());
+            }
+        }
+        refreshSnapshot();
+        return PostingSnapshot.open(file);
+    }
+
+    /**
+     * Rewrites the snapshot from the segments if it does not cover the newest
+     * segment.
+     *
+     * @throws IOException if the snapshot can not be written
+     */
+    private void refreshSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT);
+        synchronized (mergeLock) {
+            long stamp = stamp();
+            if (Files.exists(file)) {
+                try {
+                    if (PostingSnapshot.open(file).stamp() == stamp) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // unreadable, rewritten below
+                }
+            }
+            PostingSnapshot.write(file, getAll(), stamp);
+        }
+    }
+
+    /**
+     * Gets the stamp of the current postings, the sequence number of the newest
+     * segment. Merges keep the newest sequence number and the postings it holds.
+     *
+     * @return the stamp, 0 for an empty store
+     */
+    private synchronized long stamp() {
+        return segments.isEmpty() ? 0 : segments.lastKey();
+    }
+
+    /**
+     * Gets the postings partitioned by country, category and month, for
+     * queries that should skip the partitions that can not match. Waits for
+     * the partitions of a store opened without them to be built.
+     *
+     * @return the partitions
+     */
+    public PostingPartitions partitions() {
+        partitioned.join();
+        return partitions;
+    }
+
+    /**
+     * Gets the number of distinct postings.
+     *
+     * @return the number of postings
+     * @throws IOException if the segments could not be indexed
+     */
+    public int size() throws IOException {
+        awaitIndex();
+        synchronized (this) {
+            return index.size();
+        }
+    }
+
+    /**
+     * Gets the number of segments.
+     *
+     * @return the number of segments
+     */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Waits for the pending appends and merges, then stops the background
+     * thread and releases the writer lock.
+     */
+    @Override
+    public void close() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            lockChannel.close(); // releases the lock
+        } catch (IOException e) {
+            System.err.println("Failed to release the posting store lock: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called for a line of a segment.
+     */
+    @FunctionalInterface
+    private interface LineAction {
+        /**
+         * Handles a line.
+         *
+         * @param offset the offset of the line
+         * @param length the length of the line, without the line break
+         */
+        void accept(int offset, int length);
+    }
+
+    /**
+     * What a compaction did.
+     *
+     * @param dropped     the number of postings dropped
+     * @param bytesBefore the disk space used by the store before
+     * @param bytesAfter  the disk space used by the store after
+     */
+    public record Compaction(int dropped, long bytesBefore, long bytesAfter) {
+        // Empty
+    }
+
+    /**
+     * The location of a posting.
+     *
+     * @param segment the sequence number of the segment
+     * @param offset  the offset of the posting in the segment
+     * @param length  the length of the posting
+     */
+    private record Pointer(long segment, int offset, int length) {
+        // Empty
+    }
+}
@@ -0,0 +1,95 @@
+package jobplanner.model.store;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import jobplanner.model.models.IJobPostModel;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * Which postings the posting store keeps when it is compacted: postings
+ * posted within the maximum age, postings without a readable posting date, and
+ * postings that are pinned, such as the saved jobs, whatever their age.
+ *
+ * @param maxAge the age past which postings are dropped, or null to keep every posting
+ * @param pinned the keys of the postings kept whatever their age
+ */
+public record RetentionPolicy(Duration maxAge, Set<String> pinned) {
+
+    /**
+     * Gets the policy that keeps every posting.
+     *
+     * @return the policy
+     */
+    public static RetentionPolicy keepAll() {
+        return new RetentionPolicy(null, Set.of());
+    }
+
+    /**
+     * Gets the policy configured with the JOBPLANNER_RETENTION_DAYS variable,
+     * the number of days postings are kept. Postings are kept forever if it is
+     * not set or not positive.
+     *
+     * @param saved the saved jobs, kept whatever their age
+     * @return the policy
+     */
+    public static RetentionPolicy configured(Collection<JobRecord> saved) {
+        String days = Dotenv.configure().ignoreIfMissing().load().get("JOBPLANNER_RETENTION_DAYS", "0");
+        try {
+            return ofDays(Long.parseLong(days.trim()), saved);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid retention " + days + ", keeping every posting");
+            return keepAll();
+        }
+    }
+
+    /**
+     * Gets the policy that keeps postings for a number of days.
+     *
+     * @param days  the number of days, or 0 or less to keep every posting
+     * @param saved the saved jobs, kept whatever their age
+     * @return the policy
+     */
+    public static RetentionPolicy ofDays(long days, Collection<JobRecord> saved) {
+        return new RetentionPolicy(days > 0 ? Duration.ofDays(days) : null,
+                saved.stream().map(IJobPostModel::keyOf).collect(Collectors.toUnmodifiableSet()));
+    }
+
+    /**
+     * Whether the policy drops any posting.
+     *
+     * @return true if postings past an age are dropped
+     */
+    public boolean dropsAny() {
+        return maxAge != null;
+    }
+
+    /**
+     * Gets the posting time before which postings are dropped.
+     *
+     * @param now the current time
+     * @return the cutoff, or null if every posting is kept
+     */
+    public Instant cutoff(Instant now) {
+        return maxAge == null ? null : now.minus(maxAge);
+    }
+
+    /**
+     * Whether a posting is kept.
+     *
+     * @param job    the posting
+     * @param cutoff the posting time before which postings are dropped, or null
+     * @return true if the posting is kept
+     */
+    public boolean keeps(JobRecord job, Instant cutoff) {
+        if (cutoff == null || pinned.contains(IJobPostModel.keyOf(job))) {
+            return true;
+        }
+        Instant created = PostingPartitions.createdOf(job);
+        return created == null || !created.isBefore(cutoff);
+    }
+}
@@ -0,0 +1,692 @@
+package jobplanner.model.store;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jobplanner.model.formatters.Formats;
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * Persists the saved jobs without blocking the caller.
+ *
+ * Every change is appended to a {@link WriteAheadLog} next to the snapshot file
+ * ({@code savedjobs.json.wal} for {@code savedjobs.json}) on a background
+ * thread. Once no change has come in for the debounce delay, or the log has
+ * grown too long, the log is compacted: the whole list is written to a
+ * temporary file that then replaces the snapshot, and the log is emptied. On
+ * startup the good entries of the log are replayed onto the snapshot, so a crash
+ * at any point leaves the last good snapshot plus every synced change.
+ *
+ * The log is synced as configured by JOBPLANNER_FSYNC (see
+ * {@link WriteAheadLog#configuredPolicy()}). Journals written by earlier
+ * versions, one JSON change per line in {@code savedjobs.json.journal}, are
+ * still replayed and removed by the next compaction.
+ *
+ * The snapshot keeps the format of the saved jobs file (Smile or CBOR for
+ * their extensions, JSON otherwise), so readers that do not
+ * know about the journal still see the list as of the last compaction; use
+ * {@link #readJobs(Path)} to also replay the journal. Replaying the journal is
+ * idempotent, so a crash between replacing the snapshot and emptying the journal
+ * loses nothing.
+ *
+ * Several processes, such as two GUIs or the GUI and the command line, can use
+ * the same file. Every write takes a lock on {@code savedjobs.json.lock} and,
+ * if another process changed the files since this store last saw them, first
+ * reloads them, so no process overwrites the changes of another.
+ * {@link #watch(Consumer)} reports those changes as they happen.
+ */
+public final class SavedJobStore implements Closeable {
+    /** Default time to wait for more changes before compacting. */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofSeconds(2);
+    /** Journal length that triggers a compaction right away. */
+    private static final int MAX_JOURNAL_ENTRIES = 500;
+    /** Suffix of the journal file of earlier versions. */
+    private static final String JOURNAL_SUFFIX = ".journal";
+    /** Suffix of the log file. */
+    private static final String LOG_SUFFIX = ".wal";
+    /** Suffix of the lock file. */
+    private static final String LOCK_SUFFIX = ".lock";
+    /** Locks of this process by lock file, as a file lock is held by the whole process. */
+    private static final Map<Path, Object> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    /** Mapper for the journal entries. */
+    private static final ObjectMapper MAPPER = JobCodec.getInstance().getMapper();
+
+    /** The snapshot file. */
+    private final Path snapshot;
+    /** The journal file of earlier versions. */
+    private final Path journal;
+    /** The log file. */
+    private final Path logFile;
+    /** The lock file. */
+    private final Path lockFile;
+    /** When the log is synced. */
+    private final WriteAheadLog.SyncPolicy syncPolicy;
+    /** The sync interval, with {@link WriteAheadLog.SyncPolicy#INTERVAL}. */
+    private final Duration syncInterval;
+    /** Time to wait for more changes before compacting, in milliseconds. */
+    private final long debounceMillis;
+    /** Runs every read and write of the files, in order. */
+    private final ScheduledExecutorService worker;
+
+    /** The saved jobs as of the last change, only used on the worker. */
+    private Map<String, JobRecord> jobs;
+    /** The log, opened on the first change, only used on the worker. */
+    private WriteAheadLog log;
+    /** The files as this store last read or wrote them, only used on the worker. */
+    private FileState seen;
+    /** Watches the files for changes by other processes, or null. */
+    private DataFileWatcher watcher;
+    /** The pending compaction, only used on the worker. */
+    private ScheduledFuture<?> compaction;
+    /** Whether the shutdown hook has been installed. */
+    private boolean hooked;
+    /** Told about failed writes. */
+    private volatile Consumer<IOException> errorHandler =
+            e -> System.err.println("Failed to save jobs: " + e.getMessage());
+
+    /**
+     * Creates a store. Nothing is read or written until the first change.
+     *
+     * @param snapshot the snapshot file
+     * @param debounce time to wait for more changes before compacting
+     */
+    public SavedJobStore(Path snapshot, Duration debounce) {
+        this(snapshot, debounce, WriteAheadLog.configuredPolicy(), WriteAheadLog.configuredInterval());
+    }
+
+    /**
+     * Creates a store with a log sync policy. Nothing is read or written until
+     * the first change.
+     *
+     * @param snapshot     the snapshot file
+     * @param debounce     time to wait for more changes before compacting
+     * @param syncPolicy   when the log is synced to disk
+     * @param syncInterval the sync interval, with {@link WriteAheadLog.SyncPolicy#INTERVAL}
+     */
+    public SavedJobStore(Path snapshot, Duration debounce, WriteAheadLog.SyncPolicy syncPolicy,
+            Duration syncInterval) {
+        this.snapshot = snapshot;
+        this.journal = journalOf(snapshot);
+        this.logFile = logOf(snapshot);
+        this.lockFile = snapshot.resolveSibling(snapshot.getFileName() + LOCK_SUFFIX);
+        this.syncPolicy = syncPolicy;
+        this.syncInterval = syncInterval;
+        this.debounceMillis = debounce.toMillis();
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "saved-job-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a store with the default debounce delay.
+     *
+     * @param snapshot the snapshot file
+     */
+    public SavedJobStore(Path snapshot) {
+        this(snapshot, DEFAULT_DEBOUNCE);
+    }
+
+    /**
+     * Sets the handler told about failed writes. The handler runs on the
+     * background thread.
+     *
+     * @param handler the handler
+     */
+    public void setErrorHandler(Consumer<IOException> handler) {
+        this.errorHandler = handler;
+    }
+
+    /**
+     * Gets the journal file of a snapshot.
+     *
+     * @param snapshot the snapshot file
+     * @return the journal file
+     */
+    private static Path journalOf(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Gets the log file of a snapshot.
+     *
+     * @param snapshot the snapshot file
+     * @return the log file
+     */
+    private static Path logOf(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + LOG_SUFFIX);
+    }
+
+    /**
+     * Gets the codec of a snapshot file: Smile or CBOR for their extensions,
+     * JSON otherwise.
+     *
+     * @param snapshot the snapshot file
+     * @return the codec
+     */
+    private static JobCodec codecOf(Path snapshot) {
+        return JobCodec.getInstance(Formats.storageFormatOf(snapshot.getFileName().toString()));
+    }
+
+    /**
+     * Reads the saved jobs: the snapshot, with the log replayed on top.
+     *
+     * @param snapshot the snapshot file
+     * @return the saved jobs, in the order they were saved
+     * @throws IOException if neither the snapshot nor a journal exist, or the
+     *                     snapshot can not be read
+     */
+    public static List<JobRecord> readJobs(Path snapshot) throws IOException {
+        return new ArrayList<>(readState(snapshot).values());
+    }
+
+    /**
+     * Reads the snapshot and replays the journal of earlier versions and the
+     * log on top of it.
+     *
+     * @param snapshot the snapshot file
+     * @return the saved jobs by key, in the order they were saved
+     * @throws IOException if neither the snapshot nor a log exist, or the
+     *                     snapshot can not be read
+     */
+    private static Map<String, JobRecord> readState(Path snapshot) throws IOException {
+        Path journal = journalOf(snapshot);
+        Path logFile = logOf(snapshot);
+        Map<String, JobRecord> state = new LinkedHashMap<>();
+        if (Files.exists(snapshot)) {
+            try (InputStream in = Files.newInputStream(snapshot)) {
+                for (JobRecord job : codecOf(snapshot).readList(in)) {
+                    state.put(IJobPostModel.keyOf(job), job);
+                }
+            }
+        } else if (!Files.exists(journal) && !Files.exists(logFile)) {
+            throw new NoSuchFileException(snapshot.toString());
+        }
+
+        if (Files.exists(journal)) {
+            try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        replay(state, line);
+                    }
+                }
+            }
+        }
+        WriteAheadLog.replay(logFile, entry -> replay(state, new String(entry, StandardCharsets.UTF_8)));
+        return state;
+    }
+
+    /**
+     * Applies one journal entry.
+     *
+     * @param state the saved jobs by key
+     * @param line  the journal entry
+     */
+    private static void replay(Map<String, JobRecord> state, String line) {
+        try {
+            apply(state, MAPPER.readValue(line, Entry.class));
+        } catch (JsonProcessingException e) {
+            // a torn write at the end of an old journal after a crash; the log checks its entries
+            System.err.println("Skipping unreadable saved jobs journal entry");
+        }
+    }
+
+    /**
+     * Applies one change.
+     *
+     * @param state the saved jobs by key
+     * @param entry the change
+     */
+    private static void apply(Map<String, JobRecord> state, Entry entry) {
+        switch (entry.op()) {
+            case Entry.ADD:
+                state.putIfAbsent(IJobPostModel.keyOf(entry.job()), entry.job());
+                break;
+            case Entry.REMOVE:
+                state.remove(IJobPostModel.keyOf(entry.job()));
+                break;
+            case Entry.CLEAR:
+                state.clear();
+                break;
+            default:
+                System.err.println("Skipping unknown saved jobs journal entry " + entry.op());
+        }
+    }
+
+    /**
+     * Records jobs that were saved.
+     *
+     * @param added the jobs saved
+     */
+    public void added(Collection<JobRecord> added) {
+        List<Entry> entries = new ArrayList<>(added.size());
+        for (JobRecord job : added) {
+            entries.add(new Entry(Entry.ADD, job));
+        }
+        submit(entries);
+    }
+
+    /**
+     * Records jobs that were removed.
+     *
+     * @param removed the jobs removed
+     */
+    public void removed(Collection<JobRecord> removed) {
+        List<Entry> entries = new ArrayList<>(removed.size());
+        for (JobRecord job : removed) {
+            entries.add(new Entry(Entry.REMOVE, job));
+        }
+        submit(entries);
+    }
+
+    /**
+     * Records that the saved jobs were replaced by another list.
+     *
+     * @param replacement the new saved jobs
+     */
+    public void replaced(Collection<JobRecord> replacement) {
+        List<Entry> entries = new ArrayList<>(replacement.size() + 1);
+        entries.add(new Entry(Entry.CLEAR, null));
+        for (JobRecord job : replacement) {
+            entries.add(new Entry(Entry.ADD, job));
+        }
+        submit(entries);
+    }
+
+    /**
+     * Hands changes to the background thread.
+     *
+     * @param entries the journal entries of the changes
+     */
+    private void submit(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        installShutdownHook();
+        worker.execute(() -> {
+            try {
+                append(entries);
+                if (log.size() >= MAX_JOURNAL_ENTRIES) {
+                    compact();
+                } else {
+                    scheduleCompaction();
+                }
+            } catch (IOException e) {
+                errorHandler.accept(e);
+            }
+        });
+    }
+
+    /**
+     * Makes sure pending changes are compacted when the application exits.
+     */
+    private synchronized void installShutdownHook() {
+        if (!hooked) {
+            hooked = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "saved-job-store-shutdown"));
+        }
+    }
+
+    /**
+     * Appends entries to the log and applies them to the saved jobs. Runs on
+     * the worker.
+     *
+     * @param entries the entries
+     * @throws IOException if the log can not be written
+     */
+    private void append(List<Entry> entries) throws IOException {
+        List<byte[]> batch = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            batch.add(MAPPER.writeValueAsBytes(entry));
+        }
+        locked(() -> {
+            if (log == null) {
+                log = new WriteAheadLog(logFile, syncPolicy, syncInterval);
+            }
+            log.appendAll(batch);
+            for (Entry entry : entries) {
+                apply(jobs, entry);
+            }
+        });
+    }
+
+    /**
+     * Runs an action holding the lock of the files, after catching up with the
+     * changes other processes made to them. Runs on the worker.
+     *
+     * @param action the action
+     * @throws IOException if the files can not be locked or read, or the action fails
+     */
+    private void locked(LockedAction action) throws IOException {
+        Object processLock = PROCESS_LOCKS.computeIfAbsent(lockFile.toAbsolutePath().normalize(),
+                file -> new Object());
+        synchronized (processLock) {
+            if (lockFile.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(lockFile.toAbsolutePath().getParent());
+            }
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+                catchUp();
+                action.run();
+                seen = FileState.of(snapshot, logFile);
+            }
+        }
+    }
+
+    /**
+     * Reloads the saved jobs if the files changed since this store last read
+     * or wrote them. Runs on the worker, holding the lock.
+     *
+     * @throws IOException if the files can not be read
+     */
+    private void catchUp() throws IOException {
+        if (jobs != null && FileState.of(snapshot, logFile).equals(seen)) {
+            return;
+        }
+        if (log != null) {
+            // another process appended to or emptied the log; reopen it at its end
+            log.close();
+            log = null;
+        }
+        jobs = null;
+        loadState();
+    }
+
+    /**
+     * Watches the files for changes made by other processes. The listener
+     * runs on a background thread and is told what changed, so views can
+     * update the rows that changed instead of reloading every job.
+     *
+     * @param listener told about the changes
+     * @throws IOException if the files can not be watched
+     */
+    public synchronized void watch(Consumer<Changes> listener) throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        Path directory = snapshot.toAbsolutePath().getParent();
+        watcher = new DataFileWatcher(directory, Set.of(snapshot.getFileName().toString(),
+                logFile.getFileName().toString()), DataFileWatcher.DEFAULT_QUIET_PERIOD,
+                () -> worker.execute(() -> reload(listener)));
+        worker.execute(() -> {
+            try {
+                locked(() -> { });
+            } catch (IOException e) {
+                errorHandler.accept(e);
+            }
+        });
+    }
+
+    /**
+     * Reloads the files after they changed and tells the listener what changed.
+     * Changes made by this store are not reported. Runs on the worker.
+     *
+     * @param listener told about the changes
+     */
+    private void reload(Consumer<Changes> listener) {
+        Map<String, JobRecord> before = jobs == null ? Map.of() : new LinkedHashMap<>(jobs);
+        try {
+            locked(() -> { });
+        } catch (IOException e) {
+            errorHandler.accept(e);
+            return;
+        }
+        Changes changes = Changes.between(before, jobs);
+        if (!changes.isEmpty()) {
+            listener.accept(changes);
+        }
+    }
+
+    /**
+     * Loads the saved jobs on first use. Runs on the worker.
+     *
+     * @throws IOException if the snapshot can not be read
+     */
+    private void loadState() throws IOException {
+        if (jobs != null) {
+            return;
+        }
+        try {
+            jobs = readState(snapshot);
+        } catch (NoSuchFileException e) {
+            jobs = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Compacts the journal once no change has come in for the debounce delay.
+     * Runs on the worker.
+     */
+    private void scheduleCompaction() {
+        if (compaction != null) {
+            compaction.cancel(false);
+        }
+        compaction = worker.schedule(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                errorHandler.accept(e);
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the saved jobs to the snapshot and empties the log. Runs on the
+     * worker.
+     *
+     * @throws IOException if the snapshot can not be written
+     */
+    private void compact() throws IOException {
+        if (compaction != null) {
+            compaction.cancel(false);
+            compaction = null;
+        }
+        if (jobs == null) {
+            return;
+        }
+        locked(() -> {
+            if ((log == null || log.size() == 0) && !Files.exists(journal)) {
+                return;
+            }
+            AtomicFiles.write(snapshot, os -> codecOf(snapshot).writeList(jobs.values(), os, true));
+            Files.deleteIfExists(journal);
+            if (log != null) {
+                log.reset();
+            }
+        });
+    }
+
+    /**
+     * Waits until every change so far is compacted into the snapshot.
+     */
+    public void flush() {
+        try {
+            worker.submit(() -> {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    errorHandler.accept(e);
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            // the store is closed, everything was flushed when it closed
+        } catch (ExecutionException e) {
+            errorHandler.accept(new IOException("Failed to save jobs", e.getCause()));
+        }
+    }
+
+    /**
+     * Flushes the changes, closes the log and stops the background thread.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    errorHandler.accept(e);
+                }
+                watcher = null;
+            }
+        }
+        flush();
+        try {
+            worker.submit(() -> {
+                if (log != null) {
+                    try {
+                        log.close();
+                    } catch (IOException e) {
+                        errorHandler.accept(e);
+                    }
+                    log = null;
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException | ExecutionException e) {
+            // already closed
+        }
+        worker.shutdown();
+    }
+
+    /**
+     * What another process changed in the saved jobs.
+     *
+     * @param added   the jobs saved
+     * @param removed the jobs removed
+     * @param updated the jobs saved again with other details, such as a new description
+     */
+    public record Changes(List<JobRecord> added, List<JobRecord> removed, List<JobRecord> updated) {
+
+        /**
+         * Compares the saved jobs before and after a reload.
+         *
+         * @param before the saved jobs by key before
+         * @param after  the saved jobs by key after
+         * @return the changes
+         */
+        static Changes between(Map<String, JobRecord> before, Map<String, JobRecord> after) {
+            List<JobRecord> added = new ArrayList<>();
+            List<JobRecord> updated = new ArrayList<>();
+            for (Map.Entry<String, JobRecord> job : after.entrySet()) {
+                JobRecord old = before.get(job.getKey());
+                if (old == null) {
+                    added.add(job.getValue());
+                } else if (!old.equals(job.getValue())) {
+                    updated.add(job.getValue());
+                }
+            }
+            List<JobRecord> removed = new ArrayList<>();
+            for (Map.Entry<String, JobRecord> job : before.entrySet()) {
+                if (!after.containsKey(job.getKey())) {
+                    removed.add(job.getValue());
+                }
+            }
+            return new Changes(added, removed, updated);
+        }
+
+        /**
+         * Whether nothing changed.
+         *
+         * @return true if no job was added, removed or updated
+         */
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && updated.isEmpty();
+        }
+    }
+
+    /**
+     * The size and modification time of the files, to tell whether another
+     * process changed them.
+     *
+     * @param snapshotSize     the size of the snapshot, -1 if missing
+     * @param snapshotModified the modification time of the snapshot in milliseconds, -1 if missing
+     * @param logSize          the size of the log, -1 if missing
+     */
+    private record FileState(long snapshotSize, long snapshotModified, long logSize) {
+
+        /**
+         * Gets the state of the files.
+         *
+         * @param snapshot the snapshot file
+         * @param logFile  the log file
+         * @return the state
+         * @throws IOException if the files can not be read
+         */
+        static FileState of(Path snapshot, Path logFile) throws IOException {
+            boolean hasSnapshot = Files.exists(snapshot);
+            return new FileState(hasSnapshot ? Files.size(snapshot) : -1,
+                    hasSnapshot ? Files.getLastModifiedTime(snapshot).toMillis() : -1,
+                    Files.exists(logFile) ? Files.size(logFile) : -1);
+        }
+    }
+
+    /**
+     * An action run holding the lock of the files.
+     */
+    @FunctionalInterface
+    private interface LockedAction {
+        /**
+         * Runs the action.
+         *
+         * @throws IOException if the action fails
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * A journal entry.
+     *
+     * @param op  the change: add, remove or clear
+     * @param job the job added or removed, null for clear
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Entry(
+        @JsonProperty("op") String op,
+        @JsonProperty("job") JobRecord job
+    ) {
+        /** A job was saved. */
+        static final String ADD = "add";
+        /** A job was removed. */
+        static final String REMOVE = "remove";
+        /** Every job was removed. */
+        static final String CLEAR = "clear";
+    }
+}
@@ -0,0 +1,364 @@
+package jobplanner.model.store;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * An append-only log of opaque entries, for recording changes before they
+ * reach a snapshot.
+ *
+ * Every entry is framed with its length and a CRC32C checksum of its bytes, so
+ * a write torn by a crash, or a corrupted tail, is detected on recovery: the log
+ * is replayed up to the last good entry and the rest is cut off.
+ *
+ * When the log is synced to disk depends on its {@link SyncPolicy}. With
+ * {@link SyncPolicy#ALWAYS} an append returns once its entry is on disk;
+ * appends from several threads share a sync (group commit), so the number of
+ * durable appends per second is not bound by the number of syncs per second.
+ */
+public final class WriteAheadLog implements Closeable {
+    /** Size of the frame around an entry: its length and checksum. */
+    private static final int FRAME = 8;
+    /** Largest entry accepted, to detect a corrupted length. */
+    private static final int MAX_ENTRY = 64 * 1024 * 1024;
+
+    /** When the log is synced to disk. */
+    public enum SyncPolicy {
+        /** After every append; an append returns once durable. */
+        ALWAYS,
+        /** Every interval; a crash loses at most the appends of the last interval. */
+        INTERVAL,
+        /** Never, the operating system writes the log back; a crash may lose recent appends. */
+        NEVER
+    }
+
+    /** The log file. */
+    private final Path file;
+    /** The open log file. */
+    private final FileChannel channel;
+    /** When the log is synced. */
+    private final SyncPolicy policy;
+    /** Syncs the log every interval, with {@link SyncPolicy#INTERVAL}. */
+    private final ScheduledExecutorService syncer;
+    /** Held while syncing, so concurrent appends share one sync. */
+    private final Object syncLock = new Object();
+
+    /** Entries in the log. */
+    private int entries;
+    /** Number of the last entry written, counting from the log being opened. */
+    private long written;
+    /** Number of the last entry known to be on disk. */
+    private volatile long synced;
+    /** Number of syncs done. */
+    private long syncs;
+
+    /**
+     * Opens a log, creating it if needed. A torn or corrupt tail left by a
+     * crash is cut off.
+     *
+     * @param file     the log file
+     * @param policy   when the log is synced
+     * @param interval the sync interval, with {@link SyncPolicy#INTERVAL}
+     * @throws IOException if the log can not be opened
+     */
+    public WriteAheadLog(Path file, SyncPolicy policy, Duration interval) throws IOException {
+        this.file = file;
+        this.policy = policy;
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Recovery recovery = scan(file, entry -> { });
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() > recovery.validBytes()) {
+            System.err.println("Cutting off " + (channel.size() - recovery.validBytes())
+                    + " bytes of torn or corrupt log entries from " + file);
+            channel.truncate(recovery.validBytes());
+            channel.force(false);
+        }
+        channel.position(recovery.validBytes());
+        this.entries = recovery.entries();
+
+        if (policy == SyncPolicy.INTERVAL) {
+            long millis = Math.max(1, interval.toMillis());
+            this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "write-ahead-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * Gets the sync policy configured with the JOBPLANNER_FSYNC variable:
+     * always (the default), interval or never.
+     *
+     * @return the policy
+     */
+    public static SyncPolicy configuredPolicy() {
+        String name = Dotenv.configure().ignoreIfMissing().load().get("JOBPLANNER_FSYNC", "always");
+        try {
+            return SyncPolicy.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown fsync policy " + name + ", using " + SyncPolicy.ALWAYS);
+            return SyncPolicy.ALWAYS;
+        }
+    }
+
+    /**
+     * Gets the sync interval configured with the JOBPLANNER_FSYNC_INTERVAL_MS
+     * variable, 100 ms by default.
+     *
+     * @return the interval
+     */
+    public static Duration configuredInterval() {
+        String millis = Dotenv.configure().ignoreIfMissing().load().get("JOBPLANNER_FSYNC_INTERVAL_MS", "100");
+        try {
+            return Duration.ofMillis(Long.parseLong(millis.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid fsync interval " + millis + ", using 100 ms");
+            return Duration.ofMillis(100);
+        }
+    }
+
+    /**
+     * Reads the good entries of a log, without changing it.
+     *
+     * @param file     the log file
+     * @param consumer called with every good entry, in order
+     * @return the number of good entries, 0 if the log does not exist
+     * @throws IOException if the log can not be read
+     */
+    public static int replay(Path file, Consumer<byte[]> consumer) throws IOException {
+        return scan(file, consumer).entries();
+    }
+
+    /**
+     * Reads the good entries of a log, stopping at the first torn or corrupt
+     * one.
+     *
+     * @param file     the log file
+     * @param consumer called with every good entry, in order
+     * @return the number and length of the good entries
+     * @throws IOException if the log can not be read
+     */
+    private static Recovery scan(Path file, Consumer<byte[]> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return new Recovery(0, 0);
+        }
+        int count = 0;
+        long valid = 0;
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > MAX_ENTRY) {
+                    break;
+                }
+                byte[] entry = new byte[length];
+                in.readFully(entry);
+                crc.reset();
+                crc.update(entry);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                consumer.accept(entry);
+                count++;
+                valid += FRAME + length;
+            }
+        } catch (EOFException e) {
+            // the end of the log, or a torn last entry
+        }
+        return new Recovery(count, valid);
+    }
+
+    /**
+     * Appends an entry. With {@link SyncPolicy#ALWAYS}, returns once the entry
+     * is on disk.
+     *
+     * @param entry the entry
+     * @throws IOException if the entry can not be written
+     */
+    public void append(byte[] entry) throws IOException {
+        appendAll(List.of(entry));
+    }
+
+    /**
+     * Appends entries in one write. With {@link SyncPolicy#ALWAYS}, returns once
+     * the entries are on disk.
+     *
+     * @param batch the entries
+     * @throws IOException if the entries can not be written
+     */
+    public void appendAll(List<byte[]> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (byte[] entry : batch) {
+            if (entry.length > MAX_ENTRY) {
+                throw new IOException("Log entry too large: " + entry.length + " bytes");
+            }
+            size += FRAME + entry.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32C crc = new CRC32C();
+        for (byte[] entry : batch) {
+            crc.reset();
+            crc.update(entry);
+            buffer.putInt(entry.length).putInt((int) crc.getValue()).put(entry);
+        }
+        buffer.flip();
+
+        long mine;
+        synchronized (this) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            entries += batch.size();
+            mine = ++written;
+        }
+        if (policy == SyncPolicy.ALWAYS) {
+            sync(mine);
+        }
+    }
+
+    /**
+     * Syncs the log to disk up to a write. A thread finding its write already
+     * synced by another thread's sync returns right away.
+     *
+     * @param upTo the number of the write
+     * @throws IOException if the log can not be synced
+     */
+    private void sync(long upTo) throws IOException {
+        if (synced >= upTo) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= upTo) {
+                return; // synced while this thread waited for the lock
+            }
+            long target;
+            synchronized (this) {
+                target = written;
+            }
+            channel.force(false);
+            synced = target;
+            syncs++;
+        }
+    }
+
+    /**
+     * Syncs everything written so far, reporting failures. Runs on the interval
+     * syncer.
+     */
+    private void syncQuietly() {
+        try {
+            long target;
+            synchronized (this) {
+                target = written;
+            }
+            sync(target);
+        } catch (IOException e) {
+            System.err.println("Failed to sync " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Syncs everything written so far to disk, whatever the policy.
+     *
+     * @throws IOException if the log can not be synced
+     */
+    public void sync() throws IOException {
+        long target;
+        synchronized (this) {
+            target = written;
+        }
+        sync(target);
+    }
+
+    /**
+     * Empties the log, once its entries are in a snapshot.
+     *
+     * @throws IOException if the log can not be emptied
+     */
+    public void reset() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(false);
+                entries = 0;
+                synced = written;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of entries in the log.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries;
+    }
+
+    /**
+     * Gets the number of syncs done, to compare with the number of appends.
+     *
+     * @return the number of syncs
+     */
+    public long getSyncs() {
+        synchronized (syncLock) {
+            return syncs;
+        }
+    }
+
+    /**
+     * Syncs and closes the log.
+     *
+     * @throws IOException if the log can not be synced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdown();
+        }
+        if (channel.isOpen()) {
+            sync();
+            channel.close();
+        }
+    }
+
+    /**
+     * The good prefix of a log.
+     *
+     * @param entries    the number of good entries
+     * @param validBytes the length of the good entries, with their frames
+     */
+    private record Recovery(int entries, long validBytes) {
+        // Empty
+    }
+}
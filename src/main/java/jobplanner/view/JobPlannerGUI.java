@@ -43,7 +43,8 @@ public class JobPlannerGUI extends JFrame {
 
         // Initialize panels
         filterPanel = new FilterPanel();
-        jobListPanel = new JobListPanel(new JobTableModel(jobs.getJobs()));
+        // the model may be a whole posting store, only the latest postings are listed until a search
+        jobListPanel = new JobListPanel(new JobTableModel(jobs.getRecentJobs(JobPostModel.RECENT_JOBS)));
         savedJobsPanel = new SavedJobsPanel(new SavedJobTableModel(savedJobs.getSavedJobs()));
 
         initializePanels(); // Set up the panels in the frame
@@ -1,10 +1,13 @@
 package jobplanner.view.panels;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import jobplanner.model.types.JobCategory;
 
 import java.awt.*;
+import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,6 +35,9 @@ public class FilterPanel extends JPanel {
     /** TextField for entering the maximum salary. */
     private JTextField maxSalaryField;
 
+    /** CheckBox for leaving out jobs whose salary is only predicted. */
+    private JCheckBox excludePredictedCheckBox;
+
     /** CheckBox for selecting full-time jobs. */
     private JCheckBox fullTimeCheckBox;
 
@@ -88,6 +94,8 @@ public class FilterPanel extends JPanel {
         minSalaryField = new JTextField(5);
         maxSalaryField = new JTextField(5);
         add(createLabeledSalaryRange("Salary Range", minSalaryField, maxSalaryField));
+        excludePredictedCheckBox = new JCheckBox("Exclude predicted salaries");
+        add(excludePredictedCheckBox);
         add(Box.createRigidArea(new Dimension(0, 10)));
 
         // Initialize and add the role type checkboxes
@@ -209,6 +217,7 @@ public class FilterPanel extends JPanel {
         companyTextField.setText("");
         minSalaryField.setText("");
         maxSalaryField.setText("");
+        excludePredictedCheckBox.setSelected(false);
         fullTimeCheckBox.setSelected(false);
         partTimeCheckBox.setSelected(false);
         contractCheckBox.setSelected(false);
@@ -260,6 +269,15 @@ public class FilterPanel extends JPanel {
         return maxSalaryField.getText();
     }
 
+    /**
+     * Whether jobs whose salary is only predicted are left out.
+     *
+     * @return true if the exclude predicted salaries checkbox is selected
+     */
+    public boolean isExcludePredicted() {
+        return excludePredictedCheckBox.isSelected();
+    }
+
     /**
      * Gets the selected role types from the checkboxes.
      *
@@ -307,7 +325,8 @@ public class FilterPanel extends JPanel {
     }
 
     /**
-     * Sets the action listeners for the buttons in the FilterPanel.
+     * Sets the action listeners for the buttons in the FilterPanel, and for
+     * the filters applied to the listed jobs without a new search.
      *
      * @param listener the ActionListener to attach
      */
@@ -316,5 +335,29 @@ public class FilterPanel extends JPanel {
         applyFilterButton.addActionListener(listener);
         resetFilterButton.setActionCommand("Reset Filter");
         resetFilterButton.addActionListener(listener);
+        datePostedComboBox.setActionCommand("Refine Filter");
+        datePostedComboBox.addActionListener(listener);
+        excludePredictedCheckBox.setActionCommand("Refine Filter");
+        excludePredictedCheckBox.addActionListener(listener);
+        // text fields only fire on Enter, so every edit of the salary range is passed on as an action
+        DocumentListener salaryEdited = new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                changedUpdate(e);
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                changedUpdate(e);
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                listener.actionPerformed(new ActionEvent(FilterPanel.this, ActionEvent.ACTION_PERFORMED,
+                        "Refine Filter"));
+            }
+        };
+        minSalaryField.getDocument().addDocumentListener(salaryEdited);
+        maxSalaryField.getDocument().addDocumentListener(salaryEdited);
     }
 }
@@ -6,6 +6,7 @@ import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import jobplanner.model.models.IJobPostModel;
 import jobplanner.model.models.IJobPostModel.JobRecord;
 import jobplanner.view.tablemodels.JobTableModel;
 
@@ -136,14 +137,27 @@ public class JobListPanel extends JPanel {
     }
 
     /**
-     * Displays a dialog with the details of the selected job.
-     * The description is scrollable if it exceeds the display area.
+     * Displays a dialog with the details of the selected job, once its
+     * description has been read, which may take a disk read off the event
+     * dispatch thread.
      *
      * @param job The job record to display.
      */
     private void showJobDetails(JobRecord job) {
+        IJobPostModel.descriptionOfAsync(job).thenAccept(description ->
+                SwingUtilities.invokeLater(() -> showJobDetails(job, description)));
+    }
+
+    /**
+     * Displays a dialog with the details of a job.
+     * The description is scrollable if it exceeds the display area.
+     *
+     * @param job         The job record to display.
+     * @param description The description of the job.
+     */
+    private void showJobDetails(JobRecord job, String description) {
         String details = String.format("Title: %s\nCompany: %s\nLocation: %s\n\nDescription:\n%s",
-                job.title(), job.company().displayName(), job.location().displayName(), job.description());
+                job.title(), job.company().displayName(), job.location().displayName(), description);
 
         JTextArea textArea = new JTextArea(details);
         textArea.setLineWrap(true);
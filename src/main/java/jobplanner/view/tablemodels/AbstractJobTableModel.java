@@ -3,7 +3,13 @@ package jobplanner.view.tablemodels;
 import javax.swing.table.AbstractTableModel;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jobplanner.model.models.IJobPostModel;
 import jobplanner.model.models.IJobPostModel.JobRecord;
 
 /**
@@ -149,6 +155,63 @@ public abstract class AbstractJobTableModel extends AbstractTableModel {
         fireTableDataChanged();
     }
 
+    /**
+     * Updates the rows of changed jobs in place, keeping the selection of the
+     * other rows. Jobs are matched on their key.
+     *
+     * @param added   the jobs to add at the end
+     * @param removed the jobs whose rows are removed
+     * @param updated the new versions of jobs whose rows are refreshed
+     */
+    public void applyChanges(Collection<JobRecord> added, Collection<JobRecord> removed,
+            Collection<JobRecord> updated) {
+        jobs = new ArrayList<>(jobs);
+        Set<String> removedKeys = new HashSet<>();
+        removed.forEach(job -> removedKeys.add(IJobPostModel.keyOf(job)));
+        Map<String, JobRecord> updatedByKey = new HashMap<>();
+        updated.forEach(job -> updatedByKey.put(IJobPostModel.keyOf(job), job));
+
+        for (int row = jobs.size() - 1; row >= 0; row--) {
+            String key = IJobPostModel.keyOf(jobs.get(row));
+            if (removedKeys.contains(key)) {
+                jobs.remove(row);
+                selected.remove(row);
+                rowRemoved(row);
+                fireTableRowsDeleted(row, row);
+            } else if (updatedByKey.containsKey(key)) {
+                jobs.set(row, updatedByKey.get(key));
+                fireTableRowsUpdated(row, row);
+            }
+        }
+        if (!added.isEmpty()) {
+            int first = jobs.size();
+            for (JobRecord job : added) {
+                jobs.add(job);
+                selected.add(false);
+                rowAdded();
+            }
+            fireTableRowsInserted(first, jobs.size() - 1);
+        }
+    }
+
+    /**
+     * Called after a row was removed by {@link #applyChanges}, for subclasses
+     * keeping more state per row.
+     *
+     * @param rowIndex the index of the removed row
+     */
+    protected void rowRemoved(int rowIndex) {
+        // no state beyond the selection
+    }
+
+    /**
+     * Called after a row was added at the end by {@link #applyChanges}, for
+     * subclasses keeping more state per row.
+     */
+    protected void rowAdded() {
+        // no state beyond the selection
+    }
+
     /**
      * Converts a salary value to a formatted string.
      * If the salary is less than or equal to 0, returns "N/A".
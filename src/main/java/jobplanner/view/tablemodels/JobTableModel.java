@@ -1,7 +1,12 @@
 package jobplanner.view.tablemodels;
 
+import jobplanner.model.models.IJobPostModel;
 import jobplanner.model.models.IJobPostModel.JobRecord;
+
+import javax.swing.SwingUtilities;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * JobTableModel is a custom table model for displaying job records in a JTable.
@@ -13,6 +18,18 @@ public class JobTableModel extends AbstractJobTableModel {
     private static final String[] COLUMN_NAMES = {"Selected", "Title", "Location", "Description", 
         "Salary", "Category", "Company"};
 
+    /** Column of the job description. */
+    private static final int DESCRIPTION_COLUMN = 3;
+
+    /** Shown in place of a description that is still being read from disk. */
+    private static final String LOADING = "Loading...";
+
+    /** Ids of the jobs whose description is being read. Only used on the event dispatch thread. */
+    private final Set<String> loading = new HashSet<>();
+
+    /** Ids of the jobs found to have no description. Only used on the event dispatch thread. */
+    private final Set<String> missing = new HashSet<>();
+
     /**
      * Constructs a JobTableModel with the given list of jobs.
      * Initializes the selection state for each job.
@@ -38,11 +55,39 @@ public class JobTableModel extends AbstractJobTableModel {
             case 0: return selected.get(rowIndex); // Selected status
             case 1: return job.title(); // Job title
             case 2: return job.location().displayName(); // Job location
-            case 3: return job.description(); // Job description
+            case DESCRIPTION_COLUMN: return descriptionAt(rowIndex, job); // Job description
             case 4: return convertSalary(job.salaryMin()) + " - " + convertSalary(job.salaryMax()); // Salary range
             case 5: return job.category().label(); // Job category
             case 6: return job.company().displayName(); // Company name
             default: return null;
         }
     }
+
+    /**
+     * Gets the description shown for a job. A description kept on disk is
+     * read on a background thread, and the cell is repainted once it is in.
+     *
+     * @param rowIndex the row of the job
+     * @param job      the job
+     * @return the description, or a placeholder while it is read
+     */
+    private String descriptionAt(int rowIndex, JobRecord job) {
+        String description = IJobPostModel.cachedDescriptionOf(job);
+        if (description != null || job.id() == null || missing.contains(job.id())) {
+            return description;
+        }
+        String id = job.id();
+        if (loading.add(id)) {
+            IJobPostModel.descriptionOfAsync(job).thenAccept(loaded -> SwingUtilities.invokeLater(() -> {
+                loading.remove(id);
+                if (loaded == null) {
+                    missing.add(id);
+                }
+                if (rowIndex < jobs.size() && id.equals(jobs.get(rowIndex).id())) {
+                    fireTableCellUpdated(rowIndex, DESCRIPTION_COLUMN);
+                }
+            }));
+        }
+        return LOADING;
+    }
 }
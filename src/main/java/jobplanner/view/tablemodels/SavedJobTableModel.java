@@ -111,6 +111,24 @@ public class SavedJobTableModel extends AbstractJobTableModel {
         return appliedJobs;
     }
 
+    /**
+     * Drops the applied state of a removed row.
+     *
+     * @param rowIndex the index of the removed row
+     */
+    @Override
+    protected void rowRemoved(int rowIndex) {
+        applied.remove(rowIndex);
+    }
+
+    /**
+     * Adds the applied state of a row added at the end.
+     */
+    @Override
+    protected void rowAdded() {
+        applied.add(false);
+    }
+
     /**
      * Updates the list of jobs and resets the selection and applied state.
      *
@@ -0,0 +1,108 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jobplanner.model.formatters.Formats;
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.formatters.JobCodec.Engine;
+import jobplanner.model.models.IJobPostModel;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+/**
+ * Compares the {@link JobCodec} engines, and building a new mapper on every
+ * call as the app used to, on the local database; then reading the binary
+ * formats. Not a unit test; run it by hand with the test classpath.
+ */
+public final class JobCodecBenchmark {
+
+    /** Not instantiated. */
+    private JobCodecBenchmark() {
+        // Empty
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args the database file, defaults to data/jobpostings.json, and the
+     *             number of rounds, defaults to 200
+     * @throws IOException if the database can not be read
+     */
+    public static void main(String[] args) throws IOException {
+        String database = args.length > 0 ? args[0] : IJobPostModel.DATABASE;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        byte[] json = Files.readAllBytes(Paths.get(database));
+        System.out.printf("%s: %d bytes, %d rounds%n", database, json.length, rounds);
+
+        // new ObjectMapper per call
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            ObjectMapper perCall = new ObjectMapper();
+            List<JobRecord> records = perCall.readValue(json,
+                    perCall.getTypeFactory().constructCollectionType(List.class, JobRecord.class));
+            new ObjectMapper().writeValueAsBytes(records);
+        }
+        report("per-call mapper", start, rounds);
+
+        for (Engine candidate : Engine.values()) {
+            start = System.nanoTime();
+            JobCodec codec = new JobCodec(candidate);
+            report(candidate + " startup", start, 1);
+
+            for (int i = 0; i < rounds; i++) { // let the JIT settle
+                codec.writeList(codec.readList(new ByteArrayInputStream(json)),
+                        OutputStream.nullOutputStream(), false);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                codec.readList(new ByteArrayInputStream(json));
+            }
+            report(candidate + " read", start, rounds);
+
+            List<JobRecord> records;
+            try (InputStream in = new FileInputStream(database)) {
+                records = codec.readList(in);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                codec.writeList(records, OutputStream.nullOutputStream(), false);
+            }
+            report(candidate + " write", start, rounds);
+        }
+
+        List<JobRecord> records = JobCodec.getInstance().readList(new ByteArrayInputStream(json));
+        for (Formats format : new Formats[] {Formats.SMILE, Formats.CBOR}) {
+            JobCodec codec = JobCodec.getInstance(format);
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            codec.writeList(records, encoded, false);
+            byte[] bytes = encoded.toByteArray();
+            for (int i = 0; i < rounds; i++) { // let the JIT settle
+                codec.readList(new ByteArrayInputStream(bytes));
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                codec.readList(new ByteArrayInputStream(bytes));
+            }
+            report(format + " read", start, rounds);
+            System.out.printf("%-20s %10d bytes%n", format + " size", bytes.length);
+        }
+    }
+
+    /**
+     * Prints the average time of a benchmark round.
+     *
+     * @param name   the name of the benchmark
+     * @param start  when the benchmark started, in nanoseconds
+     * @param rounds the number of rounds run
+     */
+    private static void report(String name, long start, int rounds) {
+        System.out.printf("%-20s %10.3f ms/op%n", name, (System.nanoTime() - start) / 1e6 / rounds);
+    }
+}
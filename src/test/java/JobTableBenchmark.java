@@ -0,0 +1,84 @@
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.models.JobTable;
+import jobplanner.model.models.SalaryIndex;
+
+/**
+ * Compares filtering postings by salary and sorting them by creation time
+ * with a list of records and with a {@link JobTable}, then times salary range
+ * queries on the salary index. Not a unit test; run it by hand with the test
+ * classpath.
+ */
+public final class JobTableBenchmark {
+
+    /** Not instantiated. */
+    private JobTableBenchmark() {
+        // Empty
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args the number of postings, defaults to 1000000
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<JobRecord> jobs = corpus(count);
+        JobTable table = JobTable.of(jobs);
+        System.out.printf("%d postings%n", count);
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            List<JobRecord> listed = jobs.stream()
+                    .filter(job -> job.salaryMax() >= 80000 && job.salaryMin() <= 120000)
+                    .sorted(Comparator.comparing(JobRecord::created).reversed())
+                    .toList();
+            long listTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int[] selected = table.sort(table.salaryBetween(80000, 120000), JobTable.Column.CREATED, true);
+            long tableTime = System.nanoTime() - start;
+            System.out.printf("round %d: list %6.1f ms, table %6.1f ms, %d matches%n", round, listTime / 1e6,
+                    tableTime / 1e6, Math.min(listed.size(), selected.length));
+        }
+        SalaryIndex index = table.salaryIndex(false);
+        for (double salary = 50000; salary <= 200000; salary += 50000) {
+            long start = System.nanoTime();
+            int matches = index.countOverlapping(salary, salary + 10000);
+            long countTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            int[] rows = index.overlapping(salary, salary + 10000);
+            long listTime = System.nanoTime() - start;
+            System.out.printf("salary %6.0f: count %6.1f us, rows %8.1f us, %d matches%n", salary, countTime / 1e3,
+                    listTime / 1e3, Math.min(matches, rows.length));
+        }
+    }
+
+    /**
+     * Builds a synthetic corpus of postings.
+     *
+     * @param count the number of postings
+     * @return the postings
+     */
+    private static List<JobRecord> corpus(int count) {
+        Random random = new Random(42);
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        List<JobRecord> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double salary = 30000 + random.nextInt(150) * 1000;
+            jobs.add(new JobRecord("Job " + i, null, Company.of("Company " + random.nextInt(500)),
+                    Location.of("City " + random.nextInt(2000), List.of("US")), salary, salary + 20000,
+                    random.nextBoolean() ? "full_time" : "contract",
+                    start.plusSeconds(random.nextInt(200 * 86400)).toString(), null, null,
+                    Category.of("category-" + random.nextInt(30), "Category"), 0, 0, Integer.toString(i), "0"));
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,83 @@
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.api.CircuitBreaker;
+import jobplanner.model.api.CircuitBreaker.State;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CircuitBreaker class.
+ */
+public class TestCircuitBreaker {
+
+    /** Test that the breaker opens after consecutive failures only. */
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMinutes(1));
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(); // resets the count
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.getRetryAfter().compareTo(Duration.ZERO) > 0);
+    }
+
+    /** Test that a single trial request is allowed once the open duration is over. */
+    @Test
+    public void testHalfOpenAllowsOneTrial() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.tryAcquire();
+        breaker.onFailure();
+
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    /** Test that a failed trial opens the breaker again. */
+    @Test
+    public void testFailedTrialReopens() {
+        CircuitBreaker breaker = new CircuitBreaker(5, Duration.ofMillis(50));
+        for (int i = 0; i < 5; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure();
+        }
+        assertFalse(breaker.tryAcquire());
+
+        try {
+            Thread.sleep(60);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    /** Test that an abandoned trial lets another trial through. */
+    @Test
+    public void testAbandonedTrial() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.tryAcquire();
+        breaker.onFailure();
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onAbandoned();
+        assertTrue(breaker.tryAcquire());
+    }
+}
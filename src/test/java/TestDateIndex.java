@@ -0,0 +1,69 @@
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.models.DateIndex;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DateIndex class.
+ */
+public class TestDateIndex {
+
+    /**
+     * Indexes posting times given as ISO-8601 instants, null for a posting
+     * without one.
+     *
+     * @param created the posting times, by row
+     * @return the index
+     */
+    private static DateIndex index(String... created) {
+        return DateIndex.of(created.length, row -> DateIndex.epochSecondOf(created[row]));
+    }
+
+    /** Test that windows starting or ending on a day boundary keep the postings on the right side of it. */
+    @Test
+    public void testBucketEdges() {
+        DateIndex index = index("2024-08-01T23:59:59Z", "2024-08-02T00:00:00Z", "2024-08-02T23:59:59Z",
+                "2024-08-03T00:00:00Z", null);
+        assertEquals(3, index.buckets());
+        assertArrayEquals(new int[] {1, 2}, index.between(Instant.parse("2024-08-02T00:00:00Z"),
+                Instant.parse("2024-08-03T00:00:00Z")));
+        assertArrayEquals(new int[] {0, 1}, index.between(Instant.parse("2024-08-01T23:59:59Z"),
+                Instant.parse("2024-08-02T00:00:01Z")));
+        assertArrayEquals(new int[] {2, 3}, index.between(Instant.parse("2024-08-02T00:00:01Z"), null));
+        assertArrayEquals(new int[] {0}, index.between(null, Instant.parse("2024-08-02T00:00:00Z")));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, index.between(null, null));
+    }
+
+    /** Test that postings before 1970 fall in the day they were posted, not the day after. */
+    @Test
+    public void testBeforeEpoch() {
+        DateIndex index = index("1969-12-31T00:00:00Z", "1969-12-31T23:59:59Z", "1970-01-01T00:00:00Z",
+                "1969-12-30T12:00:00Z");
+        assertEquals(3, index.buckets());
+        assertArrayEquals(new int[] {0, 1}, index.between(Instant.parse("1969-12-31T00:00:00Z"),
+                Instant.parse("1970-01-01T00:00:00Z")));
+        assertArrayEquals(new int[] {1, 2}, index.between(Instant.parse("1969-12-31T12:00:00Z"),
+                Instant.parse("1970-01-01T00:00:01Z")));
+        assertArrayEquals(new int[] {3}, index.between(null, Instant.parse("1969-12-31T00:00:00Z")));
+    }
+
+    /** Test that windows without postings, and indexes without postings, give no rows. */
+    @Test
+    public void testEmptyWindows() {
+        DateIndex index = index("2024-08-01T12:00:00Z", "2024-08-05T12:00:00Z");
+        Instant from = Instant.parse("2024-08-02T00:00:00Z");
+        assertArrayEquals(new int[0], index.between(from, Instant.parse("2024-08-05T00:00:00Z")));
+        assertArrayEquals(new int[0], index.between(from, from));
+        assertArrayEquals(new int[0], index.between(Instant.parse("2024-08-06T00:00:00Z"), from));
+        assertArrayEquals(new int[0], index.between(Instant.parse("2024-08-01T12:00:01Z"),
+                Instant.parse("2024-08-01T23:00:00Z")));
+
+        DateIndex empty = index(null, "not a date");
+        assertEquals(0, empty.buckets());
+        assertArrayEquals(new int[0], empty.between(null, null));
+        assertEquals(0, index().buckets());
+    }
+}
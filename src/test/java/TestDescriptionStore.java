@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.models.IJobPostModel;
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.store.DescriptionStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DescriptionStore class.
+ */
+public class TestDescriptionStore {
+
+    /** The base path of the store used by the tests. */
+    private static final Path BASE = Paths.get("data/test_descriptions");
+    /** The blob file of the store. */
+    private static final Path BLOB = Paths.get("data/test_descriptions.blob");
+    /** The index file of the store. */
+    private static final Path INDEX = Paths.get("data/test_descriptions.idx");
+
+    /**
+     * Removes the files written by the tests.
+     *
+     * @throws IOException if the files can not be removed
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        DescriptionStore.setActive(null);
+        Files.deleteIfExists(BLOB);
+        Files.deleteIfExists(INDEX);
+    }
+
+    /**
+     * Creates a job with the given id and description.
+     *
+     * @param id          the id of the job
+     * @param description the description of the job
+     * @return the job
+     */
+    private static JobRecord job(String id, String description) {
+        return new JobRecord("Job " + id, description, new Company("Company"),
+                new Location("Boston", List.of("US", "Massachusetts")), 50000, 60000, "full_time",
+                "2024-08-01T00:00:00Z", "https://www.adzuna.com", "adref", new Category("it-jobs", "IT Jobs"),
+                0, 0, id, "0");
+    }
+
+    /** Test that stripped postings get their description back through the active store. */
+    @Test
+    public void testStripAndLoad() throws IOException {
+        try (DescriptionStore store = DescriptionStore.open(BASE, 1)) {
+            List<JobRecord> stripped = store.strip(List.of(job("1", "First \u00e9"), job("2", "Second"),
+                    job(null, "No id")));
+            assertNull(stripped.get(0).description());
+            assertEquals("No id", stripped.get(2).description());
+            assertEquals(2, store.size());
+
+            DescriptionStore.setActive(store);
+            assertEquals("First \u00e9", IJobPostModel.descriptionOf(stripped.get(0)));
+            assertEquals("Second", IJobPostModel.descriptionOf(stripped.get(1)));
+            assertEquals("First \u00e9", IJobPostModel.descriptionOf(stripped.get(0)));
+            assertEquals(0, store.getHits()); // a cache of one keeps only the last description
+            assertEquals(3, store.getMisses());
+            assertEquals("First \u00e9", store.get("1"));
+            assertEquals(1, store.getHits());
+            assertEquals(job("1", "First \u00e9"), IJobPostModel.withDescription(stripped.get(0)));
+        }
+    }
+
+    /**
+     * Test that the GUI lookups never read the disk on the calling thread, and
+     * that a job keeps its key without its description.
+     *
+     * @throws IOException if the store can not be written
+     */
+    @Test
+    public void testCachedAndAsync() throws IOException {
+        try (DescriptionStore store = DescriptionStore.open(BASE, 4)) {
+            JobRecord stripped = store.strip(List.of(job("1", "First"))).get(0);
+            DescriptionStore.setActive(store);
+
+            assertNull(IJobPostModel.cachedDescriptionOf(stripped));
+            assertEquals(0, store.getMisses());
+            assertEquals("First", IJobPostModel.descriptionOfAsync(stripped).join());
+            assertEquals("First", IJobPostModel.cachedDescriptionOf(stripped));
+            assertNull(IJobPostModel.descriptionOfAsync(job("2", null)).join());
+
+            JobRecord withoutId = new JobRecord("Job", "Description", null, null, 0, 0, null, null,
+                    "https://www.adzuna.com/1", null, null, 0, 0, null, "0");
+            assertEquals(IJobPostModel.keyOf(withoutId), IJobPostModel.keyOf(DescriptionStore.withDescription(
+                    withoutId, null)));
+        }
+    }
+
+    /** Test that the store is read back on open, and a torn index entry is dropped. */
+    @Test
+    public void testReopen() throws IOException {
+        try (DescriptionStore store = DescriptionStore.open(BASE, 8)) {
+            store.putAll(List.of(job("1", "First"), job("2", "Second")));
+            store.putAll(List.of(job("1", "Changed"))); // already stored
+        }
+        Files.write(INDEX, new byte[] {0, 5, 'a'}, StandardOpenOption.APPEND);
+        try (DescriptionStore store = DescriptionStore.open(BASE, 8)) {
+            assertEquals(2, store.size());
+            assertEquals("First", store.get("1"));
+            store.putAll(List.of(job("3", "Third")));
+        }
+        try (DescriptionStore store = DescriptionStore.open(BASE, 8)) {
+            assertEquals(3, store.size());
+            assertEquals("Third", store.get("3"));
+            assertNull(store.get("4"));
+        }
+    }
+}
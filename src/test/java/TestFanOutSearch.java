@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.api.AdzunaException;
+import jobplanner.model.api.FanOutSearch;
+import jobplanner.model.api.JobPostUtil;
+import jobplanner.model.api.RequestScheduler;
+import jobplanner.model.api.SearchCache;
+import jobplanner.model.api.StubAdzunaServer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the FanOutSearch class, searching a StubAdzunaServer.
+ */
+public class TestFanOutSearch {
+
+    /** The server searched. */
+    private StubAdzunaServer server;
+    /** Allows one call a minute, so every branch but the first waits in the queue. */
+    private RequestScheduler scheduler;
+    /** A client pointed at the server. */
+    private JobPostUtil client;
+
+    /**
+     * Starts a server and points a client without disk cache at it.
+     *
+     * @throws IOException if the server can not be started
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubAdzunaServer(0).start();
+        scheduler = new RequestScheduler(1, 10000, Duration.ofSeconds(5));
+        client = new JobPostUtil("id", "key", new SearchCache(null, 16, Duration.ZERO, Duration.ZERO), scheduler)
+                .withBaseUrl(server.getBaseUrl());
+    }
+
+    /** Stops the server. */
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    /**
+     * Waits until no request is queued in the scheduler any more.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void awaitEmptyQueue() throws InterruptedException {
+        for (int i = 0; i < 100 && scheduler.getUsage().queued() > 0; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    /** Test that the postings of the branches that answered are kept when another branch fails. */
+    @Test
+    public void testPartialResult() {
+        FanOutSearch search = new FanOutSearch(new JobPostUtil("id", "key",
+                new SearchCache(null, 16, Duration.ZERO, Duration.ZERO),
+                new RequestScheduler(600, 10000, Duration.ofSeconds(5))).withBaseUrl(server.getBaseUrl()),
+                Duration.ofSeconds(5));
+
+        // a country with a slash in it asks the server for a path it does not serve
+        FanOutSearch.Result result = search.search(List.of("us", "no/such", "gb"), List.of(), Map.of(), 1);
+
+        assertTrue(result.isPartial());
+        assertEquals(List.of(new FanOutSearch.Origin("no/such", null)), List.copyOf(result.failures().keySet()));
+        assertTrue(result.failures().values().iterator().next() instanceof AdzunaException);
+        assertFalse(result.getJobs().isEmpty());
+        assertTrue(result.tagged().stream().allMatch(job -> !job.origin().country().equals("no/such")));
+        assertEquals("us", result.tagged().get(0).origin().country());
+        assertEquals("gb", result.tagged().get(result.tagged().size() - 1).origin().country());
+    }
+
+    /**
+     * Test that a branch that times out is reported and no longer waits for
+     * the call quota.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testTimeout() throws InterruptedException {
+        server.setLatency(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        FanOutSearch search = new FanOutSearch(client, Duration.ofMillis(200));
+
+        long start = System.nanoTime();
+        FanOutSearch.Result result = search.search(List.of("us", "gb", "de"), List.of(), Map.of(), 1);
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        assertEquals(3, result.failures().size());
+        assertTrue(result.failures().values().stream().allMatch(e -> e instanceof TimeoutException));
+        awaitEmptyQueue();
+        assertEquals(0, scheduler.getUsage().queued());
+    }
+
+    /**
+     * Test that cancelling a search takes its queued requests off the
+     * scheduler's queue.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        server.setLatency(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        CompletableFuture<FanOutSearch.Result> result = new FanOutSearch(client, Duration.ofSeconds(5))
+                .searchAsync(List.of("us", "gb", "de"), List.of(), Map.of(), 1);
+        assertEquals(2, scheduler.getUsage().queued());
+
+        result.cancel(true);
+        awaitEmptyQueue();
+        assertEquals(0, scheduler.getUsage().queued());
+        assertEquals(1, scheduler.getUsage().today());
+    }
+
+    /** Test that too wide a search is refused before anything is sent. */
+    @Test
+    public void testTooManyBranches() {
+        List<String> categories = List.of("it-jobs", "sales-jobs");
+        FanOutSearch search = new FanOutSearch(client, Duration.ofSeconds(5));
+
+        assertThrows(IllegalArgumentException.class, () -> search.searchAsync(List.of("us", "gb", "de", "fr",
+                "it", "es", "nl", "at", "be", "ca", "ch", "in", "mx", "nz", "pl", "sg", "za"), categories,
+                Map.of(), 1));
+        assertEquals(0, server.getRequestCount());
+    }
+}
@@ -83,4 +83,27 @@ public class TestInputValidator {
         assertFalse(InputValidator.isValidExtension("..", Formats.CSV), 
                 "Dot-dot filename should not be valid for any format");
     }
+
+    /** Test binary format extensions. */
+    @Test
+    void testBinaryExtensions() {
+        assertTrue(InputValidator.isValidExtension("jobs.smile", Formats.SMILE),
+                "Smile extension should be valid for SMILE format");
+        assertTrue(InputValidator.isValidExtension("jobs.SML", Formats.SMILE),
+                "Short Smile extension should be valid for SMILE format");
+        assertTrue(InputValidator.isValidExtension("jobs.cbor", Formats.CBOR),
+                "CBOR extension should be valid for CBOR format");
+        assertFalse(InputValidator.isValidExtension("jobs.json", Formats.CBOR),
+                "JSON extension should not be valid for CBOR format");
+    }
+
+    /** Test detecting the format from the extension. */
+    @Test
+    void testDetectFormat() {
+        assertEquals(Formats.SMILE, InputValidator.detectFormat("data/savedjobs.smile"));
+        assertEquals(Formats.CBOR, InputValidator.detectFormat("jobs.CBOR"));
+        assertEquals(Formats.JSON, InputValidator.detectFormat("jobs.json"));
+        assertEquals(Formats.CSV, InputValidator.detectFormat("jobs.csv"));
+        assertNull(InputValidator.detectFormat("jobs"));
+    }
 }
@@ -0,0 +1,99 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import jobplanner.model.formatters.DataFormatter;
+import jobplanner.model.formatters.Formats;
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JobCodec class.
+ */
+public class TestJobCodec {
+
+    /** Test database of job postings. */
+    private static final String DATABASE = "data/jobpostings.json";
+
+    /**
+     * Reads the test database with the given engine.
+     *
+     * @param codec the codec to read with
+     * @return the postings
+     * @throws IOException if the database can not be read
+     */
+    private static List<JobRecord> load(JobCodec codec) throws IOException {
+        try (InputStream in = new FileInputStream(DATABASE)) {
+            return codec.readList(in);
+        }
+    }
+
+    /** Test that every engine reads the same postings and writes them back unchanged. */
+    @Test
+    public void testRoundTripWithEveryEngine() throws IOException {
+        List<JobRecord> expected = load(JobCodec.getInstance());
+        assertFalse(expected.isEmpty());
+
+        for (JobCodec.Engine engine : JobCodec.Engine.values()) {
+            JobCodec codec = new JobCodec(engine);
+            assertEquals(engine, codec.getEngine());
+            assertEquals(expected, load(codec));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.writeList(expected, out, false);
+            assertEquals(expected, codec.readList(new ByteArrayInputStream(out.toByteArray())));
+        }
+    }
+
+    /** Test reading single postings from a streaming parser. */
+    @Test
+    public void testReadRecord() throws IOException {
+        JobCodec codec = JobCodec.getInstance();
+        List<JobRecord> expected = load(codec);
+
+        try (JsonParser parser = codec.createParser(new FileInputStream(DATABASE))) {
+            assertEquals(JsonToken.START_ARRAY, parser.nextToken());
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            assertEquals(expected.get(0), codec.readRecord(parser));
+        }
+    }
+
+    /** Test that the pretty output is indented. */
+    @Test
+    public void testPrettyOutput() throws IOException {
+        JobCodec codec = JobCodec.getInstance();
+        List<JobRecord> jobs = load(codec).subList(0, 1);
+
+        ByteArrayOutputStream pretty = new ByteArrayOutputStream();
+        codec.writeList(jobs, pretty, true);
+        ByteArrayOutputStream compact = new ByteArrayOutputStream();
+        codec.writeList(jobs, compact, false);
+
+        assertTrue(pretty.toString().contains("\n"));
+        assertFalse(compact.toString().contains("\n"));
+    }
+
+    /** Test that postings written in a binary format read back unchanged, with the file's codec. */
+    @Test
+    public void testBinaryFormats() throws IOException {
+        List<JobRecord> expected = load(JobCodec.getInstance());
+        for (Formats format : new Formats[] {Formats.SMILE, Formats.CBOR}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DataFormatter.write(expected, format, out);
+            JobCodec codec = JobCodec.getInstance(Formats.storageFormatOf("jobs." + format.getExtensions().get(0)));
+            assertSame(JobCodec.getInstance(format), codec);
+            assertEquals(expected, codec.readList(new ByteArrayInputStream(out.toByteArray())));
+        }
+        assertSame(JobCodec.getInstance(), JobCodec.getInstance(Formats.JSON));
+    }
+}
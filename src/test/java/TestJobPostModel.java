@@ -2,8 +2,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,6 +22,8 @@ import jobplanner.model.models.IJobPostModel.Company;
 import jobplanner.model.models.IJobPostModel.Location;
 import jobplanner.model.models.IJobPostModel.Category;
 import jobplanner.model.models.IJobPostModel;
+import jobplanner.model.models.ModelChange;
+import jobplanner.model.store.PostingStore;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -114,4 +121,117 @@ public class TestJobPostModel {
         assertNotNull(jobs);
         assertEquals(0, jobs.size());
     }
+
+    /**
+     * Test that added jobs come after the loaded ones, without changing lists
+     * handed out before, and that listeners are told about them.
+     */
+    @Test
+    public void testAddJobs() {
+        List<JobRecord> before = jobPostModel.getJobs();
+        List<ModelChange> changes = new ArrayList<>();
+        jobPostModel.addListener(changes::add);
+        JobRecord job = new JobRecord("Data Engineer", null, null, null, 0, 0, null, null, null, null, null,
+                0, 0, "3", null);
+
+        assertTrue(jobPostModel.addJobs(List.of(job, job)));
+        assertFalse(jobPostModel.addJobs(List.of(job)));
+
+        assertEquals(2, before.size());
+        assertEquals(3, jobPostModel.getJobs().size());
+        assertEquals(job, jobPostModel.getJobs().get(2));
+        assertEquals(1, changes.size());
+        assertEquals(List.of("3"), changes.get(0).addedIds());
+    }
+
+    /** Test that the recent jobs are the last jobs of the model, added ones included. */
+    @Test
+    public void testGetRecentJobs() {
+        JobPostModel model = (JobPostModel) jobPostModel;
+        JobRecord job = new JobRecord("Data Engineer", null, null, null, 0, 0, null, null, null, null, null,
+                0, 0, "3", null);
+        model.addJobs(List.of(job));
+
+        assertEquals(List.of(model.getJobs().get(1), job), model.getRecentJobs(2));
+        assertEquals(model.getJobs(), model.getRecentJobs(10));
+        assertTrue(model.getRecentJobs(0).isEmpty());
+    }
+
+    /**
+     * Test that the recent jobs posted since a time are found through the
+     * date index of the loaded jobs, added jobs included.
+     *
+     * @throws IOException if the database can not be written
+     */
+    @Test
+    public void testGetRecentJobsSince() throws IOException {
+        List<JobRecord> dated = new ArrayList<>();
+        for (int day = 1; day <= 5; day++) {
+            dated.add(new JobRecord("Job " + day, null, null, null, 0, 0, null, "2024-08-0" + day + "T12:00:00Z",
+                    null, null, null, 0, 0, Integer.toString(day), null));
+        }
+        String file = "data/test_recentjobs.json";
+        try (OutputStream os = new FileOutputStream(file)) {
+            new ObjectMapper().writeValue(os, dated);
+        }
+        try {
+            JobPostModel model = (JobPostModel) JobPostModel.getInstance(file);
+            JobRecord added = new JobRecord("Job 6", null, null, null, 0, 0, null, "2024-08-06T12:00:00Z",
+                    null, null, null, 0, 0, "6", null);
+            JobRecord undated = new JobRecord("Job 7", null, null, null, 0, 0, null, null, null, null, null,
+                    0, 0, "7", null);
+            model.addJobs(List.of(added, undated));
+            Instant since = Instant.parse("2024-08-03T12:00:00Z");
+
+            assertEquals(List.of(dated.get(2), dated.get(3), dated.get(4), added), model.getRecentJobs(10, since));
+            assertEquals(List.of(dated.get(4), added), model.getRecentJobs(2, since));
+            assertEquals(List.of(added), model.getRecentJobs(1, since));
+            assertEquals(model.getRecentJobs(3), model.getRecentJobs(3, null));
+            assertTrue(model.getRecentJobs(10, Instant.parse("2025-01-01T00:00:00Z")).isEmpty());
+        } finally {
+            Files.deleteIfExists(Paths.get(file));
+        }
+    }
+
+    /**
+     * Test that a model opened on a posting store lists the postings of the
+     * latest searches, which the store keeps first, and not its oldest ones.
+     *
+     * @throws IOException if the store can not be written or removed
+     */
+    @Test
+    public void testGetRecentJobsFromStore() throws IOException {
+        Path directory = Paths.get("data/test_recentstore");
+        List<JobRecord> dated = new ArrayList<>();
+        for (int day = 1; day <= 4; day++) {
+            dated.add(new JobRecord("Job " + day, null, null, null, 0, 0, null, "2024-08-0" + day + "T12:00:00Z",
+                    null, null, null, 0, 0, Integer.toString(day), null));
+        }
+        try {
+            try (PostingStore store = PostingStore.open(directory)) {
+                store.append(dated.subList(0, 2));
+                store.append(dated.subList(2, 4));
+            }
+            JobPostModel model = (JobPostModel) JobPostModel.getInstance(directory.toString());
+            JobRecord added = new JobRecord("Job 5", null, null, null, 0, 0, null, "2024-08-05T12:00:00Z",
+                    null, null, null, 0, 0, "5", null);
+            assertEquals(List.of(dated.get(2), dated.get(3)), model.getRecentJobs(2));
+            model.addJobs(List.of(added));
+
+            assertEquals(List.of(added, dated.get(2)), model.getRecentJobs(2));
+            assertEquals(List.of(added, dated.get(2), dated.get(3)),
+                    model.getRecentJobs(3, Instant.parse("2024-08-02T13:00:00Z")));
+            assertEquals(List.of(added, dated.get(2), dated.get(3), dated.get(0), dated.get(1)),
+                    model.getRecentJobs(10));
+            model.getStore().close();
+        } finally {
+            if (Files.exists(directory)) {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -1,17 +1,31 @@
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
 import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.models.IJobPostModel.Category;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import jobplanner.model.api.AdzunaException;
 import jobplanner.model.api.JobPostUtil;
+import jobplanner.model.api.RequestScheduler;
+import jobplanner.model.api.SearchCache;
 
 /**
  * Unit tests for the JobPostUtil class.
@@ -68,4 +82,87 @@ public class TestJobPostUtil {
             assertNotNull(jobRecord.location(), "Job location should not be null");
         }
     }
+
+    @Test
+    void testMergePagesKeepsPageOrderAndDropsDuplicateIds() {
+        JobRecord first = job("1", "Software Engineer");
+        JobRecord second = job("2", "Data Scientist");
+        JobRecord repeated = job("1", "Software Engineer (page 2)");
+        JobRecord third = job("3", "Product Manager");
+
+        List<JobRecord> merged = JobPostUtil.mergePages(List.of(
+                List.of(first, second),
+                List.of(repeated, third)));
+
+        assertEquals(List.of(first, second, third), merged);
+    }
+
+    /** Test that every caller gets the same client, and that its copies share its cache and scheduler. */
+    @Test
+    void testSharedInstance() {
+        JobPostUtil shared = JobPostUtil.getInstance();
+        assertSame(shared, JobPostUtil.getInstance());
+        assertSame(shared, shared.withPriority(RequestScheduler.Priority.INTERACTIVE));
+
+        JobPostUtil background = shared.withPriority(RequestScheduler.Priority.BACKGROUND);
+        assertNotSame(shared, background);
+        assertSame(shared.getCache(), background.getCache());
+        assertSame(shared.getScheduler(), background.getScheduler());
+        assertSame(shared.getCircuitBreaker(), background.getCircuitBreaker());
+        assertEquals(shared.getBaseUrl(), background.getBaseUrl());
+    }
+
+    /**
+     * Test that a response whose body stalls fails once the body deadline
+     * passes, instead of blocking or yielding the postings read so far.
+     *
+     * @throws IOException if the server can not be started
+     */
+    @Test
+    void testStalledBody() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        CountDownLatch release = new CountDownLatch(1);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().write("{\"results\": [{\"id\": \"1\"}, ".getBytes(StandardCharsets.UTF_8));
+            exchange.getResponseBody().flush();
+            try {
+                release.await(); // never sends the rest
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        try {
+            JobPostUtil stalled = new JobPostUtil("id", "key",
+                    new SearchCache(null, 16, Duration.ZERO, Duration.ZERO),
+                    new RequestScheduler(600, 10000, Duration.ofSeconds(5)))
+                    .withBaseUrl("http://localhost:" + server.getAddress().getPort() + "/");
+            long start = System.nanoTime();
+            AdzunaException e = assertThrows(AdzunaException.class,
+                    () -> stalled.getJobPostingList("us", Map.of("what", "stalled")));
+            assertTrue(e.getCause() instanceof HttpTimeoutException);
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(15).toNanos());
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Builds a job record with the given id and title.
+     *
+     * @param id    the id of the job
+     * @param title the title of the job
+     * @return the job record
+     */
+    private static JobRecord job(String id, String title) {
+        return new JobRecord(title, "Description",
+                new Company("Company A"),
+                new Location("City A", List.of("Country", "State", "County", "City A")),
+                60000, 80000, "full_time", "2023-01-01", "http://example.com", "adref",
+                new Category("it-jobs", "IT Jobs"), 40.7128, -74.0060, id, "0");
+    }
 }
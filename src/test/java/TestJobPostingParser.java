@@ -0,0 +1,135 @@
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.api.AdzunaException;
+import jobplanner.model.api.JobPostUtil;
+import jobplanner.model.api.JobPostingParser;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JobPostingParser class.
+ */
+public class TestJobPostingParser {
+
+    /** Example search response from the API documentation. */
+    private static final String EXAMPLE = "DesignDocuments/adzuna-job-search-json-example.json";
+
+    /**
+     * Test iterating over the postings of a search response.
+     *
+     * @throws IOException if the example can not be read
+     */
+    @Test
+    public void testIterator() throws IOException {
+        List<JobRecord> jobs = new ArrayList<>();
+        try (JobPostingParser postings = new JobPostingParser(new FileInputStream(EXAMPLE))) {
+            postings.forEachRemaining(jobs::add);
+        }
+
+        assertEquals(10, jobs.size());
+        for (JobRecord job : jobs) {
+            assertNotNull(job.id());
+            assertNotNull(job.title());
+        }
+    }
+
+    /**
+     * Test that fields before and after the results are skipped.
+     *
+     * @throws IOException if the response can not be read
+     */
+    @Test
+    public void testSkipsOtherFields() throws IOException {
+        String json = "{\"count\": 2, \"mean\": {\"a\": [1, 2]}, "
+                + "\"results\": [{\"id\": \"1\", \"title\": \"A\"}, {\"id\": \"2\", \"title\": \"B\"}], "
+                + "\"__CLASS__\": \"x\"}";
+        List<JobRecord> jobs = JobPostUtil.parseJobPostings(stream(json));
+
+        assertEquals(2, jobs.size());
+        assertEquals("A", jobs.get(0).title());
+        assertEquals("B", jobs.get(1).title());
+    }
+
+    /**
+     * Test that a response without results yields no postings.
+     *
+     * @throws IOException if the response can not be read
+     */
+    @Test
+    public void testNoResults() throws IOException {
+        try (JobPostingParser postings = new JobPostingParser(stream("{\"exception\": \"AUTH_FAIL\"}"))) {
+            assertFalse(postings.hasNext());
+        }
+        assertTrue(JobPostUtil.parseJobPostings(InputStream.nullInputStream()).isEmpty());
+    }
+
+    /** Test that a response that breaks off fails as a whole instead of yielding the postings read so far. */
+    @Test
+    public void testTruncatedResponse() {
+        String json = "{\"results\": [{\"id\": \"1\", \"title\": \"A\"}, {\"id\": \"2\", \"ti";
+        AdzunaException e = assertThrows(AdzunaException.class, () -> JobPostUtil.parseJobPostings(stream(json)));
+        assertTrue(e.getCause() instanceof IOException);
+    }
+
+    /**
+     * Test that the publisher emits every posting, one request at a time.
+     *
+     * @throws IOException if the example can not be read
+     */
+    @Test
+    public void testPublisher() throws IOException {
+        Flow.Publisher<JobRecord> publisher = JobPostingParser.publisher(new FileInputStream(EXAMPLE), Runnable::run);
+        List<JobRecord> jobs = new ArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        publisher.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription = s;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(JobRecord item) {
+                jobs.add(item);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+
+        done.join();
+        assertEquals(10, jobs.size());
+    }
+
+    /**
+     * Wraps a string in a stream.
+     *
+     * @param json the content of the stream
+     * @return the stream
+     */
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.JobTable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JobTable class.
+ */
+public class TestJobTable {
+
+    /** Test database of job postings. */
+    private static final String DATABASE = "data/jobpostings.json";
+
+    /** The postings of the test database. */
+    private List<JobRecord> jobs;
+
+    /**
+     * Reads the test database.
+     *
+     * @throws IOException if the database can not be read
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        try (InputStream in = new FileInputStream(DATABASE)) {
+            jobs = JobCodec.getInstance().readList(in);
+        }
+    }
+
+    /**
+     * Creates a posting with a salary and creation time.
+     *
+     * @param id        the id
+     * @param salaryMin the minimum salary
+     * @param created   the creation time, or null
+     * @return the posting
+     */
+    private static JobRecord job(String id, double salaryMin, String created) {
+        return new JobRecord("Title " + id, null, Company.of("Acme"), null, salaryMin, salaryMin + 10000,
+                null, created, null, null, Category.of("it-jobs", "IT Jobs"), 0, 0, id, "0");
+    }
+
+    /** Test that the list view gives back the postings unchanged. */
+    @Test
+    public void testAsList() {
+        assertFalse(jobs.isEmpty());
+        JobTable table = JobTable.of(jobs);
+        assertEquals(jobs.size(), table.size());
+        assertEquals(jobs, table.asList());
+        assertThrows(UnsupportedOperationException.class, () -> table.asList().add(jobs.get(0)));
+
+        List<JobRecord> odd = List.of(job("1", 50000, "2024-08-01T10:00:00.123Z"), job("2", 60000, "not a date"),
+                job("3", 70000, null));
+        assertEquals(odd, JobTable.of(odd).asList());
+    }
+
+    /** Test that filtering by salary and category selects the same postings as the records do. */
+    @Test
+    public void testFilter() {
+        JobTable table = JobTable.of(jobs);
+        List<JobRecord> expected = new ArrayList<>();
+        for (JobRecord job : jobs) {
+            if (job.salaryMax() >= 50000 && job.salaryMin() <= 100000) {
+                expected.add(job);
+            }
+        }
+        assertEquals(expected, table.asList(table.salaryBetween(50000, 100000)));
+
+        Category category = jobs.get(0).category();
+        assertEquals(jobs.stream().filter(job -> category.equals(job.category())).toList(),
+                table.asList(table.inCategory(category)));
+        assertEquals(0, table.inCategory(new Category("unknown", "Unknown")).length);
+        assertEquals(0, table.filter(row -> false).length);
+    }
+
+    /** Test that sorting is stable and puts postings without a creation time last. */
+    @Test
+    public void testSort() {
+        JobTable table = JobTable.of(List.of(job("a", 70000, "2024-08-02T00:00:00Z"), job("b", 50000, null),
+                job("c", 70000, "2024-08-03T00:00:00Z"), job("d", 60000, "2024-08-01T00:00:00Z")));
+        int[] all = table.filter(row -> true);
+        assertArrayEquals(new int[] {1, 3, 0, 2}, table.sort(all, JobTable.Column.SALARY_MIN, false));
+        assertArrayEquals(new int[] {0, 2, 3, 1}, table.sort(all, JobTable.Column.SALARY_MIN, true));
+        assertArrayEquals(new int[] {3, 0, 2, 1}, table.sort(all, JobTable.Column.CREATED, false));
+        assertArrayEquals(new int[] {2, 0, 3, 1}, table.sort(all, JobTable.Column.CREATED, true));
+    }
+
+    /** Test that date windows select the postings posted within them, whole days or not. */
+    @Test
+    public void testPostedBetween() {
+        JobTable table = JobTable.of(List.of(job("a", 0, "2024-08-01T23:00:00Z"), job("b", 0, null),
+                job("c", 0, "2024-08-03T01:00:00Z"), job("d", 0, "2024-08-02T12:00:00Z"),
+                job("e", 0, "2024-08-01T01:00:00Z"), job("f", 0, "2023-12-31T12:00:00Z")));
+        assertEquals(4, table.dateIndex().buckets());
+        assertArrayEquals(new int[] {0, 2, 3, 4, 5}, table.postedBetween(null, null));
+        assertArrayEquals(new int[] {0, 2, 3}, table.postedBetween(Instant.parse("2024-08-01T12:00:00Z"), null));
+        assertArrayEquals(new int[] {0, 3}, table.postedBetween(Instant.parse("2024-08-01T12:00:00Z"),
+                Instant.parse("2024-08-03T01:00:00Z")));
+        assertArrayEquals(new int[] {5}, table.postedBetween(null, Instant.parse("2024-01-01T00:00:00Z")));
+        assertArrayEquals(new int[0], table.postedBetween(Instant.parse("2025-01-01T00:00:00Z"), null));
+    }
+
+    /** Test that recently read postings are kept, and that rows sharing a cache slot are told apart. */
+    @Test
+    public void testRowCache() {
+        List<JobRecord> many = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            many.add(job(Integer.toString(i), i, "2024-08-01T00:00:00Z"));
+        }
+        JobTable table = JobTable.of(many);
+        List<JobRecord> list = table.asList();
+        assertSame(list.get(3), table.get(3));
+        assertSame(table.get(3), table.get(3));
+        for (int row : new int[] {3, 259, 515, 3}) {
+            assertEquals(many.get(row), list.get(row));
+        }
+        assertEquals(many, list);
+    }
+}
@@ -0,0 +1,58 @@
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.api.LatencyTracker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the LatencyTracker class.
+ */
+public class TestLatencyTracker {
+
+    /** Shortest timeout used in the tests. */
+    private static final Duration MIN = Duration.ofMillis(100);
+    /** Longest timeout used in the tests. */
+    private static final Duration MAX = Duration.ofSeconds(5);
+
+    /** Test that nothing is derived before enough samples were recorded. */
+    @Test
+    public void testTooFewSamples() {
+        LatencyTracker tracker = new LatencyTracker();
+        for (int i = 0; i < LatencyTracker.MIN_SAMPLES - 1; i++) {
+            tracker.record(Duration.ofMillis(10).toNanos());
+        }
+        assertNull(tracker.percentile(0.5));
+        assertNull(tracker.hedgeDelay());
+        assertEquals(MAX, tracker.timeout(MIN, MAX));
+    }
+
+    /** Test the percentiles of 1 to 100 ms. */
+    @Test
+    public void testPercentiles() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        for (int i = 100; i >= 1; i--) {
+            tracker.record(Duration.ofMillis(i).toNanos());
+        }
+        assertEquals(Duration.ofMillis(50), tracker.percentile(0.5));
+        assertEquals(Duration.ofMillis(95), tracker.hedgeDelay());
+        assertEquals(Duration.ofMillis(99 * 3), tracker.timeout(MIN, MAX));
+        assertEquals(Duration.ofMillis(100), tracker.timeout(MIN, Duration.ofMillis(100)));
+    }
+
+    /** Test that only the most recent samples are kept. */
+    @Test
+    public void testWindow() {
+        LatencyTracker tracker = new LatencyTracker(LatencyTracker.MIN_SAMPLES);
+        for (int i = 0; i < LatencyTracker.MIN_SAMPLES; i++) {
+            tracker.record(Duration.ofSeconds(10).toNanos());
+        }
+        for (int i = 0; i < LatencyTracker.MIN_SAMPLES; i++) {
+            tracker.record(Duration.ofMillis(1).toNanos());
+        }
+        assertEquals(Duration.ofMillis(1), tracker.percentile(0.99));
+        assertEquals(MIN, tracker.timeout(MIN, MAX));
+        assertEquals(2L * LatencyTracker.MIN_SAMPLES, tracker.count());
+    }
+}
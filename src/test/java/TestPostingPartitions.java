@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.store.PostingPartitions;
+import jobplanner.model.store.PostingStore;
+import jobplanner.model.store.RetentionPolicy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PostingPartitions class.
+ */
+public class TestPostingPartitions {
+
+    /** The directory of the partitions used by the tests. */
+    private static final Path DIRECTORY = Paths.get("data/test_partitions");
+
+    /**
+     * Removes the partitions written by the tests.
+     *
+     * @throws IOException if the files can not be removed
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(DIRECTORY)) {
+            try (Stream<Path> files = Files.walk(DIRECTORY)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a job.
+     *
+     * @param id       the id of the job
+     * @param country  the first area of the location of the job
+     * @param category the category tag of the job
+     * @param created  the posting time of the job
+     * @param salary   the salary of the job
+     * @return the job
+     */
+    private static JobRecord job(String id, String country, String category, String created, double salary) {
+        return new JobRecord("Job " + id, "Description", new Company("Company"),
+                new Location("Somewhere", List.of(country, "Region")), salary, salary, "full_time",
+                created, "https://www.adzuna.com", "adref", new Category(category, category),
+                0, 0, id, "0");
+    }
+
+    /** The postings used by the tests, in four partitions. */
+    private static final List<JobRecord> JOBS = List.of(
+            job("1", "UK", "it-jobs", "2024-08-05T10:00:00Z", 40000),
+            job("2", "UK", "it-jobs", "2024-08-20T10:00:00Z", 60000),
+            job("3", "UK", "it-jobs", "2024-07-15T10:00:00Z", 50000),
+            job("4", "UK", "sales-jobs", "2024-08-20T10:00:00Z", 30000),
+            job("5", "US", "it-jobs", "2024-08-20T10:00:00Z", 90000));
+
+    /** Test that a query only reads the partitions its country, category and dates can match. */
+    @Test
+    public void testPruning() throws IOException {
+        PostingPartitions partitions = PostingPartitions.open(DIRECTORY);
+        partitions.append(JOBS);
+        assertEquals(4, partitions.getPartitions().size());
+        assertTrue(Files.exists(DIRECTORY.resolve("gb/it-jobs/2024-08.jsonl")));
+
+        List<JobRecord> found = partitions.query(new PostingPartitions.Query(Set.of("gb"), Set.of("it-jobs"),
+                Instant.parse("2024-08-10T00:00:00Z"), null, null, null));
+        assertEquals(List.of(JOBS.get(1)), found);
+        assertEquals(1, partitions.getFilesRead());
+
+        // the salary bounds of the manifest rule out every partition but the US one
+        found = partitions.query(new PostingPartitions.Query(null, null, null, 70000.0, null, null));
+        assertEquals(List.of(JOBS.get(4)), found);
+        assertEquals(2, partitions.getFilesRead());
+
+        found = partitions.query(new PostingPartitions.Query(Set.of("gb"), null, null, null, null, "job 3"));
+        assertEquals(List.of(JOBS.get(2)), found);
+        assertEquals(5, partitions.getFilesRead());
+    }
+
+    /** Test that the manifest is read back, and a posting fetched again appears once in its latest version. */
+    @Test
+    public void testReopenAndUpdate() throws IOException {
+        PostingPartitions.open(DIRECTORY).append(JOBS);
+        PostingPartitions partitions = PostingPartitions.open(DIRECTORY);
+        JobRecord updated = job("2", "UK", "it-jobs", "2024-08-20T10:00:00Z", 65000);
+        partitions.append(List.of(updated));
+
+        List<JobRecord> found = partitions.query(new PostingPartitions.Query(Set.of("gb"), Set.of("it-jobs"),
+                null, null, null, null));
+        assertEquals(List.of(updated, JOBS.get(0), JOBS.get(2)), found);
+        assertEquals(4, partitions.getPartitions().size());
+    }
+
+    /**
+     * Test that postings fetched again unchanged are not appended again, also
+     * after the partitions are reopened, while updated ones are.
+     *
+     * @throws IOException if the partitions can not be written
+     */
+    @Test
+    public void testAppendSkipsUnchanged() throws IOException {
+        PostingPartitions.open(DIRECTORY).append(JOBS);
+        PostingPartitions partitions = PostingPartitions.open(DIRECTORY);
+        JobRecord updated = job("2", "UK", "it-jobs", "2024-08-20T10:00:00Z", 65000);
+        partitions.append(JOBS);
+        partitions.append(List.of(JOBS.get(0), updated));
+        partitions.append(List.of(updated));
+
+        assertEquals(3, Files.readAllLines(DIRECTORY.resolve("gb/it-jobs/2024-08.jsonl")).size());
+        assertEquals(1, Files.readAllLines(DIRECTORY.resolve("us/it-jobs/2024-08.jsonl")).size());
+        assertEquals(6, partitions.getPartitions().stream().mapToLong(PostingPartitions.Partition::count).sum());
+        assertEquals(List.of(updated, JOBS.get(0)), partitions.query(new PostingPartitions.Query(Set.of("gb"),
+                Set.of("it-jobs"), Instant.parse("2024-08-01T00:00:00Z"), null, null, null)));
+    }
+
+    /**
+     * Test that retaining with a policy that keeps every posting still drops
+     * the older versions of updated postings, and only reads the partitions
+     * holding some.
+     *
+     * @throws IOException if the partitions can not be rewritten
+     */
+    @Test
+    public void testRetainDropsOlderVersions() throws IOException {
+        PostingPartitions partitions = PostingPartitions.open(DIRECTORY);
+        partitions.append(JOBS);
+        JobRecord updated = job("2", "UK", "it-jobs", "2024-08-20T10:00:00Z", 65000);
+        partitions.append(List.of(updated));
+        PostingPartitions.Partition grown = partitions.getPartitions().stream()
+                .filter(partition -> partition.file().equals("gb/it-jobs/2024-08.jsonl")).findFirst().get();
+        assertEquals(3, grown.count());
+        assertEquals(2, grown.distinct());
+
+        assertEquals(1, partitions.retain(RetentionPolicy.keepAll(), null));
+        assertEquals(2, Files.readAllLines(DIRECTORY.resolve("gb/it-jobs/2024-08.jsonl")).size());
+        assertTrue(PostingPartitions.open(DIRECTORY).getPartitions().stream()
+                .allMatch(partition -> partition.count() == partition.distinct()));
+        assertEquals(0, partitions.retain(RetentionPolicy.keepAll(), null));
+        assertEquals(List.of(updated, JOBS.get(0)), partitions.query(new PostingPartitions.Query(Set.of("gb"),
+                Set.of("it-jobs"), Instant.parse("2024-08-01T00:00:00Z"), null, null, null)));
+    }
+
+    /** Test that a posting store partitions its appends, and builds the partitions of older segments. */
+    @Test
+    public void testPostingStore() throws IOException {
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            store.append(JOBS);
+            assertEquals(4, store.partitions().getPartitions().size());
+        }
+        try (Stream<Path> files = Files.walk(DIRECTORY.resolve("partitions"))) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            assertEquals(List.of(JOBS.get(4)), store.partitions().query(new PostingPartitions.Query(
+                    Set.of("us"), null, null, null, null, null)));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.store.PostingSnapshot;
+import jobplanner.model.store.PostingStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PostingSnapshot class.
+ */
+public class TestPostingSnapshot {
+
+    /** The directory of the files written by the tests. */
+    private static final Path DIRECTORY = Paths.get("data/test_snapshot");
+
+    /**
+     * Removes the files written by the tests.
+     *
+     * @throws IOException if the files can not be removed
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(DIRECTORY)) {
+            try (Stream<Path> files = Files.walk(DIRECTORY)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a job with the given id and creation time.
+     *
+     * @param id      the id of the job
+     * @param created the creation time of the job
+     * @return the job
+     */
+    private static JobRecord job(String id, String created) {
+        return new JobRecord("Job " + id, "D\u00e9veloppeur \u2013 100% remote", new Company("Company"),
+                new Location("Boston", List.of("US", "Massachusetts", "Boston")), 50000.5, 60000, "full_time",
+                created, "https://www.adzuna.com", "adref", new Category("it-jobs", "IT Jobs"),
+                42.36, -71.06, id, "0");
+    }
+
+    /** Test that postings read back equal to the ones written, including missing fields. */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Files.createDirectories(DIRECTORY);
+        Path file = DIRECTORY.resolve("postings.snapshot");
+        JobRecord sparse = new JobRecord(null, "", null, new Location(null, null), 0, 0, null, null,
+                null, null, null, 0, 0, null, null);
+        List<JobRecord> jobs = List.of(job("1", "2024-08-01T10:15:30Z"), job("2", "2024-08-01T10:15:30.5Z"),
+                job("3", "yesterday"), sparse, new JobRecord("t", "d", null, new Location("x", List.of()),
+                        0, 0, null, null, null, null, null, 0, 0, "5", null));
+        PostingSnapshot.write(file, jobs, 7);
+
+        PostingSnapshot snapshot = PostingSnapshot.open(file);
+        assertEquals(7, snapshot.stamp());
+        assertEquals(jobs.size(), snapshot.size());
+        assertEquals(jobs, snapshot.asList());
+        assertEquals(Instant.parse("2024-08-01T10:15:30Z").getEpochSecond(), snapshot.created(0));
+        assertEquals(PostingSnapshot.NO_CREATED, snapshot.created(2));
+        assertEquals(50000.5, snapshot.salaryMin(0));
+        assertEquals("2", snapshot.id(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.asList().get(-1));
+    }
+
+    /** Test that a file that is not a snapshot is rejected. */
+    @Test
+    public void testNotASnapshot() throws IOException {
+        Files.createDirectories(DIRECTORY);
+        Path file = DIRECTORY.resolve("postings.snapshot");
+        Files.writeString(file, "[{\"id\": \"1\"}]                       ");
+        assertThrows(IOException.class, () -> PostingSnapshot.open(file));
+    }
+
+    /** Test that the store rewrites its snapshot once new postings are appended. */
+    @Test
+    public void testStoreSnapshot() throws IOException {
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            store.append(List.of(job("1", "2024-08-01T10:15:30Z")));
+            assertEquals(List.of(job("1", "2024-08-01T10:15:30Z")), store.snapshot().asList());
+            store.append(List.of(job("2", "2024-08-02T10:15:30Z")));
+        }
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            PostingSnapshot snapshot = PostingSnapshot.open(DIRECTORY.resolve("postings.snapshot"));
+            assertEquals(2, snapshot.size()); // rewritten in the background when the store closed
+            assertEquals("2", store.snapshot().id(0));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.models.JobPostModel;
+import jobplanner.model.store.PostingPartitions;
+import jobplanner.model.store.PostingSnapshot;
+import jobplanner.model.store.PostingStore;
+import jobplanner.model.store.RetentionPolicy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PostingStore class.
+ */
+public class TestPostingStore {
+
+    /** The directory of the store used by the tests. */
+    private static final Path DIRECTORY = Paths.get("data/test_postings");
+
+    /**
+     * Removes the store written by the tests.
+     *
+     * @throws IOException if the files can not be removed
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(DIRECTORY)) {
+            try (Stream<Path> files = Files.walk(DIRECTORY)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a job with the given id and title.
+     *
+     * @param id    the id of the job
+     * @param title the title of the job
+     * @return the job
+     */
+    private static JobRecord job(String id, String title) {
+        return new JobRecord(title, "Says \"id\":\"fake\" in the text", new Company("Company"),
+                new Location("Boston", List.of("US", "Massachusetts")), 50000, 60000, "full_time",
+                "2024-08-01T00:00:00Z", "https://www.adzuna.com", "adref", new Category("it-jobs", "IT Jobs"),
+                0, 0, id, "0");
+    }
+
+    /** Test that every append is a segment and the latest version of a posting wins. */
+    @Test
+    public void testAppendAndGet() throws IOException {
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            store.append(List.of(job("1", "First"), job("2", "Second")));
+            store.append(List.of(job("2", "Second, updated"), job("3", "Third")));
+
+            assertEquals(2, store.segmentCount());
+            assertEquals(3, store.size());
+            assertEquals("Second, updated", store.get("2").title());
+            assertEquals(job("1", "First"), store.get("1"));
+            assertNull(store.get("4"));
+            assertEquals(List.of(job("2", "Second, updated"), job("3", "Third"), job("1", "First")),
+                    store.getAll());
+        }
+    }
+
+    /** Test that the index is rebuilt from the segments when the store is reopened. */
+    @Test
+    public void testReopen() throws IOException {
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            store.append(List.of(job("1", "First"), job("2", "Second")));
+            store.appendAsync(List.of(job("1", "First, updated"))).join();
+        }
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            assertEquals(2, store.size());
+            assertEquals("First, updated", store.get("1").title());
+            assertEquals(2, JobPostModel.getInstance(DIRECTORY.toString()).getJobs().size());
+        }
+    }
+
+    /** Test that merging keeps only the latest version of every posting. */
+    @Test
+    public void testMerge() throws IOException {
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            store.append(List.of(job("1", "First"), job("2", "Second")));
+            store.append(List.of(job("2", "Second, updated")));
+            store.append(List.of(job("3", "Third")));
+            List<JobRecord> before = store.getAll();
+
+            store.merge();
+
+            assertEquals(1, store.segmentCount());
+            assertEquals(before, store.getAll());
+            assertEquals("Second, updated", store.get("2").title());
+        }
+        try (PostingStore store = PostingStore.open(DIRECTORY);
+                Stream<Path> files = Files.list(DIRECTORY)) {
+            assertEquals(1, files.filter(file -> file.getFileName().toString().startsWith("segment-")).count());
+            assertEquals(3, store.size());
+            store.append(List.of(job("4", "Fourth")));
+            assertEquals(2, store.segmentCount());
+        }
+    }
+
+    /** Test that compaction drops stale postings, but keeps pinned ones, from the segments and partitions. */
+    @Test
+    public void testCompact() throws IOException {
+        String recent = Instant.now().minus(Duration.ofDays(1)).toString();
+        JobRecord fresh = withCreated(job("1", "Fresh"), recent);
+        JobRecord stale = job("2", "Stale");
+        JobRecord saved = job("3", "Saved");
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            store.append(List.of(fresh, stale));
+            store.append(List.of(saved));
+            PostingSnapshot mapped = store.snapshot();
+            assertEquals(3, mapped.size());
+
+            PostingStore.Compaction result = store.compact(RetentionPolicy.ofDays(30, List.of(saved)));
+
+            assertEquals(1, result.dropped());
+            assertTrue(result.bytesAfter() < result.bytesBefore());
+            assertEquals(1, store.segmentCount());
+            assertEquals(2, store.size());
+            assertNull(store.get("2"));
+            assertEquals(List.of(saved, fresh), store.getAll());
+            assertEquals(2, store.snapshot().size());
+            // the snapshot mapped before was replaced, not deleted, and still reads
+            assertEquals(3, mapped.size());
+            assertEquals(stale, mapped.asList().stream().filter(job -> "2".equals(job.id())).findFirst().get());
+            assertEquals(List.of(fresh, saved), store.partitions().query(new PostingPartitions.Query(null, null,
+                    null, null, null, null)));
+        }
+    }
+
+    /** Test that a store opened while another store writes to the directory is read-only. */
+    @Test
+    public void testSingleWriter() throws IOException {
+        try (PostingStore writer = PostingStore.open(DIRECTORY)) {
+            writer.append(List.of(job("1", "First")));
+            try (PostingStore reader = PostingStore.open(DIRECTORY)) {
+                assertTrue(writer.isWritable());
+                assertFalse(reader.isWritable());
+                assertThrows(IOException.class, () -> reader.append(List.of(job("2", "Second"))));
+                reader.appendAsync(List.of(job("2", "Second"))).join();
+                assertEquals(List.of(job("1", "First")), reader.getAll());
+            }
+        }
+        try (PostingStore store = PostingStore.open(DIRECTORY)) {
+            assertTrue(store.isWritable());
+        }
+    }
+
+    /**
+     * Copies a job with another posting time.
+     *
+     * @param job     the job
+     * @param created the posting time
+     * @return the copy
+     */
+    private static JobRecord withCreated(JobRecord job, String created) {
+        return new JobRecord(job.title(), job.description(), job.company(), job.location(), job.salaryMin(),
+                job.salaryMax(), job.contractTime(), created, job.redirectUrl(), job.adref(), job.category(),
+                job.latitude(), job.longitude(), job.id(), job.salaryIsPredicted());
+    }
+}
@@ -0,0 +1,91 @@
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.api.QuotaExceededException;
+import jobplanner.model.api.RequestScheduler;
+import jobplanner.model.api.RequestScheduler.Priority;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the RequestScheduler class.
+ */
+public class TestRequestScheduler {
+
+    /** Test that requests within the quota are sent right away. */
+    @Test
+    public void testWithinQuota() {
+        RequestScheduler scheduler = new RequestScheduler(50, 100, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ok", scheduler.submit(Priority.INTERACTIVE,
+                    () -> CompletableFuture.completedFuture("ok")).join());
+        }
+
+        RequestScheduler.Usage usage = scheduler.getUsage();
+        assertEquals(5, usage.lastMinute());
+        assertEquals(5, usage.today());
+        assertEquals(0, usage.queued());
+    }
+
+    /** Test that a request over the quota fails after the maximum wait. */
+    @Test
+    public void testOverQuotaFailsAfterWait() {
+        RequestScheduler scheduler = new RequestScheduler(1, 100, Duration.ofMillis(100));
+        scheduler.submit(Priority.INTERACTIVE, () -> CompletableFuture.completedFuture("first")).join();
+
+        CompletableFuture<String> second = scheduler.submit(Priority.INTERACTIVE,
+                () -> CompletableFuture.completedFuture("second"));
+
+        CompletionException e = assertThrows(CompletionException.class, second::join);
+        assertTrue(e.getCause() instanceof QuotaExceededException);
+        assertEquals(0, scheduler.getUsage().queued());
+    }
+
+    /** Test that the daily quota is enforced. */
+    @Test
+    public void testDailyQuota() {
+        RequestScheduler scheduler = new RequestScheduler(10, 1, Duration.ofMillis(100));
+        scheduler.submit(Priority.INTERACTIVE, () -> CompletableFuture.completedFuture("first")).join();
+
+        CompletableFuture<String> second = scheduler.submit(Priority.INTERACTIVE,
+                () -> CompletableFuture.completedFuture("second"));
+
+        assertThrows(CompletionException.class, second::join);
+        assertEquals(1, scheduler.getUsage().today());
+    }
+
+    /** Test that interactive requests are released before background requests. */
+    @Test
+    public void testInteractiveBeforeBackground() {
+        // 60 calls per minute: a burst of 12, then one call every 1.25 seconds
+        RequestScheduler scheduler = new RequestScheduler(60, 1000, Duration.ofSeconds(5));
+        for (int i = 0; i < 12; i++) {
+            scheduler.submit(Priority.INTERACTIVE, () -> CompletableFuture.completedFuture("burst")).join();
+        }
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> background = scheduler.submit(Priority.BACKGROUND, () -> {
+            order.add("background");
+            return CompletableFuture.completedFuture("background");
+        });
+        CompletableFuture<String> interactive = scheduler.submit(Priority.INTERACTIVE, () -> {
+            order.add("interactive");
+            return CompletableFuture.completedFuture("interactive");
+        });
+
+        CompletableFuture.allOf(background, interactive).join();
+        assertEquals(List.of("interactive", "background"), order);
+    }
+
+    /** Test that invalid quotas are rejected. */
+    @Test
+    public void testInvalidQuota() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestScheduler(0, 10, Duration.ofSeconds(1)));
+    }
+}
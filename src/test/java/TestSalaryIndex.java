@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.JobTable;
+import jobplanner.model.models.SalaryIndex;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SalaryIndex class.
+ */
+public class TestSalaryIndex {
+
+    /**
+     * Creates a posting with a salary range.
+     *
+     * @param salaryMin the minimum salary
+     * @param salaryMax the maximum salary
+     * @param predicted whether the salary is predicted
+     * @return the posting
+     */
+    private static JobRecord job(double salaryMin, double salaryMax, boolean predicted) {
+        return new JobRecord("Job", null, null, null, salaryMin, salaryMax, null, null, null, null, null, 0, 0,
+                null, predicted ? "1" : "0");
+    }
+
+    /** Test that range queries select the same postings as a scan does. */
+    @Test
+    public void testOverlapping() {
+        Random random = new Random(7);
+        List<JobRecord> jobs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            double salaryMin = random.nextInt(100) * 1000;
+            jobs.add(job(salaryMin, salaryMin + random.nextInt(40) * 1000, random.nextInt(4) == 0));
+        }
+        JobTable table = JobTable.of(jobs);
+        SalaryIndex all = SalaryIndex.of(table, false);
+        SalaryIndex stated = SalaryIndex.of(table, true);
+        assertEquals(500, all.size());
+
+        for (int query = 0; query < 50; query++) {
+            double min = random.nextInt(150) * 1000;
+            double max = min + random.nextInt(50) * 1000;
+            int[] expected = table.filter(row -> table.salaryMax(row) >= min && table.salaryMin(row) <= max);
+            assertArrayEquals(expected, all.overlapping(min, max));
+            assertEquals(expected.length, all.countOverlapping(min, max));
+            assertArrayEquals(table.filter(row -> table.salaryMax(row) >= min), all.atLeast(min));
+            assertEquals(all.atLeast(min).length, all.countAtLeast(min));
+
+            int[] withoutPredicted = table.filter(row -> !table.salaryIsPredicted(row)
+                    && table.salaryMax(row) >= min && table.salaryMin(row) <= max);
+            assertArrayEquals(withoutPredicted, stated.overlapping(min, max));
+            assertArrayEquals(withoutPredicted, table.salaryBetween(min, max, true));
+        }
+        assertEquals(0, all.countOverlapping(2000, 1000));
+    }
+
+    /** Test that both ways the API marks a predicted salary are read, on records and on tables. */
+    @Test
+    public void testIsPredicted() {
+        assertTrue(JobTable.isPredicted("1"));
+        assertTrue(JobTable.isPredicted("TRUE"));
+        assertFalse(JobTable.isPredicted("0"));
+        assertFalse(JobTable.isPredicted(null));
+        JobTable table = JobTable.of(List.of(job(1, 2, true), job(1, 2, false)));
+        assertTrue(table.salaryIsPredicted(0));
+        assertFalse(table.salaryIsPredicted(1));
+    }
+}
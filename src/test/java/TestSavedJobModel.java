@@ -4,6 +4,7 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
@@ -18,6 +19,7 @@ import jobplanner.model.models.IJobPostModel.Company;
 import jobplanner.model.models.IJobPostModel.Location;
 import jobplanner.model.models.IJobPostModel.Category;
 import jobplanner.model.models.ISavedJobModel;
+import jobplanner.model.models.ModelChange;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -167,6 +169,57 @@ public class TestSavedJobModel {
         assertEquals(3, savedJobModel.count());
     }
 
+    /**
+     * Test that the same posting is only saved once.
+     */
+    @Test
+    public void testAddDuplicate() {
+        JobRecord job = savedJobModel.getSavedJobs().get(0);
+        savedJobModel.addSavedJob(job);
+        assertEquals(2, savedJobModel.count());
+        assertEquals(job, savedJobModel.getSavedJobs().get(0));
+    }
+
+    /**
+     * Test that jobs are matched on their id.
+     */
+    @Test
+    public void testContainsAndRemoveById() {
+        JobRecord saved = savedJobModel.getSavedJobs().get(0);
+        JobRecord sameId = new JobRecord("Renamed", "Other description", saved.company(), saved.location(),
+                1, 2, "part_time", saved.created(), saved.redirectUrl(), saved.adref(), saved.category(),
+                0, 0, saved.id(), "false");
+
+        assertTrue(savedJobModel.contains(sameId));
+        savedJobModel.removeSavedJob(sameId);
+        assertFalse(savedJobModel.contains(saved));
+        assertEquals(1, savedJobModel.count());
+    }
+
+    /**
+     * Test adding and removing several jobs in one operation.
+     */
+    @Test
+    public void testAddAllAndRemoveAll() {
+        List<JobRecord> initialJobs = savedJobModel.getSavedJobs();
+        JobRecord newJob = new JobRecord("Product Manager", "Description",
+                new Company("Company C"), new Location("City C", List.of("Country", "State", "County", "City C")),
+                80000, 100000, "Full-time", "2023-03-01", "http://example.com", "adref",
+                new Category("pm", "Product Management Jobs"), 37.7749, -122.4194, "3", "true");
+
+        assertTrue(savedJobModel.addAll(List.of(initialJobs.get(0), newJob)));
+        assertEquals(3, savedJobModel.count());
+        assertEquals("Product Manager", savedJobModel.getSavedJobs().get(2).title());
+        assertFalse(savedJobModel.addAll(List.of(newJob)));
+
+        assertTrue(savedJobModel.removeAll(initialJobs));
+        assertEquals(List.of(newJob), savedJobModel.getSavedJobs());
+        assertFalse(savedJobModel.removeAll(initialJobs));
+
+        // lists handed out before stay as they were
+        assertEquals(2, initialJobs.size());
+    }
+
     /**
      * Test setting and getting the last saved date.
      */
@@ -192,4 +245,86 @@ public class TestSavedJobModel {
         });
         assertEquals("Failed to load model from invalid_file.json", exception.getMessage());
     }
+
+    /**
+     * Test that listeners are told which jobs were added, removed and updated.
+     */
+    @Test
+    public void testListeners() {
+        List<ModelChange> changes = new ArrayList<>();
+        savedJobModel.addListener(changes::add);
+        JobRecord first = savedJobModel.getSavedJobs().get(0);
+        JobRecord renamed = new JobRecord("Senior Software Engineer", first.description(), first.company(),
+                first.location(), first.salaryMin(), first.salaryMax(), first.contractTime(), first.created(),
+                first.redirectUrl(), first.adref(), first.category(), first.latitude(), first.longitude(),
+                first.id(), first.salaryIsPredicted());
+
+        savedJobModel.removeSavedJob(savedJobModel.getSavedJobs().get(1));
+        savedJobModel.addSavedJob(first); // already saved, no change
+        savedJobModel.replaceSavedJob(renamed);
+
+        assertEquals(2, changes.size());
+        assertEquals(List.of("2"), changes.get(0).removedIds());
+        assertTrue(changes.get(0).addedIds().isEmpty());
+        assertEquals(List.of(renamed), changes.get(1).updated());
+        assertEquals(List.of(renamed), savedJobModel.getSavedJobs());
+    }
+
+    /**
+     * Test that a batch reports only the jobs it changed, once each.
+     */
+    @Test
+    public void testBatchChanges() {
+        List<ModelChange> changes = new ArrayList<>();
+        savedJobModel.addListener(changes::add);
+        JobRecord first = savedJobModel.getSavedJobs().get(0);
+        JobRecord added = new JobRecord("Job", null, null, null, 0, 0, null, null, null, null, null, 0, 0, "3",
+                null);
+
+        assertTrue(savedJobModel.addAll(List.of(first, added, added)));
+        assertFalse(savedJobModel.addAll(List.of(first, added)));
+        savedJobModel.clearSavedJobs();
+        savedJobModel.clearSavedJobs(); // already empty, no change
+
+        assertEquals(2, changes.size());
+        assertEquals(List.of("3"), changes.get(0).addedIds());
+        assertTrue(changes.get(0).removed().isEmpty());
+        assertEquals(List.of("1", "2", "3"), changes.get(1).removedIds());
+    }
+
+    /**
+     * Test that readers see whole snapshots while other threads write.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writers
+     */
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        savedJobModel.clearSavedJobs();
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    savedJobModel.addSavedJob(new JobRecord("Job", null, null, null, 0, 0, null, null, null,
+                            null, null, 0, 0, writer + "-" + i, null));
+                }
+            });
+            writers[w].start();
+        }
+        int last = 0;
+        while (last < writers.length * 200) {
+            List<JobRecord> jobs = savedJobModel.getSavedJobs();
+            int size = 0;
+            for (JobRecord job : jobs) {
+                assertNotNull(job);
+                size++;
+            }
+            assertTrue(size >= last);
+            last = size;
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(writers.length * 200, savedJobModel.count());
+    }
 }
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.models.SavedJobModel;
+import jobplanner.model.store.SavedJobStore;
+import jobplanner.model.store.WriteAheadLog;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SavedJobStore class.
+ */
+public class TestSavedJobStore {
+
+    /** The snapshot file used by the tests. */
+    private static final Path SNAPSHOT = Paths.get("data/test_savedjobstore.json");
+    /** The journal of the snapshot file, written by earlier versions. */
+    private static final Path JOURNAL = Paths.get("data/test_savedjobstore.json.journal");
+    /** The log of the snapshot file. */
+    private static final Path LOG = Paths.get("data/test_savedjobstore.json.wal");
+    /** The lock file of the snapshot file. */
+    private static final Path LOCK = Paths.get("data/test_savedjobstore.json.lock");
+
+    /**
+     * Removes the files written by the tests.
+     *
+     * @throws IOException if the files can not be removed
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(SNAPSHOT);
+        Files.deleteIfExists(JOURNAL);
+        Files.deleteIfExists(LOG);
+        Files.deleteIfExists(LOCK);
+    }
+
+    /**
+     * Creates a job with the given id.
+     *
+     * @param id the id of the job
+     * @return the job
+     */
+    private static JobRecord job(String id) {
+        return new JobRecord("Job " + id, "Description", new Company("Company"),
+                new Location("Boston", List.of("US", "Massachusetts")), 50000, 60000, "full_time",
+                "2024-08-01T00:00:00Z", "https://www.adzuna.com", "adref", new Category("it-jobs", "IT Jobs"),
+                0, 0, id, "0");
+    }
+
+    /** Test that changes end up in the snapshot and the log is emptied. */
+    @Test
+    public void testChangesAreCompacted() throws IOException {
+        try (SavedJobStore store = new SavedJobStore(SNAPSHOT, Duration.ofHours(1))) {
+            store.added(List.of(job("1"), job("2"), job("3")));
+            store.removed(List.of(job("2")));
+            store.added(List.of(job("1"))); // already saved
+            store.flush();
+
+            assertTrue(Files.exists(SNAPSHOT));
+            assertFalse(Files.exists(JOURNAL));
+            assertEquals(0, Files.size(LOG));
+            assertEquals(List.of(job("1"), job("3")), SavedJobStore.readJobs(SNAPSHOT));
+            assertEquals(2, SavedJobModel.loadFromJson(SNAPSHOT.toString()).count());
+        }
+    }
+
+    /** Test that changes are compacted once no change came in for the debounce delay. */
+    @Test
+    public void testDebounce() throws Exception {
+        try (SavedJobStore store = new SavedJobStore(SNAPSHOT, Duration.ofMillis(50))) {
+            store.added(List.of(job("1")));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!Files.exists(SNAPSHOT) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(job("1")), SavedJobStore.readJobs(SNAPSHOT));
+        }
+    }
+
+    /** Test that replacing the list drops the jobs saved before. */
+    @Test
+    public void testReplaced() throws IOException {
+        try (SavedJobStore store = new SavedJobStore(SNAPSHOT, Duration.ofHours(1))) {
+            store.added(List.of(job("1"), job("2")));
+            store.replaced(List.of(job("3")));
+            store.flush();
+            assertEquals(List.of(job("3")), SavedJobStore.readJobs(SNAPSHOT));
+        }
+    }
+
+    /** Test that a journal left behind by an earlier version is replayed, skipping a torn last entry. */
+    @Test
+    public void testJournalReplay() throws IOException {
+        try (OutputStream os = Files.newOutputStream(SNAPSHOT)) {
+            JobCodec.getInstance().writeList(List.of(job("1"), job("2")), os, true);
+        }
+        String add = JobCodec.getInstance().getMapper().writeValueAsString(job("3"));
+        String remove = JobCodec.getInstance().getMapper().writeValueAsString(job("1"));
+        Files.writeString(JOURNAL, "{\"op\":\"add\",\"job\":" + add + "}\n"
+                + "{\"op\":\"remove\",\"job\":" + remove + "}\n"
+                + "{\"op\":\"add\",\"job\":{\"title\":\"Torn", StandardCharsets.UTF_8);
+
+        assertEquals(List.of(job("2"), job("3")), SavedJobStore.readJobs(SNAPSHOT));
+
+        // the next change starts from the replayed state
+        try (SavedJobStore store = new SavedJobStore(SNAPSHOT, Duration.ofHours(1))) {
+            store.added(List.of(job("4")));
+        }
+        assertFalse(Files.exists(JOURNAL));
+        assertEquals(List.of(job("2"), job("3"), job("4")), SavedJobStore.readJobs(SNAPSHOT));
+    }
+
+    /** Test that a log left behind by a crash is replayed onto the snapshot. */
+    @Test
+    public void testLogReplay() throws IOException {
+        try (OutputStream os = Files.newOutputStream(SNAPSHOT)) {
+            JobCodec.getInstance().writeList(List.of(job("1")), os, true);
+        }
+        String add = JobCodec.getInstance().getMapper().writeValueAsString(job("2"));
+        try (WriteAheadLog log = new WriteAheadLog(LOG, WriteAheadLog.SyncPolicy.ALWAYS, Duration.ZERO)) {
+            log.append(("{\"op\":\"add\",\"job\":" + add + "}").getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(LOG, new byte[] {0, 0, 0, 9, 1, 2}, StandardOpenOption.APPEND); // torn entry
+
+        assertEquals(List.of(job("1"), job("2")), SavedJobStore.readJobs(SNAPSHOT));
+        try (SavedJobStore store = new SavedJobStore(SNAPSHOT, Duration.ofHours(1))) {
+            store.removed(List.of(job("1")));
+        }
+        assertEquals(List.of(job("2")), SavedJobStore.readJobs(SNAPSHOT));
+    }
+
+    /** Test that a missing file is reported. */
+    @Test
+    public void testMissingFile() {
+        assertThrows(IOException.class, () -> SavedJobStore.readJobs(SNAPSHOT));
+    }
+
+    /** Test that a store catches up with the changes of another store of the same file before writing. */
+    @Test
+    public void testTwoWriters() throws IOException {
+        try (SavedJobStore first = new SavedJobStore(SNAPSHOT, Duration.ofHours(1));
+                SavedJobStore second = new SavedJobStore(SNAPSHOT, Duration.ofHours(1))) {
+            first.added(List.of(job("1")));
+            first.flush();
+            second.added(List.of(job("2")));
+            second.flush();
+            first.added(List.of(job("3")));
+            first.removed(List.of(job("1")));
+            first.flush();
+        }
+        assertEquals(List.of(job("2"), job("3")), SavedJobStore.readJobs(SNAPSHOT));
+    }
+
+    /** Test that a watching store is told about the changes another store made. */
+    @Test
+    public void testWatch() throws Exception {
+        BlockingQueue<SavedJobStore.Changes> changes = new LinkedBlockingQueue<>();
+        try (SavedJobStore watching = new SavedJobStore(SNAPSHOT, Duration.ofHours(1));
+                SavedJobStore other = new SavedJobStore(SNAPSHOT, Duration.ofHours(1))) {
+            watching.added(List.of(job("1")));
+            watching.flush();
+            watching.watch(changes::add);
+
+            other.added(List.of(job("2")));
+            other.removed(List.of(job("1")));
+            other.flush();
+
+            // the watcher may see the other store's writes in more than one batch
+            Set<JobRecord> added = new HashSet<>();
+            Set<JobRecord> removed = new HashSet<>();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!(added.contains(job("2")) && removed.contains(job("1"))) && System.nanoTime() < deadline) {
+                SavedJobStore.Changes change = changes.poll(100, TimeUnit.MILLISECONDS);
+                if (change != null) {
+                    assertTrue(change.updated().isEmpty());
+                    added.addAll(change.added());
+                    removed.addAll(change.removed());
+                }
+            }
+            assertEquals(Set.of(job("2")), added);
+            assertEquals(Set.of(job("1")), removed);
+        }
+    }
+}
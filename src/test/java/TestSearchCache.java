@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.api.SearchCache;
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SearchCache class.
+ */
+public class TestSearchCache {
+
+    /** Test cache directory. */
+    private static final Path TEST_DIRECTORY = Paths.get("data/test_cache");
+
+    /** Sample search result. */
+    private static final List<JobRecord> SAMPLE_JOBS = List.of(
+            new JobRecord("Software Engineer", "Description",
+                    new Company("Company A"),
+                    new Location("City A", List.of("Country", "State", "County", "City A")),
+                    60000, 80000, "full_time", "2023-01-01", "http://example.com", "adref",
+                    new Category("it-jobs", "IT Jobs"), 40.7128, -74.0060, "1", "0"));
+
+    /** Number of times the loader was called. */
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Clean up the test cache directory.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(TEST_DIRECTORY)) {
+            try (Stream<Path> files = Files.walk(TEST_DIRECTORY)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loader that counts its calls and returns the sample jobs.
+     *
+     * @return a completed future with the sample jobs
+     */
+    private CompletableFuture<List<JobRecord>> load() {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(SAMPLE_JOBS);
+    }
+
+    /** Test that equivalent searches share a key. */
+    @Test
+    public void testCanonicalKey() {
+        Map<String, String> first = new HashMap<>();
+        first.put("what", "Java  Developer ");
+        first.put("where", "Boston");
+        Map<String, String> second = new HashMap<>();
+        second.put("Where", "boston");
+        second.put("what", "java developer");
+
+        assertEquals(SearchCache.canonicalKey("US", first, 1), SearchCache.canonicalKey("us", second, 1));
+        assertNotEquals(SearchCache.canonicalKey("us", first, 1), SearchCache.canonicalKey("gb", first, 1));
+        assertNotEquals(SearchCache.canonicalKey("us", first, 1), SearchCache.canonicalKey("us", first, 2));
+    }
+
+    /** Test that a repeated search is served from memory. */
+    @Test
+    public void testMemoryHit() {
+        SearchCache cache = new SearchCache(null, 10, Duration.ofMinutes(5), Duration.ofMinutes(10));
+
+        assertEquals(SAMPLE_JOBS, cache.get("key", this::load).join());
+        assertEquals(SAMPLE_JOBS, cache.get("key", this::load).join());
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().memoryHits());
+        assertEquals(1, cache.getStats().misses());
+    }
+
+    /** Test that a second cache reads what the first one wrote to disk. */
+    @Test
+    public void testDiskHitAcrossInstances() {
+        SearchCache writer = new SearchCache(TEST_DIRECTORY, 10, Duration.ofMinutes(5), Duration.ofMinutes(10));
+        writer.get("key", this::load).join();
+
+        SearchCache reader = new SearchCache(TEST_DIRECTORY, 10, Duration.ofMinutes(5), Duration.ofMinutes(10));
+        assertEquals(SAMPLE_JOBS, reader.get("key", this::load).join());
+
+        assertEquals(1, loads.get());
+        assertEquals(1, reader.getStats().diskHits());
+    }
+
+    /** Test that a stale entry is served and refreshed in the background. */
+    @Test
+    public void testStaleWhileRevalidate() {
+        SearchCache cache = new SearchCache(null, 10, Duration.ZERO, Duration.ofMinutes(10));
+        cache.get("key", this::load).join();
+
+        CompletableFuture<List<JobRecord>> refresh = new CompletableFuture<>();
+        List<JobRecord> served = cache.get("key", () -> refresh).join();
+
+        assertEquals(SAMPLE_JOBS, served);
+        assertEquals(1, cache.getStats().staleHits());
+        refresh.complete(List.of());
+    }
+
+    /** Test that empty results are not cached. */
+    @Test
+    public void testEmptyResultNotCached() {
+        SearchCache cache = new SearchCache(null, 10, Duration.ofMinutes(5), Duration.ofMinutes(10));
+        cache.get("key", () -> CompletableFuture.completedFuture(List.of())).join();
+        cache.get("key", this::load).join();
+
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.getStats().misses());
+    }
+
+    /** Test that the least recently used entry is evicted. */
+    @Test
+    public void testEviction() {
+        SearchCache cache = new SearchCache(null, 1, Duration.ofMinutes(5), Duration.ofMinutes(10));
+        cache.get("first", this::load).join();
+        cache.get("second", this::load).join();
+        cache.get("first", this::load).join();
+
+        assertEquals(3, loads.get());
+    }
+}
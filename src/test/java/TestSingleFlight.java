@@ -0,0 +1,116 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.api.SingleFlight;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SingleFlight class.
+ */
+public class TestSingleFlight {
+
+    /** Number of calls started. */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /** Test that identical calls in flight are only started once. */
+    @Test
+    public void testCoalescesInFlightCalls() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flights.run("key", () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = flights.run("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertEquals(1, flights.inFlight());
+        pending.complete("result");
+
+        assertEquals("result", first.join());
+        assertEquals("result", second.join());
+        assertEquals(1, calls.get());
+        assertEquals(1, flights.sharedCount());
+        assertEquals(0, flights.inFlight());
+    }
+
+    /** Test that a new call is started once the previous one completed. */
+    @Test
+    public void testReleasesKeyOnCompletion() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        flights.run("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("first");
+        }).join();
+
+        assertEquals("second", flights.run("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("second");
+        }).join());
+        assertEquals(2, calls.get());
+    }
+
+    /** Test that different keys do not share calls. */
+    @Test
+    public void testDifferentKeys() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        flights.run("a", CompletableFuture::new);
+        flights.run("b", CompletableFuture::new);
+
+        assertEquals(2, flights.inFlight());
+        assertEquals(0, flights.sharedCount());
+    }
+
+    /** Test that a failure reaches every caller and releases the key. */
+    @Test
+    public void testFailure() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.run("key", () -> pending);
+        CompletableFuture<String> second = flights.run("key", () -> pending);
+
+        pending.completeExceptionally(new IllegalStateException("boom"));
+
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+        assertEquals(0, flights.inFlight());
+    }
+
+    /** Test that one caller cancelling does not cancel the others. */
+    @Test
+    public void testCancelOneCaller() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.run("key", () -> pending);
+        CompletableFuture<String> second = flights.run("key", () -> pending);
+
+        first.cancel(true);
+        pending.complete("result");
+
+        assertEquals("result", second.join());
+    }
+
+    /** Test that the call is cancelled once every caller has cancelled. */
+    @Test
+    public void testCancelEveryCaller() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.run("key", () -> pending);
+        CompletableFuture<String> second = flights.run("key", () -> pending);
+
+        first.cancel(true);
+        assertFalse(pending.isCancelled());
+        second.cancel(true);
+
+        assertTrue(pending.isCancelled());
+        assertEquals(0, flights.inFlight());
+        assertEquals("next", flights.run("key", () -> CompletableFuture.completedFuture("next")).join());
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.api.AdzunaException;
+import jobplanner.model.api.JobPostUtil;
+import jobplanner.model.api.RequestScheduler;
+import jobplanner.model.api.SearchCache;
+import jobplanner.model.api.StubAdzunaServer;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StubAdzunaServer class, searching it with a JobPostUtil.
+ */
+public class TestStubAdzunaServer {
+
+    /** Directory of the recordings made by the tests. */
+    private static final Path RECORDINGS = Paths.get("data/test_recordings");
+
+    /** The server under test. */
+    private StubAdzunaServer server;
+    /** A client pointed at the server. */
+    private JobPostUtil client;
+
+    /**
+     * Starts a server and points a client without disk cache at it.
+     *
+     * @throws IOException if the server can not be started
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubAdzunaServer(0).start();
+        client = new JobPostUtil("id", "key",
+                new SearchCache(null, 16, Duration.ZERO, Duration.ZERO),
+                new RequestScheduler(600, 10000, Duration.ofSeconds(5)))
+                .withBaseUrl(server.getBaseUrl());
+    }
+
+    /**
+     * Stops the server and removes the recordings.
+     *
+     * @throws IOException if the recordings can not be removed
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+        if (Files.exists(RECORDINGS)) {
+            try (Stream<Path> files = Files.list(RECORDINGS)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(RECORDINGS);
+        }
+    }
+
+    /** Test that synthetic pages have the requested size and distinct ids. */
+    @Test
+    public void testSyntheticPages() {
+        Map<String, String> params = new HashMap<>();
+        params.put("results_per_page", "5");
+
+        List<JobRecord> jobs = client.getJobPostingList("us", params, 3);
+
+        assertEquals(15, jobs.size());
+        Set<String> ids = new HashSet<>();
+        jobs.forEach(job -> ids.add(job.id()));
+        assertEquals(15, ids.size());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    /** Test that pages past the last result are empty. */
+    @Test
+    public void testTotalResults() {
+        server.setTotalResults(7);
+        Map<String, String> params = new HashMap<>();
+        params.put("results_per_page", "5");
+
+        assertEquals(7, client.getJobPostingList("gb", params, 3).size());
+    }
+
+    /** Test that the category and payload size are applied. */
+    @Test
+    public void testCategoryAndDescriptionLength() {
+        server.setDescriptionLength(2000);
+        Map<String, String> params = new HashMap<>();
+        params.put("category", "teaching-jobs");
+
+        List<JobRecord> jobs = client.getJobPostingList("us", params);
+
+        assertFalse(jobs.isEmpty());
+        for (JobRecord job : jobs) {
+            assertEquals("teaching-jobs", job.category().tag());
+            assertEquals(2000, job.description().length());
+        }
+    }
+
+    /** Test that injected errors reach the client as a typed error. */
+    @Test
+    public void testErrorRate() {
+        server.setErrorRate(1);
+        assertThrows(AdzunaException.class, () -> client.getJobPostingList("us", Map.of("what", "errors")));
+    }
+
+    /** Test that injected latency slows the responses down. */
+    @Test
+    public void testLatency() {
+        server.setLatency(Duration.ofMillis(200), Duration.ofMillis(200));
+        long start = System.nanoTime();
+        client.getJobPostingList("us", Map.of("what", "slow"));
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(200).toNanos());
+    }
+
+    /**
+     * Test that responses recorded from an upstream are replayed without it.
+     *
+     * @throws IOException if a server can not be started
+     */
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        Map<String, String> params = Map.of("what", "java");
+        List<JobRecord> recorded;
+        try (StubAdzunaServer recorder = new StubAdzunaServer(0, RECORDINGS, server.getBaseUrl(), 0).start()) {
+            recorded = client.withBaseUrl(recorder.getBaseUrl()).getJobPostingList("us", params);
+        }
+        assertEquals(1, server.getRequestCount());
+
+        server.setTotalResults(0); // the upstream now finds nothing
+        try (StubAdzunaServer replayer = new StubAdzunaServer(0, RECORDINGS, null, 0).start()) {
+            assertEquals(recorded, client.withBaseUrl(replayer.getBaseUrl()).getJobPostingList("us", params));
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+}
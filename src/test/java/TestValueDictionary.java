@@ -0,0 +1,97 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.formatters.JobCodec;
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.models.ValueDictionary;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ValueDictionary class.
+ */
+public class TestValueDictionary {
+
+    /** Two postings with the same company, location and category. */
+    private static final String POSTINGS = "["
+            + "{\"id\":\"1\",\"title\":\"A\",\"company\":{\"display_name\":\"Acme\"},"
+            + "\"location\":{\"display_name\":\"Seattle\",\"area\":[\"US\",\"Washington\",\"Seattle\"]},"
+            + "\"category\":{\"tag\":\"it-jobs\",\"label\":\"IT Jobs\"}},"
+            + "{\"id\":\"2\",\"title\":\"B\",\"company\":{\"display_name\":\"Acme\"},"
+            + "\"location\":{\"display_name\":\"Seattle\",\"area\":[\"US\",\"Washington\",\"Seattle\"]},"
+            + "\"category\":{\"tag\":\"it-jobs\",\"label\":\"IT Jobs\"}}]";
+
+    /** Test that postings read with every engine share their values. */
+    @Test
+    public void testSharedAfterReading() throws IOException {
+        for (JobCodec.Engine engine : JobCodec.Engine.values()) {
+            List<JobRecord> jobs = new JobCodec(engine).readList(
+                    new ByteArrayInputStream(POSTINGS.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(2, jobs.size());
+            assertSame(jobs.get(0).company(), jobs.get(1).company(), engine.name());
+            assertSame(jobs.get(0).location(), jobs.get(1).location(), engine.name());
+            assertSame(jobs.get(0).category(), jobs.get(1).category(), engine.name());
+            assertEquals(List.of("US", "Washington", "Seattle"), jobs.get(0).location().area());
+        }
+    }
+
+    /** Test that equal values get the same id, and ids map back to the values. */
+    @Test
+    public void testIds() {
+        ValueDictionary dictionary = new ValueDictionary();
+        Company acme = dictionary.company("Acme");
+        int id = dictionary.idOf(new Company(new String("Acme")));
+        assertEquals(id, dictionary.idOf(acme));
+        assertNotEquals(id, dictionary.idOf(new Company("Globex")));
+        assertSame(acme, dictionary.companyOf(id));
+
+        Category category = new Category("it-jobs", "IT Jobs");
+        assertSame(dictionary.category("it-jobs", "IT Jobs"), dictionary.categoryOf(dictionary.idOf(category)));
+        assertEquals(dictionary.idOf(category), dictionary.findId(category));
+        assertEquals(ValueDictionary.NONE, dictionary.findId(new Category("unknown", "Unknown")));
+
+        Location location = dictionary.location("Seattle", new ArrayList<>(List.of("US", "Seattle")));
+        assertEquals(dictionary.idOf(location), dictionary.idOf(new Location("Seattle", List.of("US", "Seattle"))));
+        assertSame(location.area(), dictionary.location("Seattle", List.of("US", "Seattle")).area());
+        assertThrows(UnsupportedOperationException.class, () -> location.area().add("Downtown"));
+        assertEquals(4, dictionary.size());
+    }
+
+    /** Test that dictionaries number their own values, starting afresh. */
+    @Test
+    public void testSeparateDictionaries() {
+        ValueDictionary first = new ValueDictionary();
+        ValueDictionary second = new ValueDictionary();
+        first.company("Globex");
+        int id = first.idOf(Company.of("Acme"));
+        assertEquals(0, second.idOf(Company.of("Acme")));
+        assertNotEquals(id, second.idOf(Company.of("Acme")));
+        assertSame(first.companyOf(id), second.companyOf(0));
+        assertEquals(2, first.size());
+        assertEquals(1, second.size());
+    }
+
+    /**
+     * Test that a shared value no posting refers to any more can be collected.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testUnusedValuesReleased() throws InterruptedException {
+        WeakReference<Company> released = new WeakReference<>(Company.of("Initech " + System.nanoTime()));
+        for (int i = 0; i < 50 && released.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(released.get());
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import jobplanner.model.store.WriteAheadLog;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the WriteAheadLog class.
+ */
+public class TestWriteAheadLog {
+
+    /** The log file used by the tests. */
+    private static final Path LOG = Paths.get("data/test_writeaheadlog.wal");
+
+    /**
+     * Removes the files written by the tests.
+     *
+     * @throws IOException if the files can not be removed
+     */
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(LOG);
+    }
+
+    /**
+     * Reads the entries of the log as strings.
+     *
+     * @return the entries
+     * @throws IOException if the log can not be read
+     */
+    private static List<String> entries() throws IOException {
+        List<String> entries = new ArrayList<>();
+        WriteAheadLog.replay(LOG, entry -> entries.add(new String(entry, StandardCharsets.UTF_8)));
+        return entries;
+    }
+
+    /**
+     * Gets the bytes of a string.
+     *
+     * @param entry the string
+     * @return its bytes
+     */
+    private static byte[] bytes(String entry) {
+        return entry.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Test that entries are read back in order, with each sync policy. */
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (WriteAheadLog.SyncPolicy policy : WriteAheadLog.SyncPolicy.values()) {
+            Files.deleteIfExists(LOG);
+            try (WriteAheadLog log = new WriteAheadLog(LOG, policy, Duration.ofMillis(10))) {
+                log.append(bytes("first"));
+                log.appendAll(List.of(bytes(""), bytes("third \u00e9")));
+                assertEquals(3, log.size());
+            }
+            assertEquals(List.of("first", "", "third \u00e9"), entries());
+            try (WriteAheadLog log = new WriteAheadLog(LOG, policy, Duration.ofMillis(10))) {
+                assertEquals(3, log.size());
+            }
+        }
+    }
+
+    /** Test that a torn last entry is cut off on open, and later entries follow the good ones. */
+    @Test
+    public void testTornTail() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(LOG, WriteAheadLog.SyncPolicy.ALWAYS, Duration.ZERO)) {
+            log.append(bytes("first"));
+        }
+        long good = Files.size(LOG);
+        Files.write(LOG, new byte[] {0, 0, 0, 20, 1, 2, 3, 4, 'x'}, StandardOpenOption.APPEND);
+        assertEquals(List.of("first"), entries());
+
+        try (WriteAheadLog log = new WriteAheadLog(LOG, WriteAheadLog.SyncPolicy.ALWAYS, Duration.ZERO)) {
+            assertEquals(good, Files.size(LOG));
+            log.append(bytes("second"));
+        }
+        assertEquals(List.of("first", "second"), entries());
+    }
+
+    /** Test that replay stops at an entry whose checksum does not match. */
+    @Test
+    public void testCorruptEntry() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(LOG, WriteAheadLog.SyncPolicy.NEVER, Duration.ZERO)) {
+            log.appendAll(List.of(bytes("first"), bytes("second"), bytes("third")));
+        }
+        byte[] data = Files.readAllBytes(LOG);
+        data[8 + 5 + 8] ^= 1; // first byte of "second"
+        Files.write(LOG, data);
+        assertEquals(List.of("first"), entries());
+    }
+
+    /** Test that concurrent appends share syncs, and reset empties the log. */
+    @Test
+    public void testGroupCommitAndReset() throws Exception {
+        try (WriteAheadLog log = new WriteAheadLog(LOG, WriteAheadLog.SyncPolicy.ALWAYS, Duration.ZERO)) {
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            log.append(bytes("entry"));
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(200, log.size());
+            assertTrue(log.getSyncs() <= 200);
+
+            log.reset();
+            assertEquals(0, log.size());
+            log.append(bytes("after"));
+        }
+        assertEquals(List.of("after"), entries());
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import jobplanner.model.models.IJobPostModel.Category;
+import jobplanner.model.models.IJobPostModel.Company;
+import jobplanner.model.models.IJobPostModel.JobRecord;
+import jobplanner.model.models.IJobPostModel.Location;
+import jobplanner.model.models.ValueDictionary;
+
+/**
+ * Compares the heap used by a synthetic corpus of postings with their own
+ * copies of every value, as read from JSON without the canonical instances of
+ * {@link ValueDictionary}, and with shared values. Not a unit test; run it by
+ * hand with the test classpath.
+ */
+public final class ValueDictionaryBenchmark {
+
+    /** Not instantiated. */
+    private ValueDictionaryBenchmark() {
+        // Empty
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args the number of postings, defaults to 500000
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        System.out.printf("%d postings%n", count);
+        long baseline = usedHeap();
+        List<JobRecord> copies = corpus(count, false);
+        long copiesHeap = usedHeap() - baseline;
+        System.out.printf("%-20s %8.1f MB, %d postings kept%n", "own copies", copiesHeap / 1e6, copies.size());
+        copies = null;
+
+        baseline = usedHeap();
+        List<JobRecord> shared = corpus(count, true);
+        long sharedHeap = usedHeap() - baseline;
+        System.out.printf("%-20s %8.1f MB, %d postings kept%n", "shared values", sharedHeap / 1e6, shared.size());
+    }
+
+    /**
+     * Builds a synthetic corpus: 500 companies, 30 categories and 2000
+     * locations spread over the postings.
+     *
+     * @param count  the number of postings
+     * @param shared whether to read the values through the factories
+     * @return the postings
+     */
+    private static List<JobRecord> corpus(int count, boolean shared) {
+        Random random = new Random(42);
+        List<JobRecord> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int company = random.nextInt(500);
+            int category = random.nextInt(30);
+            int location = random.nextInt(2000);
+            // new strings, as every posting parsed from JSON has
+            String companyName = new String("Company " + company);
+            String tag = new String("category-" + category + "-jobs");
+            String label = new String("Category " + category + " Jobs");
+            String city = new String("City " + location);
+            List<String> area = new ArrayList<>(List.of(new String("US"), new String("State " + location % 50),
+                    new String("County " + location % 400), city));
+            jobs.add(new JobRecord("Job " + i, null,
+                    shared ? Company.of(companyName) : new Company(companyName),
+                    shared ? Location.of(city, area) : new Location(city, area), 50000, 60000, "full_time",
+                    "2024-08-01T00:00:00Z", null, null,
+                    shared ? Category.of(tag, label) : new Category(tag, label), 0, 0, Integer.toString(i), "0"));
+        }
+        return jobs;
+    }
+
+    /**
+     * Measures the heap in use after a garbage collection.
+     *
+     * @return the heap in use, in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
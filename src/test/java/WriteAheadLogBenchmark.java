@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import jobplanner.model.store.WriteAheadLog;
+import jobplanner.model.store.WriteAheadLog.SyncPolicy;
+
+/**
+ * Measures durable appends per second to a {@link WriteAheadLog} from several
+ * threads with each {@link SyncPolicy}. Not a unit test; run it by hand with
+ * the test classpath.
+ */
+public final class WriteAheadLogBenchmark {
+
+    /** Not instantiated. */
+    private WriteAheadLogBenchmark() {
+        // Empty
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args the number of appending threads, defaults to 8, and of appends
+     *             per thread, defaults to 500
+     * @throws Exception if the log can not be written
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        byte[] entry = new byte[512];
+        Path file = Files.createTempFile(Paths.get("."), "wal-benchmark", ".log");
+        try {
+            for (SyncPolicy candidate : SyncPolicy.values()) {
+                Files.deleteIfExists(file);
+                try (WriteAheadLog log = new WriteAheadLog(file, candidate, Duration.ofMillis(100))) {
+                    Thread[] workers = new Thread[threads];
+                    long start = System.nanoTime();
+                    for (int t = 0; t < threads; t++) {
+                        workers[t] = new Thread(() -> {
+                            try {
+                                for (int i = 0; i < perThread; i++) {
+                                    log.append(entry);
+                                }
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+                        workers[t].start();
+                    }
+                    for (Thread worker : workers) {
+                        worker.join();
+                    }
+                    log.sync();
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("%-10s %10.0f appends/s %8d syncs%n", candidate,
+                            threads * perThread / seconds, log.getSyncs());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}